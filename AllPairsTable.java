@@ -0,0 +1,306 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * This AllPairsTable stores the cost of the shortest path between every pair
+ * of nodes in a CsrGraph, along with the first edge along each of those
+ * paths. A path is then read from the table by following first edges from
+ * the start until reaching the end, without any searching. The table takes
+ * memory proportional to the square of the number of nodes, so it is only
+ * meant for small graphs like the campus map.
+ */
+public class AllPairsTable<NodeType> {
+
+    // identifies files written by save(), followed by the format version
+    protected static final int FILE_MAGIC = 0x50464150; // "PFAP"
+    protected static final int FILE_VERSION = 1;
+
+    protected CsrGraph<NodeType> graph;
+    protected int nodeCount;
+    // costs[s * nodeCount + t] is the cost of the shortest path from s to t,
+    // and firstEdges[s * nodeCount + t] is the index of the first edge along
+    // it (within the graph's leaving edge arrays), or -1 when t is s or t
+    // cannot be reached from s
+    protected double[] costs;
+    protected int[] firstEdges;
+
+    /**
+     * Computes the table by running Dijkstra's backward from every node, in
+     * parallel across the common fork-join pool. Each backward search gives
+     * every node's first edge toward that search's node, so the first edges
+     * toward any one end node form a single tree, and following them can
+     * never loop even between nodes joined by edges with no weight.
+     *
+     * @param graph the graph to compute shortest paths within
+     */
+    public AllPairsTable(CsrGraph<NodeType> graph) {
+        this.graph = graph;
+        this.nodeCount = graph.getNodeCount();
+        this.costs = new double[nodeCount * nodeCount];
+        this.firstEdges = new int[nodeCount * nodeCount];
+        Arrays.fill(costs, Double.POSITIVE_INFINITY);
+        Arrays.fill(firstEdges, -1);
+        int[] leavingEdges = leavingEdges(graph);
+        IntStream.range(0, nodeCount).parallel().forEach(end -> computeColumn(end, leavingEdges));
+    }
+
+    // creates a table from costs and first edges that have already been computed
+    protected AllPairsTable(CsrGraph<NodeType> graph, double[] costs, int[] firstEdges) {
+        this.graph = graph;
+        this.nodeCount = graph.getNodeCount();
+        this.costs = costs;
+        this.firstEdges = firstEdges;
+    }
+
+    // matches each entering edge of graph to the index of the same leaving
+    // edge, in the same order that CsrGraph builds its entering edge arrays
+    private static int[] leavingEdges(CsrGraph<?> graph) {
+        int[] leavingEdges = new int[graph.getEdgeCount()];
+        int[] next = graph.reverseOffsets.clone();
+        for (int u = 0; u < graph.getNodeCount(); u++)
+            for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++)
+                leavingEdges[next[graph.targets[e]]++] = e;
+        return leavingEdges;
+    }
+
+    /**
+     * Moves this table over to a changed copy of its graph, computing only
+     * the columns (the paths toward one end node) that the changes affect.
+     * The first edges toward an end node form a shortest path tree, which
+     * stays correct after the changes as long as none of its edges were
+     * removed or given a higher weight, and no inserted edge or lowered
+     * weight makes a cheaper path to that end node. Every other column is
+     * copied over to the nodes and edges with the same data in changedGraph,
+     * while the affected columns and those of inserted nodes are computed
+     * again by searching backward from their end nodes.
+     *
+     * @param changedGraph the graph after the changes were made
+     * @param changes      the changes that turned this table's graph into
+     *                     changedGraph
+     * @return a table of the shortest paths within changedGraph
+     */
+    public AllPairsTable<NodeType> forChangedGraph(CsrGraph<NodeType> changedGraph,
+            GraphChangeSet<NodeType, ? extends Number> changes) {
+        int changedCount = changedGraph.getNodeCount();
+        // the id in changedGraph of each node in graph, or -1 once removed
+        int[] changedIds = new int[nodeCount];
+        for (int v = 0; v < nodeCount; v++)
+            changedIds[v] = changedGraph.getId(graph.getData(v));
+        // the index in changedGraph of each edge in graph, or -1 once removed
+        int[] changedEdges = new int[graph.getEdgeCount()];
+        for (int u = 0; u < nodeCount; u++)
+            for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++)
+                changedEdges[e] = changedIds[u] < 0 ? -1
+                        : changedGraph.findEdge(graph.getData(u), graph.getData(graph.targets[e]));
+
+        // the ids in graph of the nodes each changed edge joins, and either
+        // the edge's index in graph when it was removed or made more costly,
+        // or its new weight when it was inserted or made less costly
+        List<? extends GraphChangeSet.EdgeChange<NodeType, ? extends Number>> edgeChanges =
+                changes.getEdgeChanges();
+        int[] preds = new int[edgeChanges.size()];
+        int[] succs = new int[edgeChanges.size()];
+        int[] raisedEdges = new int[edgeChanges.size()];
+        double[] loweredWeights = new double[edgeChanges.size()];
+        for (int c = 0; c < edgeChanges.size(); c++) {
+            GraphChangeSet.EdgeChange<NodeType, ? extends Number> change = edgeChanges.get(c);
+            preds[c] = graph.getId(change.predecessor);
+            succs[c] = graph.getId(change.successor);
+            raisedEdges[c] = -1;
+            loweredWeights[c] = Double.NaN;
+            if (change.isRemove() || (!change.isInsert()
+                    && change.newWeight.doubleValue() > change.oldWeight.doubleValue()))
+                raisedEdges[c] = graph.findEdge(change.predecessor, change.successor);
+            else if (change.isInsert() || change.newWeight.doubleValue() < change.oldWeight.doubleValue())
+                loweredWeights[c] = change.newWeight.doubleValue();
+        }
+
+        // columns of inserted nodes start out stale, as do those that changes
+        // to edges affect
+        boolean[] stale = new boolean[changedCount];
+        Arrays.fill(stale, true);
+        for (int end = 0; end < nodeCount; end++)
+            if (changedIds[end] >= 0)
+                stale[changedIds[end]] = changesColumn(end, preds, succs, raisedEdges, loweredWeights);
+
+        double[] changedCosts = new double[changedCount * changedCount];
+        int[] changedFirstEdges = new int[changedCount * changedCount];
+        Arrays.fill(changedCosts, Double.POSITIVE_INFINITY);
+        Arrays.fill(changedFirstEdges, -1);
+        for (int start = 0; start < nodeCount; start++) {
+            if (changedIds[start] < 0)
+                continue;
+            int row = changedIds[start] * changedCount;
+            for (int end = 0; end < nodeCount; end++) {
+                if (changedIds[end] < 0 || stale[changedIds[end]])
+                    continue;
+                int edge = firstEdges[start * nodeCount + end];
+                changedCosts[row + changedIds[end]] = costs[start * nodeCount + end];
+                changedFirstEdges[row + changedIds[end]] = edge < 0 ? -1 : changedEdges[edge];
+            }
+        }
+
+        AllPairsTable<NodeType> table = new AllPairsTable<>(changedGraph, changedCosts, changedFirstEdges);
+        int[] leavingEdges = leavingEdges(changedGraph);
+        IntStream.range(0, changedCount).parallel().filter(end -> stale[end])
+                .forEach(end -> table.computeColumn(end, leavingEdges));
+        return table;
+    }
+
+    // returns whether the changed edges described by forChangedGraph can
+    // affect the shortest paths toward end. A removed or more costly edge only
+    // matters when it is in the tree of first edges toward end, and an
+    // inserted or less costly edge only when it makes a cheaper path. Any path
+    // from a node that is new to this table ends with an inserted edge into a
+    // node that this table holds, so such paths are found through that edge.
+    private boolean changesColumn(int end, int[] preds, int[] succs, int[] raisedEdges,
+            double[] loweredWeights) {
+        for (int c = 0; c < preds.length; c++) {
+            if (raisedEdges[c] >= 0) {
+                if (firstEdges[preds[c] * nodeCount + end] == raisedEdges[c])
+                    return true;
+            } else if (!Double.isNaN(loweredWeights[c]) && succs[c] >= 0) {
+                double oldCost = preds[c] < 0 ? Double.POSITIVE_INFINITY : costs[preds[c] * nodeCount + end];
+                if (loweredWeights[c] + costs[succs[c] * nodeCount + end] < oldCost)
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    // fills in the costs and first edges of paths toward end, by searching
+    // backward from end through entering edges
+    private void computeColumn(int end, int[] leavingEdges) {
+        boolean[] visited = new boolean[nodeCount];
+        int[] nextEdges = new int[nodeCount];
+        IndexedMinHeap queue = new IndexedMinHeap(nodeCount);
+        queue.insert(end, 0);
+        nextEdges[end] = -1;
+        while (!queue.isEmpty()) {
+            double cost = queue.peekKey();
+            int v = queue.poll();
+            visited[v] = true;
+            costs[v * nodeCount + end] = cost;
+            firstEdges[v * nodeCount + end] = nextEdges[v];
+
+            for (int r = graph.reverseOffsets[v]; r < graph.reverseOffsets[v + 1]; r++) {
+                int u = graph.sources[r];
+                if (visited[u])
+                    continue;
+                double newCost = cost + graph.reverseWeights[r];
+                if (!queue.contains(u))
+                    queue.insert(u, newCost);
+                else if (newCost < queue.getKey(u))
+                    queue.decreaseKey(u, newCost);
+                else
+                    continue;
+                nextEdges[u] = leavingEdges[r];
+            }
+        }
+    }
+
+    /**
+     * @return the graph that this table was computed for
+     */
+    public CsrGraph<NodeType> getGraph() {
+        return graph;
+    }
+
+    /**
+     * @param start id of the node the path starts from
+     * @param end   id of the node the path ends at
+     * @return the cost of the shortest path from start to end, which is
+     *         Double.POSITIVE_INFINITY when there is no such path
+     */
+    public double getCost(int start, int end) {
+        return costs[start * nodeCount + end];
+    }
+
+    /**
+     * Reads the shortest path from start to end out of the table, by
+     * following the first edge toward end from each node along the way.
+     *
+     * @param start id of the node the path starts from
+     * @param end   id of the node the path ends at
+     * @return the index of each edge along the path (within the graph's
+     *         leaving edge arrays) in order, or null if there is no path
+     */
+    public int[] shortestPathEdges(int start, int end) {
+        if (costs[start * nodeCount + end] == Double.POSITIVE_INFINITY)
+            return null;
+        int[] edges = new int[nodeCount]; // a shortest path never repeats a node
+        int count = 0;
+        for (int u = start; u != end; u = graph.targets[edges[count - 1]])
+            edges[count++] = firstEdges[u * nodeCount + end];
+        return Arrays.copyOf(edges, count);
+    }
+
+    /**
+     * Writes this table to a file, along with a fingerprint of the graph so
+     * that load() can tell if the file is stale. The table is written to a
+     * temporary file in the same directory, which then atomically replaces
+     * filename, so that a process loading the table never reads a partly
+     * written one.
+     *
+     * @param filename the path of the file to write
+     * @throws IOException if there was any problem writing this file
+     */
+    public void save(String filename) throws IOException {
+        Path target = Path.of(filename).toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName() + ".", ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(FILE_VERSION);
+                out.writeLong(graph.fingerprint());
+                out.writeInt(nodeCount);
+                for (double cost : costs)
+                    out.writeDouble(cost);
+                for (int edge : firstEdges)
+                    out.writeInt(edge);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp); // only left behind when writing failed
+        }
+    }
+
+    /**
+     * Reads a table written by save(), if it was computed for a graph with
+     * exactly the same contents as the provided graph.
+     *
+     * @param filename the path of the file to read
+     * @param graph    the graph that the table should belong to
+     * @return the table from that file, or null if the file was written for a
+     *         different graph or by an unknown version of this class
+     * @throws IOException if there was any problem reading this file
+     */
+    public static <NodeType> AllPairsTable<NodeType> load(String filename,
+            CsrGraph<NodeType> graph) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(filename)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION
+                    || in.readLong() != graph.fingerprint() || in.readInt() != graph.getNodeCount())
+                return null;
+            int entries = graph.getNodeCount() * graph.getNodeCount();
+            double[] costs = new double[entries];
+            int[] firstEdges = new int[entries];
+            for (int i = 0; i < entries; i++)
+                costs[i] = in.readDouble();
+            for (int i = 0; i < entries; i++)
+                firstEdges[i] = in.readInt();
+            return new AllPairsTable<>(graph, costs, firstEdges);
+        }
+    }
+}
@@ -1,10 +1,15 @@
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.util.Scanner;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Implements the provided BackendInterface and provide the functionality described within the
@@ -12,7 +17,20 @@ import java.util.NoSuchElementException;
  */
 public class Backend implements BackendInterface {
 
+  // reports index files that could not be read or written, which only slows later loads down
+  private static final Logger LOGGER = Logger.getLogger(Backend.class.getName());
+
   private GraphADT<String, Double> graph;
+  // the graph passed to the constructor, which dot files are loaded into
+  // even after graph has been swapped for a snapshot by loadGraphSnapshot
+  private GraphADT<String, Double> editableGraph;
+
+  // number of landmarks chosen for the graph's LANDMARKS search when loading
+  private int landmarkCount = 8;
+  // graphs with at most this many nodes get an all-pairs table when loading
+  private int allPairsMaxNodes = 1000;
+  // whether loading computes and saves indexes that cannot be read from their files
+  private boolean buildIndexes = false;
 
   /**
    * A constructor to create a backend graph
@@ -21,73 +39,392 @@ public class Backend implements BackendInterface {
    */
   public Backend(GraphADT<String, Double> graph) {
       this.graph = graph;
+      this.editableGraph = graph;
+  }
+
+  /**
+   * Creates a backend with the same settings, whose graph is a copy of the graph that this
+   * backend loads dot files into, along with that graph's indexes. Calling loadGraphData on the
+   * copy then applies only the file's changes to it, updating those indexes rather than building
+   * them again, while this backend keeps answering requests from the original graph.
+   *
+   * @return a new backend holding a copy of this backend's graph
+   * @throws UnsupportedOperationException if this backend's graph is not a DijkstraGraph
+   */
+  public Backend copy() {
+      if (!(editableGraph instanceof DijkstraGraph)) {
+          throw new UnsupportedOperationException("Unable to copy a " + editableGraph.getClass().getName());
+      }
+      Backend copy = new Backend(((DijkstraGraph<String, Double>) editableGraph).copy());
+      copy.landmarkCount = landmarkCount;
+      copy.allPairsMaxNodes = allPairsMaxNodes;
+      copy.buildIndexes = buildIndexes;
+      return copy;
+  }
+
+  /**
+   * Sets the number of landmarks that loadGraphData computes for goal-directed
+   * (LANDMARKS) searches, or 0 to skip computing landmarks.
+   *
+   * @param landmarkCount the number of landmarks to choose when loading
+   */
+  public void setLandmarkCount(int landmarkCount) {
+      this.landmarkCount = landmarkCount;
+  }
+
+  /**
+   * Sets the largest number of nodes that a graph can have for loadGraphData
+   * to compute an all-pairs table for it (ALL_PAIRS searches), or 0 to never
+   * compute one. The table holds an entry for every pair of nodes.
+   *
+   * @param allPairsMaxNodes the most nodes a graph can have to get a table
+   */
+  public void setAllPairsMaxNodes(int allPairsMaxNodes) {
+      this.allPairsMaxNodes = allPairsMaxNodes;
+  }
+
+  /**
+   * Sets whether loadGraphData computes the landmarks and all-pairs table that it cannot read from
+   * their files next to the graph's file, and then writes them to those files for the next time
+   * the graph is loaded. This pays off in a process that answers many requests from one loaded
+   * graph, but not in one that loads the graph to answer a single request, so it is off by
+   * default: indexes are then only read from files that are up to date.
+   *
+   * @param buildIndexes true to compute and save missing or stale indexes when loading
+   */
+  public void setBuildIndexes(boolean buildIndexes) {
+      this.buildIndexes = buildIndexes;
   }
 
   /**
    * Loads graph data from a dot file. If a graph was previously loaded, this method should first
    * delete the contents (nodes and edges) of the existing graph before loading a new one.
    *
+   * Rather than deleting everything and inserting it all again, the file is compared to the graph
+   * that is already loaded, and only the nodes and edges that differ are inserted, removed or given
+   * new weights, through one GraphChangeSet that is passed on to the graph's change listeners. If
+   * the file cannot be read, the loaded graph is left unchanged.
+   *
    * @param filename the path to a dot file to read graph data from
    * @throws IOException if there was any problem reading from this file
    */
   @Override
   public void loadGraphData(String filename) throws IOException {
-      // Delete the contents of the existing graph
-      // graph.clear;
-      if (graph != null) {
-         List<String> nodes = graph.getAllNodes();
-         for (String node : nodes) {
-            graph.removeNode(node);
-         }
+      graph = editableGraph;
+      loadFileGraph(parseGraphData(filename));
+      prepareSearches(filename);
+  }
+
+  /**
+   * Makes the graph hold exactly the nodes and edges of a file that has already been read. A
+   * DijkstraGraph only has the nodes and edges that differ inserted, removed or given new weights,
+   * through one GraphChangeSet; any other graph has its contents deleted and then every node and
+   * edge inserted.
+   *
+   * @param fileGraph the nodes and edges read from the file, without duplicate edges
+   */
+  private void loadFileGraph(CsrGraph<String> fileGraph) {
+      if (graph instanceof DijkstraGraph) {
+          DijkstraGraph<String, Double> dijkstraGraph = (DijkstraGraph<String, Double>) graph;
+          dijkstraGraph.applyChanges(GraphChangeSet.between(dijkstraGraph.snapshot(), fileGraph));
+      } else {
+          // Delete the contents of the existing graph, then add every node and edge
+          for (String node : graph.getAllNodes()) {
+              graph.removeNode(node);
+          }
+          for (String node : fileGraph.getAllNodes()) {
+              graph.insertNode(node);
+          }
+          for (int u = 0; u < fileGraph.getNodeCount(); u++) {
+              for (int e = fileGraph.offsets[u]; e < fileGraph.offsets[u + 1]; e++) {
+                  graph.insertEdge(fileGraph.getData(u), fileGraph.getData(fileGraph.targets[e]),
+                          fileGraph.weights[e]);
+              }
+          }
       }
+  }
 
-      // Read the dot file and create the graph
-      try {
-          File file = new File(filename);
-          Scanner scanner = new Scanner(file);
+  /**
+   * Reads every node and edge in a dot file into a CsrGraph, numbering nodes in the order they
+   * first appear. An edge that is listed more than once keeps the last weight it is given, just as
+   * inserting it into a graph again would update its weight.
+   *
+   * @param filename the path to a dot file to read graph data from
+   * @return the nodes and edges in that file
+   * @throws IOException if there was any problem reading from this file
+   */
+  private CsrGraph<String> parseGraphData(String filename) throws IOException {
+      List<String> nodeData = new ArrayList<>();
+      MapADT<String, Integer> ids = new OpenAddressingMap<>();
+      int[] sources = new int[1024];
+      int[] targets = new int[1024];
+      double[] weights = new double[1024];
+      int edgeCount = 0;
 
-	  String firstLine = scanner.nextLine().trim();
-          if (!firstLine.startsWith("digraph") || !firstLine.endsWith("{")) {
-              throw new IOException("The file does not start with a valid DOT graph declaration.");
+      // Read the dot file one node or edge at a time
+      try (DotParser parser = new DotParser(
+              new InputStreamReader(new FileInputStream(filename), StandardCharsets.UTF_8), "seconds")) {
+          while (parser.next()) {
+              int source = idOf(parser.getSource(), ids, nodeData);
+              if (!parser.isEdge()) {
+                  continue;
+              }
+              if (edgeCount == sources.length) {
+                  sources = Arrays.copyOf(sources, edgeCount * 2);
+                  targets = Arrays.copyOf(targets, edgeCount * 2);
+                  weights = Arrays.copyOf(weights, edgeCount * 2);
+              }
+              sources[edgeCount] = source;
+              targets[edgeCount] = idOf(parser.getTarget(), ids, nodeData);
+              weights[edgeCount] = parser.getWeight();
+              edgeCount++;
           }
-
-          // Skip the first line (digraph campus {)
-          scanner.nextLine();
-
-        while (scanner.hasNextLine()) {
-            String line = scanner.nextLine().trim();
-
-            // Ignore empty lines and the last line
-            if (line.isEmpty() || line.equals("}")) {
-              continue;
-            }
-
-            // Parse the line to extract the node names and the edge weight
-            String[] parts = line.split(" -> ");
-            String sourceNode = parts[0].trim().replaceAll("\"", "");
-            String[] targetNodeAndWeight = parts[1].split("\\[seconds=");
-            String targetNode = targetNodeAndWeight[0].trim().replaceAll("\"", "");
-            double weight = Double.parseDouble(targetNodeAndWeight[1].trim().replaceAll("]", "").replaceAll(";",""));
-
-            // Insert the nodes and edge into the graph
-            graph.insertNode(sourceNode);
-//ignore commented lines without indentation, they are for testing (IMPORTANT)
-System.out.println(sourceNode);
-            graph.insertNode(targetNode);
-System.out.println(targetNode);
-            graph.insertEdge(sourceNode, targetNode, weight);
-System.out.println(graph.getEdge(sourceNode, targetNode));
-System.out.println();
-        }
-
-          scanner.close();
       } catch (FileNotFoundException e) {
           throw new IOException("File not found: " + e.getMessage());
-      } catch (Exception e) {
-//catching this causes the whole webapp to never launch so I took it out
-//          throw new IOException("Error loading graph data: " + e.getMessage(), e);
+      } catch (IOException e) {
+          throw new IOException("Error loading graph data from " + filename + ": " + e.getMessage(), e);
       }
-    }
+      return CsrGraph.fromEdgeList(nodeData, sources, targets, weights, edgeCount).withoutDuplicateEdges();
+  }
+
+  // returns the id of a node read by parseGraphData, numbering it if it is new
+  private static int idOf(String data, MapADT<String, Integer> ids, List<String> nodeData) {
+      Integer id = ids.getOrNull(data);
+      if (id != null)
+          return id;
+      ids.put(data, nodeData.size());
+      nodeData.add(data);
+      return nodeData.size() - 1;
+  }
+
+  /**
+   * Loads graph data like loadGraphData, but parses the file in parallel
+   * through a memory-mapped ParallelGraphLoader. This is much faster for very
+   * large files, which must have one statement per line as exported DOT
+   * files and edge lists do. The whole file is parsed before the graph is
+   * touched, so that a file that cannot be parsed leaves the loaded graph
+   * unchanged, and only its differences from the loaded graph are applied.
+   *
+   * @param filename the path to a dot or edge list file to read graph data from
+   * @throws IOException if there was any problem reading from this file
+   */
+  public void loadGraphDataParallel(String filename) throws IOException {
+      graph = editableGraph;
+      CsrGraph<String> fileGraph;
+      try {
+          // an edge listed twice keeps the last weight it is given, as in loadGraphData
+          fileGraph = new ParallelGraphLoader().loadSnapshot(filename).withoutDuplicateEdges();
+      } catch (IOException e) {
+          throw new IOException("Error loading graph data from " + filename + ": " + e.getMessage(), e);
+      }
+      loadFileGraph(fileGraph);
+      prepareSearches(filename);
+  }
+
+  /**
+   * Writes the currently loaded graph to a binary GraphSnapshot file, along
+   * with its landmarks when landmarks are configured, so that it can later be
+   * reopened by loadGraphSnapshot without parsing its dot file again.
+   *
+   * @param snapshotFilename the path of the snapshot file to write
+   * @throws IOException if there was any problem writing this file, or if the
+   *                     loaded graph cannot be copied into a snapshot
+   */
+  public void saveGraphSnapshot(String snapshotFilename) throws IOException {
+      CsrGraph<String> snapshot;
+      LandmarkIndex<String> landmarks = null;
+      if (graph instanceof CsrGraph) {
+          snapshot = (CsrGraph<String>) graph;
+          landmarks = snapshot.getLandmarkIndex();
+      } else if (graph instanceof DijkstraGraph) {
+          DijkstraGraph<String, Double> dijkstraGraph = (DijkstraGraph<String, Double>) graph;
+          snapshot = dijkstraGraph.snapshot();
+          landmarks = dijkstraGraph.getLandmarkIndex();
+      } else {
+          throw new IOException("Unable to save a snapshot of a " + graph.getClass().getName());
+      }
+      if (landmarks == null && landmarkCount > 0) {
+          landmarks = new LandmarkIndex<>(snapshot, landmarkCount);
+      }
+      GraphSnapshot.save(snapshotFilename, snapshot, landmarkCount > 0 ? landmarks : null);
+  }
+
+  /**
+   * Replaces the loaded graph with the read-only graph stored in a snapshot
+   * file written by saveGraphSnapshot. Paths in that graph are found with the
+   * landmarks stored in the file when there are any, and with Dijkstra's
+   * algorithm otherwise. A later call to loadGraphData loads its dot file
+   * into the graph passed to this backend's constructor again.
+   *
+   * @param snapshotFilename the path of the snapshot file to read
+   * @throws IOException if there was any problem reading this file, or if it
+   *                     is not a snapshot written by this version
+   */
+  public void loadGraphSnapshot(String snapshotFilename) throws IOException {
+      GraphSnapshot snapshot = GraphSnapshot.load(snapshotFilename);
+      if (snapshot == null) {
+          throw new IOException(snapshotFilename + " is not a graph snapshot written by this version");
+      }
+      snapshot.getGraph().setLandmarkIndex(snapshot.getLandmarkIndex());
+      graph = snapshot.getGraph();
+  }
+
+  /**
+   * Gives a newly loaded DijkstraGraph the landmarks, hierarchy and all-pairs
+   * table that are configured for it, keeping each in a file next to the
+   * graph's file, and then switches it to the fastest search they allow. The
+   * search is only switched once, so that paths the graph has cached are not
+   * cleared by switching through slower searches on the way.
+   *
+   * @param filename the path of the file the graph was loaded from
+   */
+  private void prepareSearches(String filename) {
+      if (!(graph instanceof DijkstraGraph)) {
+          return;
+      }
+      DijkstraGraph<String, Double> dijkstraGraph = (DijkstraGraph<String, Double>) graph;
+      // kept up to date by the graph from now on, through every later reload
+      if (dijkstraGraph.getReachabilityIndex() == null) {
+          dijkstraGraph.prepareReachability();
+      }
+      if (landmarkCount > 0) {
+          prepareLandmarks(dijkstraGraph, filename + ".landmarks");
+      }
+      loadContractionHierarchy(dijkstraGraph, filename + ".ch");
+      if (graph.getNodeCount() <= allPairsMaxNodes) {
+          prepareAllPairs(dijkstraGraph, filename + ".apsp");
+      } else if (dijkstraGraph.getAllPairsTable() != null) {
+          dijkstraGraph.setAllPairsTable(null); // the graph has grown too large for one
+      }
+
+      if (dijkstraGraph.getAllPairsTable() != null) {
+          dijkstraGraph.setSearchStrategy(DijkstraGraph.SearchStrategy.ALL_PAIRS);
+      } else if (dijkstraGraph.getContractionHierarchy() != null) {
+          dijkstraGraph.setSearchStrategy(DijkstraGraph.SearchStrategy.CONTRACTION_HIERARCHY);
+      } else if (dijkstraGraph.getLandmarkIndex() != null) {
+          dijkstraGraph.setSearchStrategy(DijkstraGraph.SearchStrategy.LANDMARKS);
+      }
+  }
+
+  /**
+   * Gives a small DijkstraGraph an all-pairs table, so that every path can be
+   * read from that table without searching. A table the graph already has is
+   * kept, as the graph keeps it up to date through the changes that
+   * loadGraphData applies. Otherwise, the table is read from tableFilename
+   * when that file was written for a graph with exactly the same contents.
+   * When it was not, and indexes are built, the table is computed and then
+   * written to that file for the next time this graph is loaded.
+   *
+   * @param dijkstraGraph the graph that was just loaded
+   * @param tableFilename the path of the file the table is kept in
+   */
+  private void prepareAllPairs(DijkstraGraph<String, Double> dijkstraGraph, String tableFilename) {
+      if (dijkstraGraph.getAllPairsTable() != null) {
+          return;
+      }
+      CsrGraph<String> snapshot = dijkstraGraph.snapshot();
+      AllPairsTable<String> table = null;
+      if (new File(tableFilename).exists()) {
+          try {
+              table = AllPairsTable.load(tableFilename, snapshot);
+          } catch (IOException e) {
+              table = null; // recompute it below
+          }
+      }
+      if (table == null) {
+          if (!buildIndexes) {
+              return;
+          }
+          table = new AllPairsTable<>(snapshot);
+          try {
+              table.save(tableFilename);
+          } catch (IOException e) {
+              LOGGER.log(Level.WARNING, "Unable to save all-pairs table to " + tableFilename, e);
+          }
+      }
+      dijkstraGraph.setAllPairsTable(table);
+  }
+
+  /**
+   * Gives a DijkstraGraph the ContractionHierarchy saved in
+   * hierarchyFilename, when that file exists and was built for a graph with
+   * exactly the same contents. Hierarchies take much longer to build than
+   * landmarks, so they are never built here: run ContractionHierarchy's main
+   * method on the dot file ahead of time to create this file.
+   *
+   * @param dijkstraGraph     the graph that was just loaded
+   * @param hierarchyFilename the path of the file the hierarchy is kept in
+   */
+  private void loadContractionHierarchy(DijkstraGraph<String, Double> dijkstraGraph,
+          String hierarchyFilename) {
+      if (dijkstraGraph.getContractionHierarchy() != null || !new File(hierarchyFilename).exists())
+          return;
+      ContractionHierarchy<String> hierarchy = null;
+      try {
+          hierarchy = ContractionHierarchy.load(hierarchyFilename, dijkstraGraph.snapshot());
+      } catch (IOException e) {
+          LOGGER.log(Level.WARNING, "Unable to read " + hierarchyFilename, e);
+      }
+      if (hierarchy == null)
+          return; // a missing or stale hierarchy is never used
+      dijkstraGraph.setContractionHierarchy(hierarchy);
+  }
+
+  /**
+   * Gives a DijkstraGraph the landmarks it needs for goal-directed searches.
+   * Landmarks the graph already has are kept while they are up to date, as
+   * the graph keeps them through the changes that loadGraphData applies
+   * unless those changes remove a landmark. Otherwise, landmarks are read
+   * from landmarkFilename when that file was written for a graph with exactly
+   * the same contents. When it was not, and indexes are built, landmarks are
+   * computed and then written to that file for the next time this graph is
+   * loaded.
+   *
+   * @param dijkstraGraph    the graph that was just loaded
+   * @param landmarkFilename the path of the file landmarks are kept in
+   */
+  private void prepareLandmarks(DijkstraGraph<String, Double> dijkstraGraph, String landmarkFilename) {
+      LandmarkIndex<String> current = dijkstraGraph.getLandmarkIndex();
+      if (current != null
+              && current.getLandmarkCount() == Math.min(landmarkCount, dijkstraGraph.getNodeCount())) {
+          return;
+      }
+      CsrGraph<String> snapshot = dijkstraGraph.snapshot();
+      LandmarkIndex<String> landmarks = null;
+      if (new File(landmarkFilename).exists()) {
+          try {
+              landmarks = LandmarkIndex.load(landmarkFilename, snapshot);
+          } catch (IOException e) {
+              landmarks = null; // recompute them below
+          }
+      }
+      if (landmarks == null || landmarks.getLandmarkCount() != Math.min(landmarkCount, snapshot.getNodeCount())) {
+          if (!buildIndexes) {
+              return;
+          }
+          landmarks = new LandmarkIndex<>(snapshot, landmarkCount);
+          try {
+              landmarks.save(landmarkFilename);
+          } catch (IOException e) {
+              LOGGER.log(Level.WARNING, "Unable to save landmarks to " + landmarkFilename, e);
+          }
+      }
+      dijkstraGraph.setLandmarkIndex(landmarks);
+  }
+
+  /**
+   * @return the number of locations (nodes) in the loaded graph
+   */
+  public int getNodeCount() {
+      return graph.getNodeCount();
+  }
+
+  /**
+   * @return the number of paths (edges) between locations in the loaded graph
+   */
+  public int getEdgeCount() {
+      return graph.getEdgeCount();
+  }
 
   /**
    * Returns a list of all locations (node data) available in the graph.
@@ -99,6 +436,22 @@ System.out.println();
       return graph.getAllNodes();
   }
 
+  /**
+   * Return the locations along the shortest path from startLocation to endLocation, the walking
+   * time between each two of them and the total walking time, all from a single search.
+   * 
+   * @param startLocation the start location of the path
+   * @param endLocation   the end location of the path
+   * @return the route along the shortest path from startLocation to endLocation, or an empty route
+   *         if no such path exists
+   */
+  @Override
+  public Route<String> findRouteOnShortestPath(String startLocation, String endLocation) {
+      // a missing path comes back as null rather than as an exception to catch
+      Route<String> route = graph.tryShortestPath(startLocation, endLocation);
+      return route == null ? Route.empty() : route;
+  }
+
   /**
    * Return the sequence of locations along the shortest path from startLocation to endLocation, or
    * an empty list if no such path exists.
@@ -110,9 +463,7 @@ System.out.println();
    */
   @Override
   public List<String> findLocationsOnShortestPath(String startLocation, String endLocation) {
-//I edited this myself to make it work (im not backend)
-      try { return graph.shortestPathData(startLocation, endLocation); }
-      catch(NoSuchElementException e) { return new ArrayList<String>(); }
+      return findRouteOnShortestPath(startLocation, endLocation).getNodes();
   }
 
   /**
@@ -126,23 +477,25 @@ System.out.println();
    */
   @Override
   public List<Double> findTimesOnShortestPath(String startLocation, String endLocation) {
-      List<String> path = graph.shortestPathData(startLocation, endLocation);
-      List<Double> times = new ArrayList<>();
-
-      if (path.size() < 2) {
-          return times; // No path or only one node
-      }
+      return findRouteOnShortestPath(startLocation, endLocation).getEdgeWeights();
+  }
 
-      // Calculate the times (edge weights) between consecutive nodes in the path
-      for (int i = 0; i < path.size() - 1; i++) {
-          String node1 = path.get(i);
-          String node2 = path.get(i + 1);
-          double time = graph.getEdge(node1, node2).doubleValue();
-          times.add(time);
-      }
-      return times;
+  /**
+   * Return the total walking time in seconds along the shortest path from each of startLocations
+   * to each of endLocations. This runs one search per start location (in parallel when the graph
+   * supports it) rather than one search per pair of locations.
+   *
+   * @param startLocations the start locations, one per row of the result
+   * @param endLocations   the end locations, one per column of the result
+   * @return a matrix where [i][j] is the walking time from startLocations.get(i) to
+   *         endLocations.get(j), or Double.POSITIVE_INFINITY if no such path exists
+   * @throws NoSuchElementException if any of the locations does not exist
+   */
+  public double[][] findTimeMatrix(List<String> startLocations, List<String> endLocations) {
+      return graph.shortestPathCosts(startLocations, endLocations);
   }
 
+
   /**
    * Returns the longest list of locations along any shortest path that starts from startLocation
    * and ends at any of the reachable destinations in the graph.
@@ -161,25 +514,37 @@ System.out.println();
           throw new NoSuchElementException("Start location does not exist");
       }
 
-      List<String> longestPath = new ArrayList<>();
-      List<String> nodes = graph.getAllNodes();
-      // flag to check if any reachable location is found
-      boolean reachable = false;
-      // loop through nodes with the end location until the longest path is found
-      for (String endLocation : nodes) {
-          if (!startLocation.equals(endLocation)) {
-                List<String> path = graph.shortestPathData(startLocation, endLocation);
-            if (path.size() > 1 && path.size() > longestPath.size()) {
-                longestPath = path;
-                // marked a reachable location
-                reachable = true;
+      // the reachability index shows without searching when nothing else can be reached
+      ReachabilityIndex<String> reachability = graph instanceof DijkstraGraph
+              ? ((DijkstraGraph<String, Double>) graph).getReachabilityIndex()
+              : null;
+      int startId = reachability == null ? -1 : reachability.getGraph().getId(startLocation);
+      if (startId >= 0 && !reachability.reachesOthers(startId)) {
+          throw new NoSuchElementException("No reachable locations from " + startLocation);
+      }
+
+      // one search finds the shortest path to every reachable location
+      ShortestPathTree<String> tree = graph.shortestPathTree(startLocation);
+      String farthestLocation = null;
+      // loop through nodes to find the end location whose path has the most locations
+      for (String endLocation : graph.getAllNodes()) {
+          if (startId >= 0) {
+              int endId = reachability.getGraph().getId(endLocation);
+              if (endId >= 0 && !reachability.mayReach(startId, endId)) {
+                  continue; // skip locations the index shows are unreachable
+              }
+          }
+          if (!startLocation.equals(endLocation) && tree.isReachable(endLocation)
+                  && (farthestLocation == null
+                          || tree.getHopCount(endLocation) > tree.getHopCount(farthestLocation))) {
+              farthestLocation = endLocation;
           }
-        }
       }
       // If location is not reachable, throw a NoSuchElementException
-      if (!reachable) {
+      if (farthestLocation == null) {
           throw new NoSuchElementException("No reachable locations from " + startLocation);
       }
-      return longestPath;
+      return tree.getPath(farthestLocation);
   }
+
 }
@@ -52,6 +52,27 @@ public interface BackendInterface {
    */
   public List<Double> findTimesOnShortestPath(String startLocation, String endLocation);
 
+  /**
+   * Return the locations along the shortest path from startLocation to
+   * endLocation, together with the walking time in seconds between each two
+   * of them and the total walking time, all found by a single search. This
+   * default combines findLocationsOnShortestPath and findTimesOnShortestPath.
+   * @param startLocation the start location of the path
+   * @param endLocation the end location of the path
+   * @return the route along the shortest path from startLocation to
+   *         endLocation, or an empty route if no such path exists
+   */
+  public default Route<String> findRouteOnShortestPath(String startLocation, String endLocation) {
+    List<String> locations = findLocationsOnShortestPath(startLocation, endLocation);
+    if (locations == null || locations.isEmpty())
+      return Route.empty();
+    List<Double> times = findTimesOnShortestPath(startLocation, endLocation);
+    double totalTime = 0;
+    for (double time : times)
+      totalTime += time;
+    return new Route<>(locations, times, totalTime);
+  }
+
   /**
    * Returns the longest list of locations along any shortest path that starts
    * from startLocation and ends at any of the reachable destinations in the 
@@ -1,8 +1,14 @@
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Assertions;
+import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.NoSuchElementException;
 
 /**
@@ -103,4 +109,368 @@ public class BackendTests {
         }, "Expected NoSuchElementException for no reachable locations.");
 
   }
+
+  /**
+   * Test 4: Tests that DotParser reads quoted ids, edge chains, attributes and
+   * comments, and that the first edge of a file is not skipped
+   *
+   * @throws IOException
+   */
+  @Test
+  public void parserTest() throws IOException {
+    String dot = "// exported campus\n"
+        + "strict digraph \"campus\" {\n"
+        + "  rankdir = LR; node [shape=box]\n"
+        + "  \"Memorial Union\" -> \"Science Hall\" [seconds=105.8];\n"
+        + "  /* a chain of two edges */ A -> \"B \\\"2\\\"\" -> C [color=red, seconds=3]\n"
+        + "# preprocessor lines are skipped\n"
+        + "  Lonely;\n"
+        + "}\n";
+    DotParser parser = new DotParser(new StringReader(dot), "seconds");
+    Assertions.assertTrue(parser.next());
+    Assertions.assertTrue(parser.isEdge());
+    Assertions.assertEquals("Memorial Union", parser.getSource());
+    Assertions.assertEquals("Science Hall", parser.getTarget());
+    Assertions.assertEquals(105.8, parser.getWeight());
+    Assertions.assertEquals(4, parser.getLineNumber());
+
+    Assertions.assertTrue(parser.next());
+    Assertions.assertEquals("A", parser.getSource());
+    Assertions.assertEquals("B \"2\"", parser.getTarget());
+    Assertions.assertTrue(parser.next());
+    Assertions.assertEquals("B \"2\"", parser.getSource());
+    Assertions.assertEquals("C", parser.getTarget());
+    Assertions.assertEquals(3.0, parser.getWeight());
+
+    Assertions.assertTrue(parser.next());
+    Assertions.assertFalse(parser.isEdge());
+    Assertions.assertEquals("Lonely", parser.getSource());
+    Assertions.assertFalse(parser.next());
+  }
+
+  /**
+   * Test 5: Tests that parse errors are reported with their line numbers, and
+   * that loadGraphData passes them on instead of loading part of a graph
+   */
+  @Test
+  public void parserErrorTest() {
+    String[] badFiles = {
+        "digraph {\n  A -> B;\n}\n",
+        "digraph {\n\n  A -> B [seconds=fast];\n}\n",
+        "digraph {\n  A -> B [seconds=1];\n",
+        "graph {\n  A -- B [seconds=1];\n}\n",
+    };
+    String[] expectedStarts = { "line 2:", "line 3:", "line 3:", "line 1:" };
+    for (int i = 0; i < badFiles.length; i++) {
+      DotParser parser = new DotParser(new StringReader(badFiles[i]), "seconds");
+      IOException e = Assertions.assertThrows(IOException.class, () -> {
+        while (parser.next())
+          ;
+      });
+      Assertions.assertTrue(e.getMessage().startsWith(expectedStarts[i]), e.getMessage());
+    }
+
+    Backend backend = new Backend(new DijkstraGraph<>());
+    Assertions.assertThrows(IOException.class, () -> backend.loadGraphData("no such file.dot"));
+  }
+
+  /**
+   * Test 6: Tests that the parallel loader builds the same graph as the
+   * streaming parser, even when the file is split into many small chunks
+   *
+   * @throws IOException
+   */
+  @Test
+  public void parallelLoadTest() throws IOException {
+    DijkstraGraph<String, Double> expected = new DijkstraGraph<>();
+    Backend backend = new Backend(expected);
+    backend.setLandmarkCount(0);
+    backend.setAllPairsMaxNodes(0);
+    backend.loadGraphData("campus.dot");
+
+    DijkstraGraph<String, Double> loaded = new DijkstraGraph<>();
+    Backend parallelBackend = new Backend(loaded);
+    parallelBackend.setLandmarkCount(0);
+    parallelBackend.setAllPairsMaxNodes(0);
+    parallelBackend.loadGraphDataParallel("campus.dot");
+    Assertions.assertEquals(expected.getNodeCount(), loaded.getNodeCount());
+    Assertions.assertEquals(expected.getEdgeCount(), loaded.getEdgeCount());
+    Assertions.assertEquals(expected.freeze().fingerprint(), loaded.freeze().fingerprint());
+
+    // chunks of 1000 bytes split the file into dozens of parallel tasks
+    CsrGraph<String> snapshot = new ParallelGraphLoader("seconds", 1000).loadSnapshot("campus.dot");
+    Assertions.assertEquals(expected.freeze().fingerprint(), snapshot.fingerprint());
+  }
+
+  /**
+   * Test 7: Tests that the parallel loader reads edge lists, and reports
+   * problems with the line number counted from the start of the whole file
+   * without changing the graph that is already loaded
+   *
+   * @throws IOException
+   */
+  @Test
+  public void parallelLoadErrorTest() throws IOException {
+    File file = File.createTempFile("edges", ".txt");
+    file.deleteOnExit();
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 200; i++)
+      text.append("n" + i + " \"n " + (i + 1) + "\" " + i + ".5\n");
+    Files.writeString(file.toPath(), text.toString());
+    CsrGraph<String> snapshot = new ParallelGraphLoader("seconds", 100).loadSnapshot(file.getPath());
+    Assertions.assertEquals(200, snapshot.getEdgeCount());
+    Assertions.assertEquals(3.5, snapshot.getEdge("n3", "n 4").doubleValue());
+
+    text.append("n200 -> n201 [seconds=slow];\n");
+    Files.writeString(file.toPath(), text.toString());
+    IOException e = Assertions.assertThrows(IOException.class,
+        () -> new ParallelGraphLoader("seconds", 100).loadSnapshot(file.getPath()));
+    Assertions.assertTrue(e.getMessage().startsWith("line 201:"), e.getMessage());
+
+    // a file that cannot be parsed leaves the loaded graph as it was
+    DijkstraGraph<String, Double> graph = new DijkstraGraph<>();
+    Backend backend = new Backend(graph);
+    backend.setLandmarkCount(0);
+    backend.setAllPairsMaxNodes(0);
+    backend.loadGraphDataParallel("campus.dot");
+    long fingerprint = graph.freeze().fingerprint();
+    Assertions.assertThrows(IOException.class, () -> backend.loadGraphDataParallel(file.getPath()));
+    Assertions.assertEquals(fingerprint, graph.freeze().fingerprint());
+  }
+
+  /**
+   * Test 8: Tests that a graph saved to a snapshot file reopens with the same
+   * locations and shortest paths, and that a damaged snapshot is rejected
+   *
+   * @throws IOException
+   */
+  @Test
+  public void snapshotTest() throws IOException {
+    Backend backend = new Backend(new DijkstraGraph<>());
+    backend.setAllPairsMaxNodes(0);
+    backend.loadGraphData("campus.dot");
+    File file = File.createTempFile("campus", ".snapshot");
+    file.deleteOnExit();
+    backend.saveGraphSnapshot(file.getPath());
+
+    Backend reopened = new Backend(new DijkstraGraph<>());
+    reopened.loadGraphSnapshot(file.getPath());
+    List<String> locations = backend.getListOfAllLocations();
+    Assertions.assertEquals(new HashSet<>(locations),
+        new HashSet<>(reopened.getListOfAllLocations()));
+    for (int i = 0; i < locations.size(); i += 7) {
+      String start = locations.get(i);
+      String end = locations.get(locations.size() - 1 - i);
+      Assertions.assertEquals(backend.findRouteOnShortestPath(start, end).getTotalCost(),
+          reopened.findRouteOnShortestPath(start, end).getTotalCost(), 1e-9);
+      Assertions.assertEquals(backend.getLongestLocationListFrom(start).size(),
+          reopened.getLongestLocationListFrom(start).size());
+    }
+
+    // saving again replaces the file that reopened has mapped, rather than
+    // rewriting it underneath that mapping
+    backend.saveGraphSnapshot(file.getPath());
+    Assertions.assertEquals(backend.findRouteOnShortestPath(locations.get(0), locations.get(1)).getTotalCost(),
+        reopened.findRouteOnShortestPath(locations.get(0), locations.get(1)).getTotalCost(), 1e-9);
+
+    // loading a dot file again swaps the snapshot back out
+    reopened.loadGraphData("campus.dot");
+    Assertions.assertTrue(reopened.getListOfAllLocations().containsAll(locations));
+
+    // a snapshot cut short is reported rather than partly loaded
+    byte[] bytes = Files.readAllBytes(file.toPath());
+    Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length / 2));
+    Assertions.assertThrows(IOException.class, () -> reopened.loadGraphSnapshot(file.getPath()));
+    Files.writeString(file.toPath(), "digraph campus {}");
+    Assertions.assertThrows(IOException.class, () -> reopened.loadGraphSnapshot(file.getPath()));
+  }
+
+  /**
+   * Test 9: Tests that loading a changed file again applies only the changes,
+   * and leaves the same graph as loading that file from scratch
+   *
+   * @throws IOException
+   */
+  @Test
+  public void diffLoadTest() throws IOException {
+    File file = File.createTempFile("campus", ".dot");
+    file.deleteOnExit();
+    new File(file.getPath() + ".landmarks").deleteOnExit();
+    String text = Files.readString(Path.of("campus.dot"));
+    Files.writeString(file.toPath(), text);
+    DijkstraGraph<String, Double> graph = new DijkstraGraph<>();
+    Backend backend = new Backend(graph);
+    backend.setAllPairsMaxNodes(0);
+    backend.setBuildIndexes(true);
+    backend.loadGraphData(file.getPath());
+    List<GraphChangeSet<String, Double>> heard = new ArrayList<>();
+    graph.addChangeListener(heard::add);
+
+    // loading the same file again changes nothing
+    long version = graph.getVersion();
+    backend.loadGraphData(file.getPath());
+    Assertions.assertTrue(heard.get(0).isEmpty());
+    Assertions.assertEquals(version, graph.getVersion());
+
+    // raising one walking time is the only change, and keeps the landmarks
+    double oldWeight = graph.getEdge("Memorial Union", "Science Hall");
+    String edited = text.replaceFirst(
+        "(\"Memorial Union\" -> \"Science Hall\" \\[seconds=)[0-9.]+", "$1999.5");
+    Files.writeString(file.toPath(), edited);
+    LandmarkIndex<String> landmarks = graph.getLandmarkIndex();
+    ReachabilityIndex<String> reachability = graph.getReachabilityIndex();
+    backend.loadGraphData(file.getPath());
+    Assertions.assertEquals(1, heard.get(1).size());
+    GraphChangeSet.EdgeChange<String, Double> change = heard.get(1).getEdgeChanges().get(0);
+    Assertions.assertEquals(oldWeight, change.oldWeight.doubleValue());
+    Assertions.assertEquals(999.5, change.newWeight.doubleValue());
+    Assertions.assertEquals(999.5, graph.getEdge("Memorial Union", "Science Hall").doubleValue());
+    Assertions.assertTrue(landmarks.costsFrom == graph.getLandmarkIndex().costsFrom);
+    Assertions.assertTrue(reachability == graph.getReachabilityIndex());
+
+    // a new location and path, with one location removed, match a fresh load
+    edited = edited.replaceAll("(?m)^.*\"Brat Stand\".*$", "")
+        .replaceFirst("}\\s*$", "  \"New Place\" -> \"Union South\" [seconds=12.5];\n}\n");
+    Files.writeString(file.toPath(), edited);
+    backend.loadGraphData(file.getPath());
+    DijkstraGraph<String, Double> fresh = new DijkstraGraph<>();
+    Backend freshBackend = new Backend(fresh);
+    freshBackend.setLandmarkCount(0);
+    freshBackend.setAllPairsMaxNodes(0);
+    freshBackend.loadGraphData(file.getPath());
+    Assertions.assertFalse(graph.containsNode("Brat Stand"));
+    Assertions.assertEquals(12.5, graph.getEdge("New Place", "Union South").doubleValue());
+    Assertions.assertEquals(fresh.getNodeCount(), graph.getNodeCount());
+    Assertions.assertEquals(fresh.getEdgeCount(), graph.getEdgeCount());
+    Assertions.assertEquals(0, GraphChangeSet.between(graph.freeze(), fresh.freeze()).size());
+    // nothing leads to the new location, which the reachability index shows
+    Assertions.assertFalse(graph.getReachabilityIndex().mayReach("Union South", "New Place"));
+    Assertions.assertTrue(backend.findLocationsOnShortestPath("Union South", "New Place").isEmpty());
+    Assertions.assertEquals(List.of("New Place", "Union South"),
+        backend.findLocationsOnShortestPath("New Place", "Union South"));
+    Assertions.assertFalse(backend.getLongestLocationListFrom("New Place").isEmpty());
+
+    // an edge listed twice keeps the weight it is given last
+    int edgeCount = graph.getEdgeCount();
+    Files.writeString(file.toPath(), edited.replaceFirst("}\\s*$",
+        "  \"New Place\" -> \"Union South\" [seconds=7];\n}\n"));
+    backend.loadGraphData(file.getPath());
+    Assertions.assertEquals(7.0, graph.getEdge("New Place", "Union South").doubleValue());
+    Assertions.assertEquals(edgeCount, graph.getEdgeCount());
+  }
+
+  /**
+   * Test 10: Tests that a matrix of walking times between campus locations
+   * matches the total time of each route, and reports unknown locations
+   *
+   * @throws IOException
+   */
+  @Test
+  public void timeMatrixTest() throws IOException {
+    Backend backend = new Backend(new DijkstraGraph<>());
+    backend.setBuildIndexes(true);
+    backend.loadGraphData("campus.dot");
+    List<String> locations = backend.getListOfAllLocations();
+    List<String> starts = locations.subList(0, 12);
+    List<String> ends = locations.subList(locations.size() - 9, locations.size());
+    double[][] times = backend.findTimeMatrix(starts, ends);
+    Assertions.assertEquals(starts.size(), times.length);
+    for (int i = 0; i < starts.size(); i++) {
+      for (int j = 0; j < ends.size(); j++) {
+        // an empty route means that there is no path
+        Route<String> route = backend.findRouteOnShortestPath(starts.get(i), ends.get(j));
+        Assertions.assertEquals(route.getNodes().isEmpty() ? Double.POSITIVE_INFINITY
+            : route.getTotalCost(), times[i][j], 1e-9);
+      }
+    }
+
+    // without an all-pairs table, each row comes from its own search
+    Backend searching = new Backend(new DijkstraGraph<>());
+    searching.setAllPairsMaxNodes(0);
+    searching.loadGraphData("campus.dot");
+    double[][] searched = searching.findTimeMatrix(starts, ends);
+    for (int i = 0; i < starts.size(); i++)
+      Assertions.assertArrayEquals(times[i], searched[i], 1e-9);
+    Assertions.assertThrows(NoSuchElementException.class,
+        () -> backend.findTimeMatrix(starts, List.of("Nowhere")));
+  }
+
+  /**
+   * Test 11: Tests that a copied backend loads a changed file without changing the original, and
+   * that the all-pairs table and landmarks it carries over find the same times as searching does
+   *
+   * @throws IOException
+   */
+  @Test
+  public void copyLoadTest() throws IOException {
+    File file = File.createTempFile("campus", ".dot");
+    file.deleteOnExit();
+    new File(file.getPath() + ".landmarks").deleteOnExit();
+    new File(file.getPath() + ".apsp").deleteOnExit();
+    String text = Files.readString(Path.of("campus.dot"));
+    Files.writeString(file.toPath(), text);
+    Backend backend = new Backend(new DijkstraGraph<>());
+    backend.setBuildIndexes(true);
+    backend.loadGraphData(file.getPath());
+    double oldTime =
+        backend.findTimesOnShortestPath("Memorial Union", "Science Hall").get(0).doubleValue();
+
+    // a lower walking time can make many paths shorter
+    Files.writeString(file.toPath(), text.replaceFirst(
+        "(\"Memorial Union\" -> \"Science Hall\" \\[seconds=)[0-9.]+", "$11.5")
+        .replaceAll("(?m)^.*\"Brat Stand\".*$", ""));
+    Backend copy = backend.copy();
+    copy.loadGraphData(file.getPath());
+    Assertions.assertEquals(List.of(1.5), copy.findTimesOnShortestPath("Memorial Union", "Science Hall"));
+    Assertions.assertEquals(oldTime,
+        backend.findTimesOnShortestPath("Memorial Union", "Science Hall").get(0).doubleValue());
+    Assertions.assertTrue(backend.getListOfAllLocations().contains("Brat Stand"));
+    Assertions.assertFalse(copy.getListOfAllLocations().contains("Brat Stand"));
+
+    Backend searching = new Backend(new DijkstraGraph<>());
+    searching.setLandmarkCount(0);
+    searching.setAllPairsMaxNodes(0);
+    searching.loadGraphData(file.getPath());
+    List<String> locations = searching.getListOfAllLocations();
+    double[][] times = copy.findTimeMatrix(locations, locations);
+    double[][] searched = searching.findTimeMatrix(locations, locations);
+    for (int i = 0; i < locations.size(); i++)
+      Assertions.assertArrayEquals(searched[i], times[i], 1e-9);
+  }
+
+  /**
+   * Test 12: Tests that only a backend that builds indexes computes and saves them, and that other
+   * backends still read the index files it saved
+   *
+   * @throws IOException
+   */
+  @Test
+  public void buildIndexesTest() throws IOException {
+    File file = File.createTempFile("campus", ".dot");
+    file.deleteOnExit();
+    File landmarkFile = new File(file.getPath() + ".landmarks");
+    File tableFile = new File(file.getPath() + ".apsp");
+    landmarkFile.deleteOnExit();
+    tableFile.deleteOnExit();
+    Files.writeString(file.toPath(), Files.readString(Path.of("campus.dot")));
+
+    DijkstraGraph<String, Double> reading = new DijkstraGraph<>();
+    new Backend(reading).loadGraphData(file.getPath());
+    Assertions.assertNull(reading.getLandmarkIndex());
+    Assertions.assertNull(reading.getAllPairsTable());
+    Assertions.assertFalse(landmarkFile.exists());
+    Assertions.assertFalse(tableFile.exists());
+
+    Backend building = new Backend(new DijkstraGraph<>());
+    building.setBuildIndexes(true);
+    building.loadGraphData(file.getPath());
+    Assertions.assertTrue(landmarkFile.exists());
+    Assertions.assertTrue(tableFile.exists());
+
+    reading = new DijkstraGraph<>();
+    new Backend(reading).loadGraphData(file.getPath());
+    Assertions.assertNotNull(reading.getLandmarkIndex());
+    Assertions.assertNotNull(reading.getAllPairsTable());
+    Assertions.assertEquals(DijkstraGraph.SearchStrategy.ALL_PAIRS, reading.getSearchStrategy());
+  }
 }
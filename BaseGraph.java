@@ -1,4 +1,5 @@
 import java.util.List;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.NoSuchElementException;
 
@@ -8,20 +9,28 @@ import java.util.NoSuchElementException;
  */
 public class BaseGraph<NodeType, EdgeType extends Number> {
 
-    // Each node contains unique data along with two lists of directed edges
+    // Each node contains unique data along with two lists of directed edges,
+    // and a small integer id that searches can use to index into arrays
     protected class Node {
         public NodeType data;
+        public int id;
         public List<Edge> edgesLeaving = new LinkedList<>();
         public List<Edge> edgesEntering = new LinkedList<>();
 
-        public Node(NodeType data) {
+        public Node(NodeType data, int id) {
             this.data = data;
+            this.id = id;
         }
     }
 
     // Nodes can be retrieved from this map by their unique data
     protected MapADT<NodeType, Node> nodes = null;
 
+    // Nodes can also be retrieved by their id, which indexes into this list.
+    // The ids of removed nodes are reused, so that ids stay close to 0.
+    protected ArrayList<Node> nodesById = new ArrayList<>();
+    protected LinkedList<Integer> freeNodeIds = new LinkedList<>();
+
     // Each edge contains data/weight, and two nodes that it connects
     protected class Edge {
         public EdgeType data; // the weight or cost of this edge
@@ -35,8 +44,48 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
         }
     }
 
+    // The ids of the two nodes an edge connects, which edges are indexed by
+    protected static class EdgeKey {
+        public final int predecessor;
+        public final int successor;
+
+        public EdgeKey(int predecessor, int successor) {
+            this.predecessor = predecessor;
+            this.successor = successor;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof EdgeKey && predecessor == ((EdgeKey) other).predecessor
+                    && successor == ((EdgeKey) other).successor;
+        }
+
+        @Override
+        public int hashCode() {
+            // mix both ids into every bit, since pairs of small ids would
+            // otherwise share only a few distinct hash codes
+            return Long.hashCode((((long) predecessor << 32) | successor) * 0x9E3779B97F4A7C15L);
+        }
+    }
+
     protected int edgeCount = 0;
-    // Edges can be retrieved through the edge lists in either connected node
+    // Edges can be retrieved through the edge lists in either connected node,
+    // or by the ids of those nodes through this index (null when turned off)
+    protected MapADT<EdgeKey, Edge> edgeIndex = new OpenAddressingMap<>();
+
+    // Incremented by every change to the graph's nodes or edges, so that data
+    // derived from the graph (like a CsrGraph snapshot) can tell it is stale
+    protected long version = 0;
+
+    // the snapshot last taken by snapshot(), and the version it matches.
+    // Searches on several threads may ask for a snapshot at once, so both are
+    // volatile, the snapshot is always written before its version, and
+    // snapshots are taken while synchronized.
+    protected volatile CsrGraph<NodeType> snapshot = null;
+    protected volatile long snapshotVersion = -1;
+
+    // told about every batch of changes applied through applyChanges()
+    protected List<GraphChangeListener<NodeType, EdgeType>> changeListeners = new ArrayList<>();
 
     /**
      * Constructor for BaseGraph that provides the map the graph uses.
@@ -59,7 +108,16 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
     public boolean insertNode(NodeType data) {
         if (nodes.containsKey(data))
             return false; // throws NPE when data's null
-        nodes.put(data, new Node(data));
+        Node newNode;
+        if (freeNodeIds.isEmpty()) {
+            newNode = new Node(data, nodesById.size());
+            nodesById.add(newNode);
+        } else {
+            newNode = new Node(data, freeNodeIds.removeLast());
+            nodesById.set(newNode.id, newNode);
+        }
+        nodes.put(data, newNode);
+        version++;
         return true;
     }
 
@@ -73,19 +131,37 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
      * @throws NullPointerException if data is null
      */
     public boolean removeNode(NodeType data) {
-        // remove this node from nodes collection
-        if (!nodes.containsKey(data))
-            return false; // throws NPE when data==null
-        Node oldNode = nodes.remove(data);
+        // remove this node from nodes collection, in a single lookup
+        Node oldNode;
+        try {
+            oldNode = nodes.remove(data); // throws NPE when data==null
+        } catch (NoSuchElementException e) {
+            return false;
+        }
+        nodesById.set(oldNode.id, null);
+        freeNodeIds.add(oldNode.id);
         // remove all edges entering neighboring nodes from this one
-        for (Edge edge : oldNode.edgesLeaving)
+        for (Edge edge : oldNode.edgesLeaving) {
             edge.successor.edgesEntering.remove(edge);
-        // remove all edges leaving neighboring nodes toward this one
-        for (Edge edge : oldNode.edgesEntering)
+            unindexEdge(edge);
+        }
+        // remove all edges leaving neighboring nodes toward this one (which no
+        // longer include any edge from this node to itself)
+        for (Edge edge : oldNode.edgesEntering) {
             edge.predecessor.edgesLeaving.remove(edge);
+            unindexEdge(edge);
+        }
+        edgeCount -= oldNode.edgesLeaving.size() + oldNode.edgesEntering.size();
+        version++;
         return true;
     }
 
+    // removes edge from the edge index, when it is turned on
+    protected void unindexEdge(Edge edge) {
+        if (edgeIndex != null)
+            edgeIndex.remove(new EdgeKey(edge.predecessor.id, edge.successor.id));
+    }
+
     /**
      * Check whether the graph contains a node with the provided data.
      * 
@@ -106,6 +182,16 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
         return nodes.getKeys();
     }
 
+    /**
+     * Returns one more than the largest node id in use, so that arrays of this
+     * length can be indexed by the id of any node in the graph.
+     *
+     * @return the exclusive upper bound on node ids
+     */
+    protected int getNodeIdBound() {
+        return nodesById.size();
+    }
+
     /**
      * Return the number of nodes in the graph
      * 
@@ -128,22 +214,25 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
      */
     public boolean insertEdge(NodeType pred, NodeType succ, EdgeType weight) {
         // find nodes associated with node data, and return false when not found
-        Node predNode = nodes.get(pred);
-        Node succNode = nodes.get(succ);
+        Node predNode = nodes.getOrNull(pred);
+        Node succNode = nodes.getOrNull(succ);
         if (predNode == null || succNode == null)
             return false;
-        try {
+        Edge existingEdge = findEdge(predNode, succNode);
+        if (existingEdge != null) {
             // when an edge alread exists within the graph, update its weight
-            Edge existingEdge = getEdgeHelper(pred, succ);
             existingEdge.data = weight;
-        } catch (NoSuchElementException e) {
+        } else {
             // otherwise create a new edges
             Edge newEdge = new Edge(weight, predNode, succNode);
             this.edgeCount++;
             // and insert it into each of its adjacent nodes' respective lists
             predNode.edgesLeaving.add(newEdge);
             succNode.edgesEntering.add(newEdge);
+            if (edgeIndex != null)
+                edgeIndex.put(new EdgeKey(predNode.id, succNode.id), newEdge);
         }
+        version++;
         return true;
     }
 
@@ -156,19 +245,18 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
      *         false if such an edge is not found in the graph
      */
     public boolean removeEdge(NodeType pred, NodeType succ) {
-        try {
-            // when an edge exists
-            Edge oldEdge = getEdgeHelper(pred, succ);
-            // remove it from the edge lists of each adjacent node
-            oldEdge.predecessor.edgesLeaving.remove(oldEdge);
-            oldEdge.successor.edgesEntering.remove(oldEdge);
-            // and decrement the edge count before removing
-            this.edgeCount--;
-            return true;
-        } catch (NoSuchElementException e) {
-            // when no such edge exists, return false instead
+        Edge oldEdge = findEdge(pred, succ);
+        // when no such edge exists, return false instead
+        if (oldEdge == null)
             return false;
-        }
+        // remove it from the edge lists of each adjacent node
+        oldEdge.predecessor.edgesLeaving.remove(oldEdge);
+        oldEdge.successor.edgesEntering.remove(oldEdge);
+        unindexEdge(oldEdge);
+        // and decrement the edge count before removing
+        this.edgeCount--;
+        version++;
+        return true;
     }
 
     /**
@@ -179,12 +267,7 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
      * @return true if the edge is found in the graph, or false other
      */
     public boolean containsEdge(NodeType pred, NodeType succ) {
-        try {
-            getEdgeHelper(pred, succ);
-            return true;
-        } catch (NoSuchElementException e) {
-            return false;
-        }
+        return findEdge(pred, succ) != null;
     }
 
     /**
@@ -200,16 +283,150 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
         return getEdgeHelper(pred, succ).data;
     }
 
+    /**
+     * Return the data associated with a specific edge, without throwing an
+     * exception when there is no such edge.
+     *
+     * @param pred the data item contained in the source node for the edge
+     * @param succ the data item contained in the target node for the edge
+     * @return the data from the edge between those nodes, or null if either
+     *         node or the edge between them are not found within this graph
+     */
+    public EdgeType tryGetEdge(NodeType pred, NodeType succ) {
+        Edge edge = findEdge(pred, succ);
+        return edge == null ? null : edge.data;
+    }
+
     protected Edge getEdgeHelper(NodeType pred, NodeType succ) {
-        Node predNode = nodes.get(pred);
+        Edge edge = findEdge(pred, succ);
+        // when no such edge can be found, throw NSE
+        if (edge == null)
+            throw new NoSuchElementException("No edge from " + pred.toString() + " to " +
+                    succ.toString());
+        return edge;
+    }
+
+    /**
+     * Finds the edge between two nodes without throwing any exceptions.
+     *
+     * @param pred the data item contained in the source node for the edge
+     * @param succ the data item contained in the target node for the edge
+     * @return the edge from pred to succ, or null if either node or the edge
+     *         between them are not found within this graph
+     */
+    protected Edge findEdge(NodeType pred, NodeType succ) {
+        Node predNode = nodes.getOrNull(pred);
+        Node succNode = nodes.getOrNull(succ);
+        if (predNode == null || succNode == null)
+            return null;
+        return findEdge(predNode, succNode);
+    }
+
+    // returns the edge from predNode to succNode, or null when there is none,
+    // through the edge index when it is turned on
+    protected Edge findEdge(Node predNode, Node succNode) {
+        if (edgeIndex != null) {
+            return edgeIndex.getOrNull(new EdgeKey(predNode.id, succNode.id));
+        }
         // search for edge through the predecessor's list of leaving edges
         for (Edge edge : predNode.edgesLeaving)
-            // compare succ to the data in each leaving edge's successor
-            if (edge.successor.data.equals(succ))
+            if (edge.successor == succNode)
                 return edge;
-        // when no such edge can be found, throw NSE
-        throw new NoSuchElementException("No edge from " + pred.toString() + " to " +
-                succ.toString());
+        return null;
+    }
+
+    /**
+     * Turns the edge index on or off. While it is on, finding the edge
+     * between two nodes takes constant time on average, rather than time
+     * proportional to the number of edges leaving the first node, at the cost
+     * of a map entry per edge. It is on for new graphs.
+     *
+     * @param enabled true to build the index, or false to drop it
+     */
+    public void setEdgeIndexEnabled(boolean enabled) {
+        if (!enabled) {
+            edgeIndex = null;
+        } else if (edgeIndex == null) {
+            edgeIndex = new OpenAddressingMap<>(Math.max(64, edgeCount * 2));
+            for (Node node : nodesById)
+                if (node != null)
+                    for (Edge edge : node.edgesLeaving)
+                        edgeIndex.put(new EdgeKey(node.id, edge.successor.id), edge);
+        }
+    }
+
+    /**
+     * @return true if the edge index is turned on
+     */
+    public boolean isEdgeIndexEnabled() {
+        return edgeIndex != null;
+    }
+
+    /**
+     * Registers a listener to be told about every batch of changes applied to
+     * this graph through applyChanges(). Changes made one at a time through
+     * the other methods only change this graph's version.
+     *
+     * @param listener the listener to add
+     */
+    public void addChangeListener(GraphChangeListener<NodeType, EdgeType> listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * @param listener a listener added by addChangeListener
+     * @return true if that listener was found and removed
+     */
+    public boolean removeChangeListener(GraphChangeListener<NodeType, EdgeType> listener) {
+        return changeListeners.remove(listener);
+    }
+
+    /**
+     * Applies a batch of changes to this graph, and then tells every change
+     * listener about them. Edges are removed before nodes, so that removing a
+     * node never has to search its neighbors' edge lists, and nodes are
+     * inserted before the edges that connect them.
+     *
+     * @param changes the nodes and edges to insert, remove and update, which
+     *                should only remove nodes and edges that are in this graph
+     *                and only insert nodes that are not
+     */
+    public void applyChanges(GraphChangeSet<NodeType, EdgeType> changes) {
+        long previousVersion = version;
+        for (GraphChangeSet.EdgeChange<NodeType, EdgeType> change : changes.getEdgeChanges())
+            if (change.isRemove())
+                removeEdge(change.predecessor, change.successor);
+        for (NodeType data : changes.getRemovedNodes())
+            removeNode(data);
+        for (NodeType data : changes.getInsertedNodes())
+            insertNode(data);
+        for (GraphChangeSet.EdgeChange<NodeType, EdgeType> change : changes.getEdgeChanges())
+            if (!change.isRemove())
+                insertEdge(change.predecessor, change.successor, change.newWeight);
+        changesApplied(changes, previousVersion);
+        for (GraphChangeListener<NodeType, EdgeType> listener : changeListeners)
+            listener.graphChanged(changes);
+    }
+
+    /**
+     * Called by applyChanges() after it changes this graph and before it tells
+     * the change listeners, so that subclasses can update the data they derive
+     * from this graph. Does nothing here.
+     *
+     * @param changes         the changes that were just applied
+     * @param previousVersion this graph's version before those changes
+     */
+    protected void changesApplied(GraphChangeSet<NodeType, EdgeType> changes, long previousVersion) {
+    }
+
+    /**
+     * Returns a number that changes whenever nodes or edges are inserted,
+     * removed, or updated within this graph.
+     *
+     * @return the current version of this graph
+     */
+    public long getVersion() {
+        return version;
     }
 
     /**
@@ -221,5 +438,63 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
         return this.edgeCount;
     }
 
+    /**
+     * Creates a read-only snapshot of this graph's current nodes and edges in
+     * compressed sparse row form. Later changes to this graph are not
+     * reflected in the snapshot.
+     *
+     * @return a CsrGraph containing the nodes and edges of this graph
+     */
+    public CsrGraph<NodeType> freeze() {
+        // number the nodes that are in use from 0, skipping unused node ids
+        List<NodeType> data = new ArrayList<>(nodes.getSize());
+        int[] csrIds = new int[getNodeIdBound()];
+        int edges = 0;
+        for (Node node : nodesById) {
+            if (node != null) {
+                csrIds[node.id] = data.size();
+                data.add(node.data);
+                edges += node.edgesLeaving.size();
+            }
+        }
+
+        // then copy each node's leaving edges into consecutive array entries
+        int[] offsets = new int[data.size() + 1];
+        int[] targets = new int[edges];
+        double[] weights = new double[edges];
+        int index = 0;
+        for (Node node : nodesById) {
+            if (node != null) {
+                for (Edge edge : node.edgesLeaving) {
+                    targets[index] = csrIds[edge.successor.id];
+                    weights[index] = edge.data.doubleValue();
+                    index++;
+                }
+                offsets[csrIds[node.id] + 1] = index;
+            }
+        }
+        return new CsrGraph<>(data, offsets, targets, weights);
+    }
+
+    /**
+     * Returns a read-only snapshot of this graph's current nodes and edges,
+     * like freeze(), but only copies this graph once per version: every call
+     * until the graph changes again returns the same snapshot. This lets the
+     * indexes built for one version of the graph all share one snapshot.
+     *
+     * @return a CsrGraph containing the nodes and edges of this graph
+     */
+    public CsrGraph<NodeType> snapshot() {
+        if (snapshotVersion != version) {
+            synchronized (this) {
+                if (snapshotVersion != version) {
+                    snapshot = freeze();
+                    snapshotVersion = version;
+                }
+            }
+        }
+        return snapshot;
+    }
+
 }
 
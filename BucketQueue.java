@@ -0,0 +1,237 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * This BucketQueue is a monotone priority queue of int ids, each ordered by
+ * an exact double key, for Dijkstra's algorithm over graphs whose edge weights
+ * all lie in a narrow range. Like Dial's algorithm, ids are kept in a circular
+ * array of buckets, each covering a range of keys as wide as the smallest
+ * edge weight, so that inserting an id or lowering its key takes constant
+ * time. Keys are not rounded into their buckets: when the cheapest bucket is
+ * reached, its ids are moved into a small IndexedMinHeap and polled from there
+ * in exact order. Since every edge leads out of the bucket it starts in
+ * (except edges of weight zero, whose ends go straight into that heap), the
+ * heap only ever holds the ids of a single bucket.
+ *
+ * The queue must be monotone: no key may be inserted that is more than
+ * maxWeight larger than the smallest key polled so far, which always holds for
+ * Dijkstra's algorithm when no edge is heavier than maxWeight.
+ */
+public class BucketQueue implements IndexedMinQueue {
+
+    // where[id] for ids that are not in this queue, or that are in the heap
+    protected static final int ABSENT = -1;
+    protected static final int IN_HEAP = -2;
+
+    protected double bucketWidth;
+    protected int[] heads; // first id in each bucket, or -1
+    protected int[] next; // the id after each id in its bucket, or -1
+    protected int[] previous; // the id before each id in its bucket, or -1
+    protected int[] where; // the bucket of each id, IN_HEAP, or ABSENT
+    protected double[] keys; // key of each id, indexed by id
+    protected IndexedMinHeap current; // the ids of the cheapest bucket
+    protected long currentBucket = 0; // the bucket whose ids are in current
+    protected int size = 0;
+
+    /**
+     * Creates a queue that can hold ids from 0 up to capacity-1.
+     *
+     * @param capacity    the exclusive upper bound on ids stored in this queue
+     * @param bucketWidth the range of keys covered by each bucket, which
+     *                    should be the smallest positive edge weight
+     * @param maxWeight   the largest edge weight, and so the furthest that a
+     *                    key may be inserted beyond the smallest key
+     * @throws IllegalArgumentException if bucketWidth is not positive, or if
+     *                                  maxWeight is negative
+     */
+    public BucketQueue(int capacity, double bucketWidth, double maxWeight) {
+        next = new int[0];
+        previous = new int[0];
+        where = new int[0];
+        keys = new double[0];
+        current = new IndexedMinHeap(0);
+        reset(capacity, bucketWidth, maxWeight);
+    }
+
+    /**
+     * @param bucketWidth the range of keys covered by each bucket
+     * @param maxWeight   the furthest that a key may be beyond the smallest
+     * @return the number of buckets that a queue with this width and range
+     *         needs, or Integer.MAX_VALUE if that is too many to count
+     */
+    public static int bucketCount(double bucketWidth, double maxWeight) {
+        double buckets = Math.ceil(maxWeight / bucketWidth) + 2;
+        return buckets < Integer.MAX_VALUE ? (int) buckets : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Empties this queue, and prepares it for ids up to capacity-1 and keys
+     * within a new range, reusing its arrays whenever they are large enough.
+     *
+     * @param capacity    the exclusive upper bound on ids stored in this queue
+     * @param bucketWidth the range of keys covered by each bucket
+     * @param maxWeight   the furthest that a key may be beyond the smallest
+     * @throws IllegalArgumentException if bucketWidth is not positive, or if
+     *                                  maxWeight is negative
+     */
+    public final void reset(int capacity, double bucketWidth, double maxWeight) {
+        if (!(bucketWidth > 0) || !(maxWeight >= 0))
+            throw new IllegalArgumentException("buckets of width " + bucketWidth
+                    + " cannot hold weights up to " + maxWeight);
+        clear();
+        int bucketCount = bucketCount(bucketWidth, maxWeight);
+        if (bucketCount == Integer.MAX_VALUE)
+            throw new IllegalArgumentException("too many buckets of width " + bucketWidth
+                    + " to hold weights up to " + maxWeight);
+        this.bucketWidth = bucketWidth;
+        if (heads == null || heads.length != bucketCount) {
+            heads = new int[bucketCount];
+            Arrays.fill(heads, -1);
+        }
+        if (capacity > where.length) {
+            int oldCapacity = where.length;
+            next = Arrays.copyOf(next, capacity);
+            previous = Arrays.copyOf(previous, capacity);
+            where = Arrays.copyOf(where, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+            Arrays.fill(where, oldCapacity, capacity, ABSENT);
+            current.ensureCapacity(capacity);
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(int id) {
+        return where[id] != ABSENT;
+    }
+
+    @Override
+    public double getKey(int id) {
+        return keys[id];
+    }
+
+    // returns the number of the bucket covering key
+    protected long bucketOf(double key) {
+        return (long) Math.floor(key / bucketWidth);
+    }
+
+    @Override
+    public void insert(int id, double key) {
+        if (contains(id))
+            throw new IllegalArgumentException("id " + id + " is already in the queue");
+        if (size == 0)
+            currentBucket = bucketOf(key); // start counting buckets from here
+        size++;
+        place(id, key);
+    }
+
+    @Override
+    public void decreaseKey(int id, double key) {
+        if (!contains(id))
+            throw new IllegalArgumentException("id " + id + " is not in the queue");
+        if (key > keys[id])
+            throw new IllegalArgumentException("key " + key + " is larger than " + keys[id]);
+        if (where[id] == IN_HEAP) {
+            keys[id] = key;
+            current.decreaseKey(id, key);
+        } else {
+            unlink(id);
+            place(id, key);
+        }
+    }
+
+    // puts id into the heap when key is within the current bucket, or at the
+    // front of the bucket that covers key otherwise
+    protected void place(int id, double key) {
+        keys[id] = key;
+        long bucket = bucketOf(key);
+        if (bucket <= currentBucket) {
+            where[id] = IN_HEAP;
+            current.insert(id, key);
+            return;
+        }
+        if (bucket - currentBucket >= heads.length) {
+            size--;
+            where[id] = ABSENT;
+            throw new IllegalArgumentException("key " + key + " is too far beyond the smallest key");
+        }
+        int slot = (int) (bucket % heads.length);
+        where[id] = slot;
+        previous[id] = -1;
+        next[id] = heads[slot];
+        if (heads[slot] >= 0)
+            previous[heads[slot]] = id;
+        heads[slot] = id;
+    }
+
+    // removes id from the bucket that it is in
+    protected void unlink(int id) {
+        if (previous[id] >= 0)
+            next[previous[id]] = next[id];
+        else
+            heads[where[id]] = next[id];
+        if (next[id] >= 0)
+            previous[next[id]] = previous[id];
+    }
+
+    // moves the ids of the next non-empty bucket into the heap, when the heap
+    // is empty and the queue is not
+    protected void advance() {
+        if (size == 0)
+            throw new NoSuchElementException("queue is empty");
+        while (current.isEmpty()) {
+            currentBucket++;
+            int slot = (int) (currentBucket % heads.length);
+            for (int id = heads[slot]; id >= 0; id = next[id]) {
+                where[id] = IN_HEAP;
+                current.insert(id, keys[id]);
+            }
+            heads[slot] = -1;
+        }
+    }
+
+    @Override
+    public int peek() {
+        advance();
+        return current.peek();
+    }
+
+    @Override
+    public double peekKey() {
+        return keys[peek()];
+    }
+
+    @Override
+    public int poll() {
+        advance();
+        int id = current.poll();
+        where[id] = ABSENT;
+        size--;
+        return id;
+    }
+
+    @Override
+    public final void clear() {
+        while (!current.isEmpty())
+            where[current.poll()] = ABSENT;
+        if (heads != null) {
+            for (int slot = 0; slot < heads.length && size > 0; slot++) {
+                for (int id = heads[slot]; id >= 0; id = next[id]) {
+                    where[id] = ABSENT;
+                    size--;
+                }
+                heads[slot] = -1;
+            }
+        }
+        size = 0;
+    }
+}
@@ -0,0 +1,70 @@
+import java.util.NoSuchElementException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests the BucketQueue class.
+ */
+public class BucketQueueTests {
+
+    /**
+     * tests that ids are polled in order of their exact keys, including ids
+     * that share a bucket and ids whose keys were lowered
+     */
+    @Test
+    public void pollOrderTest() {
+        BucketQueue test = new BucketQueue(8, 10, 30);
+        test.insert(0, 0);
+        test.insert(7, 5);
+        Assertions.assertEquals(0, test.poll());
+        test.insert(1, 25);
+        test.insert(2, 21);
+        test.insert(3, 30);
+        test.insert(4, 12);
+        test.insert(5, 10);
+        test.decreaseKey(3, 11);
+        test.decreaseKey(1, 20.5);
+        Assertions.assertEquals(7, test.peek());
+        Assertions.assertEquals(5.0, test.peekKey());
+        Assertions.assertEquals(7, test.poll());
+        int[] expected = { 5, 3, 4 };
+        for (int id : expected)
+            Assertions.assertEquals(id, test.poll());
+        // an edge of weight zero leads into the bucket being polled
+        test.insert(6, 19);
+        test.decreaseKey(2, 20.25);
+        int[] rest = { 6, 2, 1 };
+        for (int id : rest)
+            Assertions.assertEquals(id, test.poll());
+        Assertions.assertTrue(test.isEmpty());
+        Assertions.assertThrows(NoSuchElementException.class, () -> test.poll());
+    }
+
+    /**
+     * tests that keys too far beyond the smallest are rejected, and that
+     * clear() and reset() empty the queue
+     */
+    @Test
+    public void rangeTest() {
+        BucketQueue test = new BucketQueue(4, 1, 3);
+        test.insert(0, 100);
+        test.insert(1, 103);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> test.insert(2, 110));
+        Assertions.assertFalse(test.contains(2));
+        Assertions.assertEquals(2, test.size());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> test.insert(1, 101));
+        test.clear();
+        Assertions.assertTrue(test.isEmpty());
+        Assertions.assertFalse(test.contains(0));
+        Assertions.assertFalse(test.contains(1));
+
+        test.insert(3, 5);
+        test.reset(10, 2, 100);
+        Assertions.assertFalse(test.contains(3));
+        test.insert(9, 0);
+        test.insert(8, 99);
+        Assertions.assertEquals(9, test.poll());
+        Assertions.assertEquals(8, test.poll());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new BucketQueue(4, 0, 3));
+    }
+}
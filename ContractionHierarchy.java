@@ -0,0 +1,501 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * This ContractionHierarchy answers shortest path queries over a CsrGraph that
+ * does not change. While it is built, nodes are contracted one at a time in
+ * order of importance: contracting node v removes it from the remaining
+ * graph, and for each pair of neighbors u and w where the path u -> v -> w
+ * might be the only shortest path between them, a shortcut edge from u to w
+ * is added. Each node's rank is the position it was contracted in.
+ *
+ * Any shortest path can then be found using only edges that lead to higher
+ * ranked nodes, followed by edges that lead to lower ranked nodes. So a query
+ * runs an upward search from the start and an upward search backward from the
+ * end, which each only reach a small part of the graph. The shortcuts along
+ * the path they meet on are then unpacked back into the graph's own edges.
+ *
+ * To build the hierarchy for a dot file and save it next to that file, run:
+ *     java ContractionHierarchy campus.dot
+ * Backend.loadGraphData will then use the saved hierarchy for that file.
+ */
+public class ContractionHierarchy<NodeType> {
+
+    // identifies files written by save(), followed by the format version
+    protected static final int FILE_MAGIC = 0x50464348; // "PFCH"
+    protected static final int FILE_VERSION = 1;
+
+    // witness searches give up after settling this many nodes, and a
+    // shortcut is added whenever a witness search gives up
+    protected static final int WITNESS_SETTLE_LIMIT = 500;
+
+    protected CsrGraph<NodeType> graph;
+    protected int[] rank; // position in which each node was contracted
+
+    // Every edge of the hierarchy. The graph's own edges come first, with the
+    // same index as in the graph's leaving edge arrays, followed by shortcuts.
+    // A shortcut replaces the two edges firstChild and secondChild, which are
+    // -1 for the graph's own edges.
+    protected int edgeCount = 0;
+    protected int[] edgeSources = new int[16];
+    protected int[] edgeTargets = new int[16];
+    protected double[] edgeWeights = new double[16];
+    protected int[] firstChild = new int[16];
+    protected int[] secondChild = new int[16];
+
+    // ids of the edges leaving each node toward higher ranked nodes
+    protected int[] upOffsets;
+    protected int[] upEdges;
+    // ids of the edges entering each node from higher ranked nodes
+    protected int[] downOffsets;
+    protected int[] downEdges;
+
+    // state used while contracting nodes
+    protected IntList[] leaving;
+    protected IntList[] entering;
+    protected boolean[] contracted;
+    protected double[] witnessCosts;
+    protected int[] witnessStamps;
+    protected int witnessStamp = 0;
+    protected IndexedMinHeap witnessQueue;
+
+    /**
+     * Builds the hierarchy for a graph, by contracting all of its nodes.
+     *
+     * @param graph the graph to build the hierarchy for
+     */
+    public ContractionHierarchy(CsrGraph<NodeType> graph) {
+        this.graph = graph;
+        int nodeCount = graph.getNodeCount();
+        leaving = new IntList[nodeCount];
+        entering = new IntList[nodeCount];
+        for (int v = 0; v < nodeCount; v++) {
+            leaving[v] = new IntList();
+            entering[v] = new IntList();
+        }
+        for (int u = 0; u < nodeCount; u++)
+            for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++)
+                addEdge(u, graph.targets[e], graph.weights[e], -1, -1);
+
+        contracted = new boolean[nodeCount];
+        witnessCosts = new double[nodeCount];
+        witnessStamps = new int[nodeCount];
+        witnessQueue = new IndexedMinHeap(nodeCount);
+        rank = new int[nodeCount];
+        contractAll();
+        buildSearchGraph();
+
+        // the contraction state is no longer needed once queries can run
+        leaving = null;
+        entering = null;
+        contracted = null;
+        witnessCosts = null;
+        witnessStamps = null;
+        witnessQueue = null;
+    }
+
+    // creates a hierarchy from ranks and edges that have already been computed
+    protected ContractionHierarchy(CsrGraph<NodeType> graph, int[] rank) {
+        this.graph = graph;
+        this.rank = rank;
+    }
+
+    /**
+     * @return the graph that this hierarchy was built for
+     */
+    public CsrGraph<NodeType> getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return the number of shortcut edges added to the graph's own edges
+     */
+    public int getShortcutCount() {
+        return edgeCount - graph.getEdgeCount();
+    }
+
+    // adds an edge to the hierarchy, along with the nodes' edge lists
+    private void addEdge(int source, int target, double weight, int first, int second) {
+        if (edgeCount == edgeSources.length) {
+            int capacity = edgeCount * 2;
+            edgeSources = Arrays.copyOf(edgeSources, capacity);
+            edgeTargets = Arrays.copyOf(edgeTargets, capacity);
+            edgeWeights = Arrays.copyOf(edgeWeights, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            secondChild = Arrays.copyOf(secondChild, capacity);
+        }
+        edgeSources[edgeCount] = source;
+        edgeTargets[edgeCount] = target;
+        edgeWeights[edgeCount] = weight;
+        firstChild[edgeCount] = first;
+        secondChild[edgeCount] = second;
+        if (leaving != null) {
+            leaving[source].add(edgeCount);
+            entering[target].add(edgeCount);
+        }
+        edgeCount++;
+    }
+
+    // contracts every node, always choosing the one with the lowest priority
+    private void contractAll() {
+        int nodeCount = graph.getNodeCount();
+        int[] contractedNeighbors = new int[nodeCount];
+        IndexedMinHeap queue = new IndexedMinHeap(nodeCount);
+        for (int v = 0; v < nodeCount; v++)
+            queue.insert(v, contract(v, false) - degree(v));
+
+        int nextRank = 0;
+        while (!queue.isEmpty()) {
+            // priorities go stale as neighbors are contracted, so recompute the
+            // polled node's priority and put it back if it is no longer lowest
+            int v = queue.poll();
+            double priority = contract(v, false) - degree(v) + contractedNeighbors[v];
+            if (!queue.isEmpty() && priority > queue.peekKey()) {
+                queue.insert(v, priority);
+                continue;
+            }
+
+            contract(v, true);
+            contracted[v] = true;
+            rank[v] = nextRank++;
+            for (int i = 0; i < leaving[v].size; i++)
+                contractedNeighbors[edgeTargets[leaving[v].items[i]]]++;
+            for (int i = 0; i < entering[v].size; i++)
+                contractedNeighbors[edgeSources[entering[v].items[i]]]++;
+        }
+    }
+
+    // returns the number of edges between v and nodes that are not contracted
+    private int degree(int v) {
+        int degree = 0;
+        for (int i = 0; i < leaving[v].size; i++)
+            if (!contracted[edgeTargets[leaving[v].items[i]]])
+                degree++;
+        for (int i = 0; i < entering[v].size; i++)
+            if (!contracted[edgeSources[entering[v].items[i]]])
+                degree++;
+        return degree;
+    }
+
+    /**
+     * Finds the shortcuts needed to contract v: for each pair of edges u -> v
+     * and v -> w between nodes that are not contracted, a shortcut is needed
+     * unless a witness search from u finds another path to w that is no more
+     * expensive than the path through v.
+     *
+     * @param v   the node to contract
+     * @param add true to add the shortcuts, or false to only count them
+     * @return the number of shortcuts needed
+     */
+    private int contract(int v, boolean add) {
+        int shortcuts = 0;
+        double maxLeaving = 0;
+        for (int i = 0; i < leaving[v].size; i++) {
+            int edge = leaving[v].items[i];
+            if (!contracted[edgeTargets[edge]])
+                maxLeaving = Math.max(maxLeaving, edgeWeights[edge]);
+        }
+
+        // shortcuts never enter or leave v, so v's edge lists stay unchanged
+        for (int i = 0; i < entering[v].size; i++) {
+            int in = entering[v].items[i];
+            int u = edgeSources[in];
+            if (contracted[u])
+                continue;
+            witnessSearch(u, v, edgeWeights[in] + maxLeaving);
+            for (int j = 0; j < leaving[v].size; j++) {
+                int out = leaving[v].items[j];
+                int w = edgeTargets[out];
+                if (contracted[w] || w == u)
+                    continue;
+                double cost = edgeWeights[in] + edgeWeights[out];
+                if (witnessStamps[w] == witnessStamp && witnessCosts[w] <= cost)
+                    continue; // another path is no more expensive
+                shortcuts++;
+                if (add)
+                    addEdge(u, w, cost, in, out);
+            }
+        }
+        return shortcuts;
+    }
+
+    // runs Dijkstra's from source among nodes that are not contracted, without
+    // passing through skipped, until costs exceed maxCost or too many nodes
+    // are settled. Costs found are only valid where stamped with witnessStamp.
+    private void witnessSearch(int source, int skipped, double maxCost) {
+        witnessStamp++;
+        witnessQueue.clear();
+        witnessQueue.insert(source, 0);
+        witnessCosts[source] = 0;
+        witnessStamps[source] = witnessStamp;
+        int settled = 0;
+        while (!witnessQueue.isEmpty() && settled < WITNESS_SETTLE_LIMIT) {
+            double cost = witnessQueue.peekKey();
+            if (cost > maxCost)
+                break;
+            int u = witnessQueue.poll();
+            settled++;
+            for (int i = 0; i < leaving[u].size; i++) {
+                int edge = leaving[u].items[i];
+                int w = edgeTargets[edge];
+                if (contracted[w] || w == skipped)
+                    continue;
+                double newCost = cost + edgeWeights[edge];
+                if (witnessStamps[w] != witnessStamp) {
+                    witnessStamps[w] = witnessStamp;
+                    witnessCosts[w] = newCost;
+                    witnessQueue.insert(w, newCost);
+                } else if (newCost < witnessCosts[w] && witnessQueue.contains(w)) {
+                    witnessCosts[w] = newCost;
+                    witnessQueue.decreaseKey(w, newCost);
+                }
+            }
+        }
+    }
+
+    // sorts every edge into the upward and downward edge arrays
+    private void buildSearchGraph() {
+        int nodeCount = graph.getNodeCount();
+        upOffsets = new int[nodeCount + 1];
+        downOffsets = new int[nodeCount + 1];
+        for (int e = 0; e < edgeCount; e++) {
+            if (rank[edgeSources[e]] < rank[edgeTargets[e]])
+                upOffsets[edgeSources[e] + 1]++;
+            else
+                downOffsets[edgeTargets[e] + 1]++;
+        }
+        for (int v = 0; v < nodeCount; v++) {
+            upOffsets[v + 1] += upOffsets[v];
+            downOffsets[v + 1] += downOffsets[v];
+        }
+        upEdges = new int[upOffsets[nodeCount]];
+        downEdges = new int[downOffsets[nodeCount]];
+        int[] nextUp = upOffsets.clone();
+        int[] nextDown = downOffsets.clone();
+        for (int e = 0; e < edgeCount; e++) {
+            if (rank[edgeSources[e]] < rank[edgeTargets[e]])
+                upEdges[nextUp[edgeSources[e]]++] = e;
+            else
+                downEdges[nextDown[edgeTargets[e]]++] = e;
+        }
+    }
+
+    /**
+     * Finds the shortest path from start to end, as the list of the graph's own
+     * edges along that path. Both searches run in pooled SearchWorkspaces, so
+     * a query allocates nothing in proportion to the graph's size.
+     *
+     * @param start id of the node the path starts from
+     * @param end   id of the node the path ends at
+     * @return the index of each edge along the path (within the graph's
+     *         leaving edge arrays) in order, or null if there is no path
+     */
+    public int[] shortestPathEdges(int start, int end) {
+        if (start == end)
+            return new int[0];
+        SearchWorkspace forwardSearch = SearchWorkspace.acquire();
+        SearchWorkspace backwardSearch = SearchWorkspace.acquire();
+        try {
+            return shortestPathEdges(start, end, forwardSearch, backwardSearch);
+        } finally {
+            forwardSearch.release();
+            backwardSearch.release();
+        }
+    }
+
+    /**
+     * Runs the upward searches of shortestPathEdges from start and from end.
+     * In place of the node each node was reached from, each workspace records
+     * the hierarchy edge that node was reached through.
+     *
+     * @param start          id of the node the path starts from
+     * @param end            id of the node the path ends at
+     * @param forwardSearch  the workspace to search upward from start in
+     * @param backwardSearch the workspace to search upward from end in, along
+     *                       entering edges
+     * @return the index of each graph edge along the path in order, or null if
+     *         there is no path
+     */
+    protected int[] shortestPathEdges(int start, int end, SearchWorkspace forwardSearch,
+            SearchWorkspace backwardSearch) {
+        int nodeCount = graph.getNodeCount();
+        IndexedMinHeap forward = forwardSearch.start(nodeCount);
+        IndexedMinHeap backward = backwardSearch.start(nodeCount);
+        forwardSearch.reach(start, 0, -1);
+        forward.insert(start, 0);
+        backwardSearch.reach(end, 0, -1);
+        backward.insert(end, 0);
+
+        double bestCost = Double.POSITIVE_INFINITY;
+        int meetingNode = -1;
+        while (true) {
+            // each search stops once its cheapest node costs at least bestCost
+            boolean forwardOpen = !forward.isEmpty() && forward.peekKey() < bestCost;
+            boolean backwardOpen = !backward.isEmpty() && backward.peekKey() < bestCost;
+            if (!forwardOpen && !backwardOpen)
+                break;
+
+            if (forwardOpen && (!backwardOpen || forward.peekKey() <= backward.peekKey())) {
+                int u = forward.poll();
+                double cost = forwardSearch.getCost(u);
+                if (cost + backwardSearch.getCost(u) < bestCost) {
+                    bestCost = cost + backwardSearch.getCost(u);
+                    meetingNode = u;
+                }
+                for (int i = upOffsets[u]; i < upOffsets[u + 1]; i++)
+                    relax(forward, forwardSearch, upEdges[i], edgeTargets[upEdges[i]], cost);
+            } else {
+                int u = backward.poll();
+                double cost = backwardSearch.getCost(u);
+                if (forwardSearch.getCost(u) + cost < bestCost) {
+                    bestCost = forwardSearch.getCost(u) + cost;
+                    meetingNode = u;
+                }
+                for (int i = downOffsets[u]; i < downOffsets[u + 1]; i++)
+                    relax(backward, backwardSearch, downEdges[i], edgeSources[downEdges[i]], cost);
+            }
+        }
+        if (meetingNode < 0)
+            return null;
+
+        // collect the hierarchy edges from start to the meeting node to end
+        IntList path = new IntList();
+        for (int v = meetingNode; forwardSearch.getPredecessor(v) >= 0;
+                v = edgeSources[forwardSearch.getPredecessor(v)])
+            path.add(forwardSearch.getPredecessor(v));
+        for (int i = 0, j = path.size - 1; i < j; i++, j--) {
+            int swap = path.items[i];
+            path.items[i] = path.items[j];
+            path.items[j] = swap;
+        }
+        for (int v = meetingNode; backwardSearch.getPredecessor(v) >= 0;
+                v = edgeTargets[backwardSearch.getPredecessor(v)])
+            path.add(backwardSearch.getPredecessor(v));
+
+        // then replace each shortcut with the graph edges that it stands for
+        IntList unpacked = new IntList();
+        IntList stack = new IntList();
+        for (int i = path.size - 1; i >= 0; i--)
+            stack.add(path.items[i]);
+        while (stack.size > 0) {
+            int edge = stack.items[--stack.size];
+            if (firstChild[edge] < 0) {
+                unpacked.add(edge);
+            } else {
+                stack.add(secondChild[edge]);
+                stack.add(firstChild[edge]);
+            }
+        }
+        return Arrays.copyOf(unpacked.items, unpacked.size);
+    }
+
+    // lowers the cost of reaching node through edge within one search,
+    // recording edge in place of the node it was reached from
+    protected void relax(IndexedMinHeap queue, SearchWorkspace search, int edge, int node, double cost) {
+        double newCost = cost + edgeWeights[edge];
+        if (newCost >= search.getCost(node))
+            return;
+        if (queue.contains(node))
+            queue.decreaseKey(node, newCost);
+        else
+            queue.insert(node, newCost);
+        search.reach(node, newCost, edge);
+    }
+
+    /**
+     * Writes this hierarchy's ranks and edges to a file, along with a
+     * fingerprint of the graph so that load() can tell if the file is stale.
+     * The hierarchy is written to a temporary file in the same directory,
+     * which then atomically replaces filename, so that a process loading the
+     * hierarchy never reads a partly written one.
+     *
+     * @param filename the path of the file to write
+     * @throws IOException if there was any problem writing this file
+     */
+    public void save(String filename) throws IOException {
+        Path target = Path.of(filename).toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName() + ".", ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(FILE_VERSION);
+                out.writeLong(graph.fingerprint());
+                out.writeInt(graph.getNodeCount());
+                for (int r : rank)
+                    out.writeInt(r);
+                out.writeInt(edgeCount);
+                for (int e = 0; e < edgeCount; e++) {
+                    out.writeInt(edgeSources[e]);
+                    out.writeInt(edgeTargets[e]);
+                    out.writeDouble(edgeWeights[e]);
+                    out.writeInt(firstChild[e]);
+                    out.writeInt(secondChild[e]);
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp); // only left behind when writing failed
+        }
+    }
+
+    /**
+     * Reads a hierarchy written by save(), if it was built for a graph with
+     * exactly the same contents as the provided graph.
+     *
+     * @param filename the path of the file to read
+     * @param graph    the graph that the hierarchy should belong to
+     * @return the hierarchy from that file, or null if the file was written for
+     *         a different graph or by an unknown version of this class
+     * @throws IOException if there was any problem reading this file
+     */
+    public static <NodeType> ContractionHierarchy<NodeType> load(String filename,
+            CsrGraph<NodeType> graph) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(filename)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION
+                    || in.readLong() != graph.fingerprint() || in.readInt() != graph.getNodeCount())
+                return null;
+            int[] rank = new int[graph.getNodeCount()];
+            for (int v = 0; v < rank.length; v++)
+                rank[v] = in.readInt();
+            ContractionHierarchy<NodeType> hierarchy = new ContractionHierarchy<>(graph, rank);
+            int edgeCount = in.readInt();
+            for (int e = 0; e < edgeCount; e++)
+                hierarchy.addEdge(in.readInt(), in.readInt(), in.readDouble(), in.readInt(), in.readInt());
+            hierarchy.buildSearchGraph();
+            return hierarchy;
+        }
+    }
+
+    /**
+     * Builds the hierarchy for the dot file passed as the only argument, and
+     * saves it next to that file with the extra extension .ch
+     *
+     * @param args the path of the dot file
+     * @throws IOException if there was any problem reading or writing files
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1)
+            throw new IllegalArgumentException("Usage: java ContractionHierarchy file.dot");
+        DijkstraGraph<String, Double> graph = new DijkstraGraph<>();
+        Backend backend = new Backend(graph);
+        backend.setLandmarkCount(0);
+        backend.loadGraphData(args[0]);
+
+        long startTime = System.nanoTime();
+        ContractionHierarchy<String> hierarchy = new ContractionHierarchy<>(graph.freeze());
+        hierarchy.save(args[0] + ".ch");
+        System.out.printf("Contracted %d nodes with %d shortcuts in %.1f ms, saved to %s%n",
+                graph.getNodeCount(), hierarchy.getShortcutCount(),
+                (System.nanoTime() - startTime) / 1e6, args[0] + ".ch");
+    }
+}
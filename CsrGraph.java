@@ -0,0 +1,683 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.IntStream;
+
+/**
+ * This CsrGraph is a read-only snapshot of a graph, stored in compressed
+ * sparse row (CSR) form. Each node is numbered by an int id from 0 to
+ * getNodeCount()-1, and the edges leaving node u are stored at indexes
+ * offsets[u] up to (but not including) offsets[u+1] of the targets and
+ * weights arrays. The edges entering each node are stored the same way in the
+ * reverse arrays. Rather than a Node object and two LinkedLists per node, and
+ * an Edge object and a boxed weight per edge, the whole graph takes only a
+ * handful of arrays, and scanning a node's edges reads consecutive memory.
+ */
+public class CsrGraph<NodeType> implements GraphADT<NodeType, Double> {
+
+    // data of each node indexed by id, and the id of each node's data
+    protected List<NodeType> nodeData;
+    protected MapADT<NodeType, Integer> ids;
+
+    // edges leaving each node, ordered by the id of the node they leave
+    protected int[] offsets;
+    protected int[] targets;
+    protected double[] weights;
+
+    // edges entering each node, ordered by the id of the node they enter
+    protected int[] reverseOffsets;
+    protected int[] sources;
+    protected double[] reverseWeights;
+
+    // when set, searches between two nodes are directed by these landmarks
+    protected LandmarkIndex<NodeType> landmarks = null;
+
+    /**
+     * Creates a snapshot from the leaving edges of each node in CSR form, and
+     * builds the matching entering edges from them.
+     *
+     * @param nodeData the data of each node, indexed by id
+     * @param offsets  where each node's leaving edges start, with one extra
+     *                 entry at the end holding the number of edges
+     * @param targets  the id of the node that each edge enters
+     * @param weights  the weight of each edge
+     */
+    public CsrGraph(List<NodeType> nodeData, int[] offsets, int[] targets, double[] weights) {
+        if (offsets.length != nodeData.size() + 1 || targets.length != weights.length
+                || offsets[nodeData.size()] != targets.length)
+            throw new IllegalArgumentException("CSR arrays do not match the number of nodes and edges");
+        this.nodeData = new ArrayList<>(nodeData);
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.ids = new OpenAddressingMap<>(nodeData.size() * 2);
+        for (int id = 0; id < nodeData.size(); id++)
+            ids.put(nodeData.get(id), id);
+        buildReverse();
+    }
+
+    /**
+     * Creates a snapshot from both its leaving and entering edges in CSR form,
+     * such as those read back from a file, without rebuilding either.
+     *
+     * @param nodeData       the data of each node, indexed by id
+     * @param offsets        where each node's leaving edges start, with one
+     *                       extra entry at the end holding the number of edges
+     * @param targets        the id of the node that each leaving edge enters
+     * @param weights        the weight of each leaving edge
+     * @param reverseOffsets where each node's entering edges start, in the same
+     *                       form as offsets
+     * @param sources        the id of the node that each entering edge leaves
+     * @param reverseWeights the weight of each entering edge
+     */
+    public CsrGraph(List<NodeType> nodeData, int[] offsets, int[] targets, double[] weights,
+            int[] reverseOffsets, int[] sources, double[] reverseWeights) {
+        if (offsets.length != nodeData.size() + 1 || targets.length != weights.length
+                || offsets[nodeData.size()] != targets.length
+                || reverseOffsets.length != offsets.length || sources.length != targets.length
+                || reverseWeights.length != targets.length
+                || reverseOffsets[nodeData.size()] != targets.length)
+            throw new IllegalArgumentException("CSR arrays do not match the number of nodes and edges");
+        this.nodeData = new ArrayList<>(nodeData);
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.reverseOffsets = reverseOffsets;
+        this.sources = sources;
+        this.reverseWeights = reverseWeights;
+        this.ids = new OpenAddressingMap<>(nodeData.size() * 2);
+        for (int id = 0; id < nodeData.size(); id++)
+            ids.put(nodeData.get(id), id);
+    }
+
+    /**
+     * Creates a snapshot from a list of edges in any order.
+     *
+     * @param nodeData    the data of each node, indexed by id
+     * @param edgeSources the id of the node that each edge leaves
+     * @param edgeTargets the id of the node that each edge enters
+     * @param edgeWeights the weight of each edge
+     * @param edgeCount   the number of edges stored in the arrays above
+     * @return the snapshot containing these nodes and edges
+     */
+    public static <NodeType> CsrGraph<NodeType> fromEdgeList(List<NodeType> nodeData,
+            int[] edgeSources, int[] edgeTargets, double[] edgeWeights, int edgeCount) {
+        // count the edges leaving each node, and turn those counts into offsets
+        int[] offsets = new int[nodeData.size() + 1];
+        for (int e = 0; e < edgeCount; e++)
+            offsets[edgeSources[e] + 1]++;
+        for (int id = 0; id < nodeData.size(); id++)
+            offsets[id + 1] += offsets[id];
+
+        // then place each edge into the next free index for its source node
+        int[] next = offsets.clone();
+        int[] targets = new int[edgeCount];
+        double[] weights = new double[edgeCount];
+        for (int e = 0; e < edgeCount; e++) {
+            int index = next[edgeSources[e]]++;
+            targets[index] = edgeTargets[e];
+            weights[index] = edgeWeights[e];
+        }
+        return new CsrGraph<>(nodeData, offsets, targets, weights);
+    }
+
+    /**
+     * Returns a copy of this snapshot where each node has at most one edge to
+     * any other node, keeping the weight of the last of its edges to that
+     * node, like inserting the same edge again into a graph updates its
+     * weight. Edges keep the order they were given to fromEdgeList in.
+     *
+     * @return a snapshot without duplicate edges, which is this snapshot
+     *         itself when it has none
+     */
+    public CsrGraph<NodeType> withoutDuplicateEdges() {
+        // keptAt[v] is where the edge from u to v was kept, while seenFrom[v]
+        // is u; the initial -1 matches no node
+        int[] seenFrom = new int[getNodeCount()];
+        int[] keptAt = new int[getNodeCount()];
+        Arrays.fill(seenFrom, -1);
+        int[] newOffsets = new int[offsets.length];
+        int[] newTargets = new int[targets.length];
+        double[] newWeights = new double[weights.length];
+        int count = 0;
+        for (int u = 0; u < getNodeCount(); u++) {
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int v = targets[e];
+                if (seenFrom[v] == u) {
+                    newWeights[keptAt[v]] = weights[e];
+                    continue;
+                }
+                seenFrom[v] = u;
+                keptAt[v] = count;
+                newTargets[count] = v;
+                newWeights[count] = weights[e];
+                count++;
+            }
+            newOffsets[u + 1] = count;
+        }
+        if (count == targets.length)
+            return this;
+        return new CsrGraph<>(nodeData, newOffsets, Arrays.copyOf(newTargets, count),
+                Arrays.copyOf(newWeights, count));
+    }
+
+    // builds the entering edge arrays from the leaving edge arrays
+    private void buildReverse() {
+        int nodeCount = nodeData.size();
+        reverseOffsets = new int[nodeCount + 1];
+        for (int target : targets)
+            reverseOffsets[target + 1]++;
+        for (int id = 0; id < nodeCount; id++)
+            reverseOffsets[id + 1] += reverseOffsets[id];
+
+        int[] next = reverseOffsets.clone();
+        sources = new int[targets.length];
+        reverseWeights = new double[targets.length];
+        for (int u = 0; u < nodeCount; u++) {
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int index = next[targets[e]]++;
+                sources[index] = u;
+                reverseWeights[index] = weights[e];
+            }
+        }
+    }
+
+    /**
+     * Computes a hash of this graph's node data, edges and weights, which data
+     * derived from this graph can store to check that it was built from a
+     * graph with the same contents.
+     *
+     * @return a hash of this graph's contents
+     */
+    public long fingerprint() {
+        long hash = 1125899906842597L;
+        for (NodeType data : nodeData)
+            hash = 31 * hash + data.hashCode();
+        for (int offset : offsets)
+            hash = 31 * hash + offset;
+        for (int e = 0; e < targets.length; e++)
+            hash = 31 * (31 * hash + targets[e]) + Double.doubleToLongBits(weights[e]);
+        return hash;
+    }
+
+    /**
+     * Directs later searches between two nodes with landmarks, which must have
+     * been computed for a graph with exactly the same contents as this one.
+     *
+     * @param landmarks the landmarks to search with, or null to search with
+     *                  plain Dijkstra's algorithm
+     * @throws IllegalArgumentException if the landmarks were computed for a
+     *                                  graph with different contents
+     */
+    public void setLandmarkIndex(LandmarkIndex<NodeType> landmarks) {
+        if (landmarks != null && landmarks.getGraph() != this
+                && landmarks.getGraph().fingerprint() != fingerprint())
+            throw new IllegalArgumentException("landmarks were computed for a different graph");
+        this.landmarks = landmarks;
+    }
+
+    /**
+     * @return the landmarks that searches are directed by, or null if there
+     *         are none
+     */
+    public LandmarkIndex<NodeType> getLandmarkIndex() {
+        return landmarks;
+    }
+
+    /**
+     * @param data the data of a node in this graph
+     * @return the id of that node, or -1 if no node holds this data
+     */
+    public int getId(NodeType data) {
+        Integer id = ids.getOrNull(data);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @param id the id of a node in this graph
+     * @return the data stored in that node
+     */
+    public NodeType getData(int id) {
+        return nodeData.get(id);
+    }
+
+    /**
+     * @param edge the index of an edge within the leaving edge arrays
+     * @return the id of the node that this edge leaves
+     */
+    public int getEdgeSource(int edge) {
+        // find the last node whose leaving edges start at or before edge
+        int low = 0;
+        int high = getNodeCount() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (offsets[middle] <= edge)
+                low = middle;
+            else
+                high = middle - 1;
+        }
+        return low;
+    }
+
+    /**
+     * Unsupported, since a CsrGraph cannot be modified.
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean insertNode(NodeType data) {
+        throw new UnsupportedOperationException("CsrGraph is a read-only snapshot");
+    }
+
+    /**
+     * Unsupported, since a CsrGraph cannot be modified.
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean removeNode(NodeType data) {
+        throw new UnsupportedOperationException("CsrGraph is a read-only snapshot");
+    }
+
+    @Override
+    public boolean containsNode(NodeType data) {
+        return ids.containsKey(data);
+    }
+
+    @Override
+    public List<NodeType> getAllNodes() {
+        return Collections.unmodifiableList(nodeData);
+    }
+
+    @Override
+    public int getNodeCount() {
+        return nodeData.size();
+    }
+
+    /**
+     * Unsupported, since a CsrGraph cannot be modified.
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean insertEdge(NodeType pred, NodeType succ, Double weight) {
+        throw new UnsupportedOperationException("CsrGraph is a read-only snapshot");
+    }
+
+    /**
+     * Unsupported, since a CsrGraph cannot be modified.
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean removeEdge(NodeType pred, NodeType succ) {
+        throw new UnsupportedOperationException("CsrGraph is a read-only snapshot");
+    }
+
+    // returns the index of the edge from pred to succ, or -1 when there is none
+    protected int findEdge(NodeType pred, NodeType succ) {
+        int u = getId(pred);
+        int v = getId(succ);
+        if (u < 0 || v < 0)
+            return -1;
+        for (int e = offsets[u]; e < offsets[u + 1]; e++)
+            if (targets[e] == v)
+                return e;
+        return -1;
+    }
+
+    @Override
+    public boolean containsEdge(NodeType pred, NodeType succ) {
+        return findEdge(pred, succ) >= 0;
+    }
+
+    @Override
+    public Double getEdge(NodeType pred, NodeType succ) {
+        int e = findEdge(pred, succ);
+        if (e < 0)
+            throw new NoSuchElementException("No edge from " + pred + " to " + succ);
+        return weights[e];
+    }
+
+    @Override
+    public Double tryGetEdge(NodeType pred, NodeType succ) {
+        int e = findEdge(pred, succ);
+        return e < 0 ? null : weights[e];
+    }
+
+    @Override
+    public int getEdgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * Runs Dijkstra's algorithm from start until end is reached, in a pooled
+     * SearchWorkspace so that no search state is allocated.
+     *
+     * @param start     id of the node to search from
+     * @param end       id of the node to search for
+     * @param workspace the workspace to search in, which is left holding the
+     *                  cost of reaching end, and the id that each node on the
+     *                  path to it was reached from
+     * @return true if there is a path to end, or false if there is none
+     */
+    protected boolean search(int start, int end, SearchWorkspace workspace) {
+        if (landmarks != null)
+            return searchLandmarks(start, end, workspace);
+        IndexedMinHeap queue = workspace.start(getNodeCount());
+        queue.insert(start, 0);
+        workspace.reach(start, 0, -1);
+        while (!queue.isEmpty()) {
+            int u = queue.poll();
+            if (u == end)
+                return true;
+            workspace.settle(u);
+            double cost = workspace.getCost(u);
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int v = targets[e];
+                if (workspace.isSettled(v))
+                    continue;
+                double newCost = cost + weights[e];
+                if (!workspace.isReached(v))
+                    queue.insert(v, newCost);
+                else if (newCost < workspace.getCost(v))
+                    queue.decreaseKey(v, newCost);
+                else
+                    continue;
+                workspace.reach(v, newCost, u);
+            }
+        }
+        return false;
+    }
+
+    // runs the landmarks' A* search in workspace, then replaces the edge that
+    // each node along the path was reached through with the node it leaves
+    protected boolean searchLandmarks(int start, int end, SearchWorkspace workspace) {
+        if (!landmarks.search(start, end, workspace))
+            return false;
+        for (int id = end; workspace.getPredecessor(id) >= 0;) {
+            int predecessor = getEdgeSource(workspace.getPredecessor(id));
+            workspace.reach(id, workspace.getCost(id), predecessor);
+            id = predecessor;
+        }
+        return true;
+    }
+
+    /**
+     * Computes the cost of the shortest path from source to every node, or
+     * from every node to source when reverse is true.
+     *
+     * @param source  id of the node to measure costs from (or to)
+     * @param reverse true to follow entering edges instead of leaving edges
+     * @return the cost for each node indexed by id, which is
+     *         Double.POSITIVE_INFINITY for nodes that cannot be reached
+     */
+    public double[] computeCosts(int source, boolean reverse) {
+        int[] edgeOffsets = reverse ? reverseOffsets : offsets;
+        int[] edgeNodes = reverse ? sources : targets;
+        double[] edgeWeights = reverse ? reverseWeights : weights;
+        double[] costs = new double[getNodeCount()];
+        Arrays.fill(costs, Double.POSITIVE_INFINITY);
+        IndexedMinHeap queue = new IndexedMinHeap(getNodeCount());
+        queue.insert(source, 0);
+        while (!queue.isEmpty()) {
+            double cost = queue.peekKey();
+            int u = queue.poll();
+            costs[u] = cost;
+            for (int e = edgeOffsets[u]; e < edgeOffsets[u + 1]; e++) {
+                int v = edgeNodes[e];
+                double newCost = cost + edgeWeights[e];
+                if (costs[v] != Double.POSITIVE_INFINITY)
+                    continue; // already settled
+                if (!queue.contains(v))
+                    queue.insert(v, newCost);
+                else if (newCost < queue.getKey(v))
+                    queue.decreaseKey(v, newCost);
+            }
+        }
+        return costs;
+    }
+
+    /**
+     * Returns the list of data values from nodes along the shortest path from
+     * start to end, found with Dijkstra's algorithm (or with an A* search
+     * when this graph has landmarks).
+     *
+     * @param start the data item in the starting node for the path
+     * @param end   the data item in the destination node for the path
+     * @return list of data item from node along this shortest path
+     * @throws NoSuchElementException if either node is not in this graph, or
+     *                                if there is no path between them
+     */
+    @Override
+    public List<NodeType> shortestPathData(NodeType start, NodeType end) {
+        int startId = getId(start);
+        int endId = getId(end);
+        SearchWorkspace workspace = SearchWorkspace.acquire();
+        try {
+            if (startId < 0 || endId < 0 || !search(startId, endId, workspace))
+                throw new NoSuchElementException("No path from " + start + " to " + end);
+            List<NodeType> path = new ArrayList<>();
+            for (int id = endId; id >= 0; id = workspace.getPredecessor(id))
+                path.add(nodeData.get(id));
+            Collections.reverse(path);
+            return path;
+        } finally {
+            workspace.release();
+        }
+    }
+
+    /**
+     * Returns the cost of the shortest path from start to end, found with
+     * Dijkstra's algorithm (or with an A* search when this graph has landmarks).
+     *
+     * @param start the data item in the starting node for the path
+     * @param end   the data item in the destination node for the path
+     * @return the cost of the shortest path between these nodes
+     * @throws NoSuchElementException if either node is not in this graph, or
+     *                                if there is no path between them
+     */
+    @Override
+    public double shortestPathCost(NodeType start, NodeType end) {
+        int startId = getId(start);
+        int endId = getId(end);
+        SearchWorkspace workspace = SearchWorkspace.acquire();
+        try {
+            if (startId < 0 || endId < 0 || !search(startId, endId, workspace))
+                throw new NoSuchElementException("No path from " + start + " to " + end);
+            return workspace.getCost(endId);
+        } finally {
+            workspace.release();
+        }
+    }
+
+    /**
+     * Returns the nodes, edge weights and total cost of the shortest path from
+     * start to end, all read from a single search.
+     *
+     * @param start the data item in the starting node for the path
+     * @param end   the data item in the destination node for the path
+     * @return the route along this shortest path
+     * @throws NoSuchElementException if either node is not in this graph, or
+     *                                if there is no path between them
+     */
+    @Override
+    public Route<NodeType> shortestPathRoute(NodeType start, NodeType end) {
+        Route<NodeType> route = tryShortestPath(start, end);
+        if (route == null)
+            throw new NoSuchElementException("No path from " + start + " to " + end);
+        return route;
+    }
+
+    /**
+     * Returns the same route as shortestPathRoute, or null without throwing
+     * an exception when either node is not in this graph, or when there is no
+     * path between them.
+     *
+     * @param start the data item in the starting node for the path
+     * @param end   the data item in the destination node for the path
+     * @return the route along this shortest path, or null if there is none
+     */
+    @Override
+    public Route<NodeType> tryShortestPath(NodeType start, NodeType end) {
+        int startId = getId(start);
+        int endId = getId(end);
+        SearchWorkspace workspace = SearchWorkspace.acquire();
+        try {
+            if (startId < 0 || endId < 0 || !search(startId, endId, workspace))
+                return null;
+            List<NodeType> path = new ArrayList<>();
+            List<Double> edgeWeights = new ArrayList<>();
+            path.add(nodeData.get(endId));
+            for (int id = endId; workspace.getPredecessor(id) >= 0; id = workspace.getPredecessor(id)) {
+                int predecessor = workspace.getPredecessor(id);
+                // the search followed the lightest of any duplicate edges
+                double weight = Double.POSITIVE_INFINITY;
+                for (int e = offsets[predecessor]; e < offsets[predecessor + 1]; e++)
+                    if (targets[e] == id)
+                        weight = Math.min(weight, weights[e]);
+                path.add(nodeData.get(predecessor));
+                edgeWeights.add(weight);
+            }
+            Collections.reverse(path);
+            Collections.reverse(edgeWeights);
+            return new Route<>(path, edgeWeights, workspace.getCost(endId));
+        } finally {
+            workspace.release();
+        }
+    }
+
+    /**
+     * Returns the shortest paths from start to every node reachable from it,
+     * found with a single run of Dijkstra's algorithm.
+     *
+     * @param start the data item in the starting node for every path
+     * @return the tree of shortest paths from start
+     * @throws NoSuchElementException if start is not a node in this graph
+     */
+    @Override
+    public ShortestPathTree<NodeType> shortestPathTree(NodeType start) {
+        int startId = getId(start);
+        if (startId < 0)
+            throw new NoSuchElementException("No node " + start + " in this graph");
+        ShortestPathTree<NodeType> tree = new ShortestPathTree<>(start);
+        int[] predecessors = new int[getNodeCount()];
+        int[] hopCounts = new int[getNodeCount()];
+        boolean[] visited = new boolean[getNodeCount()];
+        IndexedMinHeap queue = new IndexedMinHeap(getNodeCount());
+        queue.insert(startId, 0);
+        predecessors[startId] = -1;
+        while (!queue.isEmpty()) {
+            // add each node to the tree as it is settled, after its predecessor
+            double cost = queue.peekKey();
+            int u = queue.poll();
+            visited[u] = true;
+            if (u != startId) {
+                hopCounts[u] = hopCounts[predecessors[u]] + 1;
+                tree.add(nodeData.get(u), nodeData.get(predecessors[u]), cost, hopCounts[u]);
+            }
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int v = targets[e];
+                if (visited[v])
+                    continue;
+                double newCost = cost + weights[e];
+                if (!queue.contains(v))
+                    queue.insert(v, newCost);
+                else if (newCost < queue.getKey(v))
+                    queue.decreaseKey(v, newCost);
+                else
+                    continue;
+                predecessors[v] = u;
+            }
+        }
+        return tree;
+    }
+
+    /**
+     * Returns the cost of the shortest path from each of the sources to each
+     * of the targets. One search runs from each source until every target is
+     * settled, and the searches for different sources run in parallel on the
+     * common fork-join pool, each in a SearchWorkspace taken from the shared
+     * pool for the length of that one search.
+     *
+     * @param sources the data items in the starting nodes, one per row
+     * @param targets the data items in the destination nodes, one per column
+     * @return a matrix where [i][j] is the cost of the shortest path from
+     *         sources.get(i) to targets.get(j), or Double.POSITIVE_INFINITY
+     *         when there is no path between them
+     * @throws NoSuchElementException if any source or target is not a node in
+     *                                this graph
+     */
+    @Override
+    public double[][] shortestPathCosts(List<NodeType> sources, List<NodeType> targets) {
+        int[] sourceIds = getIds(sources);
+        int[] targetIds = getIds(targets);
+        boolean[] isTarget = new boolean[getNodeCount()];
+        int targetCount = 0; // without counting repeated targets twice
+        for (int id : targetIds) {
+            if (!isTarget[id]) {
+                isTarget[id] = true;
+                targetCount++;
+            }
+        }
+        int distinctTargets = targetCount;
+        double[][] costs = new double[sourceIds.length][];
+        IntStream.range(0, sourceIds.length).parallel().forEach(
+                i -> costs[i] = searchTargets(sourceIds[i], targetIds, isTarget, distinctTargets));
+        return costs;
+    }
+
+    // returns the id of each node in data, in order
+    protected int[] getIds(List<NodeType> data) {
+        int[] result = new int[data.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = getId(data.get(i));
+            if (result[i] < 0)
+                throw new NoSuchElementException("No node " + data.get(i) + " in this graph");
+        }
+        return result;
+    }
+
+    // runs Dijkstra's algorithm from start until all targetCount nodes marked
+    // in isTarget are settled, and returns the cost of reaching each of
+    // targetIds in order
+    protected double[] searchTargets(int start, int[] targetIds, boolean[] isTarget, int targetCount) {
+        SearchWorkspace workspace = SearchWorkspace.acquire();
+        try {
+            return searchTargets(start, targetIds, isTarget, targetCount, workspace);
+        } finally {
+            workspace.release();
+        }
+    }
+
+    // runs searchTargets in workspace
+    protected double[] searchTargets(int start, int[] targetIds, boolean[] isTarget, int targetCount,
+            SearchWorkspace workspace) {
+        IndexedMinHeap queue = workspace.start(getNodeCount());
+        queue.insert(start, 0);
+        workspace.reach(start, 0, -1);
+        while (targetCount > 0 && !queue.isEmpty()) {
+            int u = queue.poll();
+            workspace.settle(u);
+            if (isTarget[u] && --targetCount == 0)
+                break;
+            double cost = workspace.getCost(u);
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int v = targets[e];
+                if (workspace.isSettled(v))
+                    continue;
+                double newCost = cost + weights[e];
+                if (!workspace.isReached(v))
+                    queue.insert(v, newCost);
+                else if (newCost < workspace.getCost(v))
+                    queue.decreaseKey(v, newCost);
+                else
+                    continue;
+                workspace.reach(v, newCost, u);
+            }
+        }
+        double[] costs = new double[targetIds.length];
+        for (int j = 0; j < targetIds.length; j++)
+            costs[j] = workspace.isSettled(targetIds[j]) ? workspace.getCost(targetIds[j])
+                    : Double.POSITIVE_INFINITY;
+        return costs;
+    }
+}
@@ -0,0 +1,306 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+/**
+ * This DeltaStepping computes the shortest paths from one node to every other
+ * node of a CsrGraph, using all of the cores available to the common
+ * fork-join pool. Rather than settling one node at a time like Dijkstra's
+ * algorithm, nodes are grouped into buckets of width delta by their current
+ * cost, and every node in the cheapest non-empty bucket has its edges relaxed
+ * at once, in parallel. Edges no heavier than delta (light edges) can lead
+ * back into the same bucket, so they are relaxed again until the bucket stays
+ * empty; heavier edges are relaxed once, after that.
+ *
+ * Costs are lowered through a compare-and-set on their bits, which for
+ * non-negative doubles are ordered just like the costs themselves. A node's
+ * final cost is always the cheapest sum found over some edge into it, as with
+ * Dijkstra's algorithm, so both compute exactly the same costs.
+ */
+public class DeltaStepping<NodeType> {
+
+    // the number of nodes that each parallel task relaxes the edges of
+    protected static final int CHUNK_SIZE = 256;
+    // the most edge weights looked at when choosing delta
+    protected static final int WEIGHT_SAMPLES = 4096;
+
+    protected CsrGraph<NodeType> graph;
+    protected double delta;
+    // buckets with fewer nodes than this are relaxed on the calling thread
+    protected int parallelThreshold = 1024;
+
+    /**
+     * Prepares to search graph with a bucket width chosen from its edge
+     * weights (see chooseDelta).
+     *
+     * @param graph the graph to search
+     */
+    public DeltaStepping(CsrGraph<NodeType> graph) {
+        this(graph, chooseDelta(graph));
+    }
+
+    /**
+     * Prepares to search graph with the given bucket width. Wider buckets
+     * relax more nodes at once, and so run more in parallel, but may relax
+     * some edges more than once before the nodes they leave have their final
+     * costs.
+     *
+     * @param graph the graph to search
+     * @param delta the range of costs that share each bucket
+     * @throws IllegalArgumentException if delta is not positive
+     */
+    public DeltaStepping(CsrGraph<NodeType> graph, double delta) {
+        if (!(delta > 0))
+            throw new IllegalArgumentException("delta must be positive, not " + delta);
+        this.graph = graph;
+        this.delta = delta;
+    }
+
+    /**
+     * @return the range of costs that share each bucket
+     */
+    public double getDelta() {
+        return delta;
+    }
+
+    /**
+     * Chooses a bucket width for graph, following Meyer and Sanders' choice
+     * of about the largest edge weight divided by the average number of edges
+     * leaving each node. So that a few very heavy edges do not make buckets
+     * too wide, the 90th percentile of a sample of the weights is used in
+     * place of the largest weight.
+     *
+     * @param graph the graph that will be searched
+     * @return the bucket width to search graph with
+     */
+    public static double chooseDelta(CsrGraph<?> graph) {
+        int edgeCount = graph.getEdgeCount();
+        if (edgeCount == 0)
+            return 1;
+        int samples = Math.min(edgeCount, WEIGHT_SAMPLES);
+        double[] weights = new double[samples];
+        double smallestPositive = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < samples; i++) {
+            weights[i] = graph.weights[(int) ((long) i * edgeCount / samples)];
+            if (weights[i] > 0)
+                smallestPositive = Math.min(smallestPositive, weights[i]);
+        }
+        if (smallestPositive == Double.POSITIVE_INFINITY)
+            return 1; // every sampled weight is zero
+        Arrays.sort(weights);
+        double averageDegree = (double) edgeCount / graph.getNodeCount();
+        return Math.max(weights[(int) (samples * 0.9)] / Math.max(averageDegree, 1), smallestPositive);
+    }
+
+    /**
+     * Computes the cost of the shortest path from source to every node.
+     *
+     * @param source id of the node to measure costs from
+     * @return the cost for each node indexed by id, which is
+     *         Double.POSITIVE_INFINITY for nodes that cannot be reached
+     */
+    public double[] computeCosts(int source) {
+        int nodeCount = graph.getNodeCount();
+        AtomicLongArray costBits = new AtomicLongArray(nodeCount);
+        long unreached = Double.doubleToRawLongBits(Double.POSITIVE_INFINITY);
+        for (int id = 0; id < nodeCount; id++)
+            costBits.set(id, unreached);
+        costBits.set(source, Double.doubleToRawLongBits(0.0));
+
+        // buckets.get(b) lists nodes whose cost was lowered into bucket b.
+        // Nodes are not removed when their cost drops into an earlier bucket,
+        // so each node is checked against its current bucket when taken out.
+        List<IntList> buckets = new ArrayList<>();
+        addToBucket(buckets, 0, source);
+        int[] takenIn = new int[nodeCount]; // the last round each node was taken in
+        int[] settledIn = new int[nodeCount]; // the last heavy pass each node waits for
+        int round = 0;
+        int heavyPass = 1;
+
+        for (int bucket = 0; bucket < buckets.size(); bucket++) {
+            IntList settled = new IntList();
+            while (buckets.get(bucket) != null) {
+                // relax the light edges of every node taken out of this bucket
+                IntList candidates = buckets.get(bucket);
+                buckets.set(bucket, null);
+                round++;
+                IntList frontier = new IntList();
+                for (int i = 0; i < candidates.size; i++) {
+                    int id = candidates.items[i];
+                    if (takenIn[id] != round && bucketOf(costBits.get(id)) == bucket) {
+                        takenIn[id] = round;
+                        frontier.add(id);
+                        if (settledIn[id] != heavyPass) {
+                            settledIn[id] = heavyPass;
+                            settled.add(id);
+                        }
+                    }
+                }
+                addToBuckets(buckets, relax(frontier, costBits, true), costBits);
+
+                // once none of those lower a cost into this bucket, the costs
+                // in it are final, so relax their heavy edges once
+                if (buckets.get(bucket) == null) {
+                    addToBuckets(buckets, relax(settled, costBits, false), costBits);
+                    settled = new IntList();
+                    heavyPass++;
+                }
+            }
+        }
+
+        double[] costs = new double[nodeCount];
+        for (int id = 0; id < nodeCount; id++)
+            costs[id] = Double.longBitsToDouble(costBits.get(id));
+        return costs;
+    }
+
+    // returns the bucket that a node with the cost in costBits belongs in
+    protected int bucketOf(long costBits) {
+        double bucket = Double.longBitsToDouble(costBits) / delta;
+        if (bucket >= Integer.MAX_VALUE)
+            throw new IllegalStateException("costs are too large for buckets of width " + delta);
+        return (int) bucket;
+    }
+
+    // adds id to a bucket, creating it (and those before it) when needed
+    protected static void addToBucket(List<IntList> buckets, int bucket, int id) {
+        while (buckets.size() <= bucket)
+            buckets.add(null);
+        if (buckets.get(bucket) == null)
+            buckets.set(bucket, new IntList());
+        buckets.get(bucket).add(id);
+    }
+
+    // adds every node in lowered to the bucket that its cost now belongs in
+    protected void addToBuckets(List<IntList> buckets, List<IntList> lowered, AtomicLongArray costBits) {
+        for (IntList ids : lowered)
+            for (int i = 0; i < ids.size; i++)
+                addToBucket(buckets, bucketOf(costBits.get(ids.items[i])), ids.items[i]);
+    }
+
+    // relaxes the light (or else the heavy) edges leaving each of the nodes,
+    // in parallel when there are enough of them, and returns lists holding
+    // every node whose cost was lowered
+    protected List<IntList> relax(IntList nodes, AtomicLongArray costBits, boolean light) {
+        if (nodes.size < parallelThreshold)
+            return List.of(relax(nodes, 0, nodes.size, costBits, light));
+        int chunks = (nodes.size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        return IntStream.range(0, chunks).parallel()
+                .mapToObj(chunk -> relax(nodes, chunk * CHUNK_SIZE,
+                        Math.min(nodes.size, (chunk + 1) * CHUNK_SIZE), costBits, light))
+                .toList();
+    }
+
+    // relaxes the light or heavy edges leaving nodes from index start up to
+    // end, and returns every node whose cost was lowered
+    protected IntList relax(IntList nodes, int start, int end, AtomicLongArray costBits,
+            boolean light) {
+        IntList lowered = new IntList();
+        for (int i = start; i < end; i++) {
+            int u = nodes.items[i];
+            double cost = Double.longBitsToDouble(costBits.get(u));
+            for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+                if ((graph.weights[e] <= delta) != light)
+                    continue;
+                int v = graph.targets[e];
+                long newBits = Double.doubleToRawLongBits(cost + graph.weights[e]);
+                long oldBits = costBits.get(v);
+                // lower v's cost, unless another thread has lowered it further
+                while (newBits < oldBits) {
+                    if (costBits.compareAndSet(v, oldBits, newBits)) {
+                        lowered.add(v);
+                        break;
+                    }
+                    oldBits = costBits.get(v);
+                }
+            }
+        }
+        return lowered;
+    }
+
+    /**
+     * Returns the tree of shortest paths from start to every node that can be
+     * reached from it. The costs are computed in parallel by computeCosts,
+     * and then each node is given a predecessor whose cost plus the weight of
+     * the edge between them is exactly its own cost.
+     *
+     * @param start the data item in the starting node for every path
+     * @return the tree of shortest paths from start
+     * @throws NoSuchElementException if start is not a node in the graph
+     */
+    public ShortestPathTree<NodeType> shortestPathTree(NodeType start) {
+        int startId = graph.getId(start);
+        if (startId < 0)
+            throw new NoSuchElementException("No node " + start + " in this graph");
+        int nodeCount = graph.getNodeCount();
+        double[] costs = computeCosts(startId);
+        int[] predecessors = new int[nodeCount];
+
+        // nodes entered by a cheaper node along a shortest path take it as
+        // their predecessor; this can be done for every node in parallel
+        IntStream.range(0, nodeCount).parallel().forEach(v -> {
+            predecessors[v] = -1;
+            if (v == startId || costs[v] == Double.POSITIVE_INFINITY)
+                return;
+            for (int e = graph.reverseOffsets[v]; e < graph.reverseOffsets[v + 1]; e++) {
+                int u = graph.sources[e];
+                if (costs[u] < costs[v] && costs[u] + graph.reverseWeights[e] == costs[v]) {
+                    predecessors[v] = u;
+                    return;
+                }
+            }
+        });
+
+        // the rest are only entered along shortest paths by nodes of the same
+        // cost, through edges of weight zero, so reach them in breadth first
+        // order from the nodes that already have predecessors
+        int[] queue = new int[nodeCount];
+        int queued = 0;
+        for (int v = 0; v < nodeCount; v++)
+            if (v == startId || predecessors[v] >= 0)
+                queue[queued++] = v;
+        for (int next = 0; next < queued; next++) {
+            int u = queue[next];
+            for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+                int v = graph.targets[e];
+                if (v != startId && predecessors[v] < 0 && costs[v] != Double.POSITIVE_INFINITY
+                        && costs[u] + graph.weights[e] == costs[v]) {
+                    predecessors[v] = u;
+                    queue[queued++] = v;
+                }
+            }
+        }
+
+        // add nodes in breadth first order through the tree, which places each
+        // node after its predecessor and counts its hops along the way
+        int[] childOffsets = new int[nodeCount + 1];
+        for (int v = 0; v < nodeCount; v++)
+            if (predecessors[v] >= 0)
+                childOffsets[predecessors[v] + 1]++;
+        for (int u = 0; u < nodeCount; u++)
+            childOffsets[u + 1] += childOffsets[u];
+        int[] children = new int[childOffsets[nodeCount]];
+        int[] filled = Arrays.copyOf(childOffsets, nodeCount);
+        for (int v = 0; v < nodeCount; v++)
+            if (predecessors[v] >= 0)
+                children[filled[predecessors[v]]++] = v;
+
+        ShortestPathTree<NodeType> tree = new ShortestPathTree<>(start);
+        int[] hopCounts = new int[nodeCount];
+        queue[0] = startId;
+        queued = 1;
+        for (int next = 0; next < queued; next++) {
+            int u = queue[next];
+            for (int c = childOffsets[u]; c < childOffsets[u + 1]; c++) {
+                int v = children[c];
+                hopCounts[v] = hopCounts[u] + 1;
+                tree.add(graph.getData(v), graph.getData(u), costs[v], hopCounts[v]);
+                queue[queued++] = v;
+            }
+        }
+        return tree;
+    }
+}
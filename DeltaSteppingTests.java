@@ -0,0 +1,77 @@
+import java.util.NoSuchElementException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests the DeltaStepping class.
+ */
+public class DeltaSteppingTests {
+
+    /**
+     * tests that delta-stepping finds exactly the same costs as Dijkstra's
+     * algorithm, with narrow and wide buckets, zero weights, unreachable
+     * nodes, and small enough parallel thresholds that every bucket runs in
+     * parallel
+     */
+    @Test
+    public void computeCostsTest() {
+        DijkstraGraph<Integer, Double> grid = GraphBenchmark.makeGridGraph(30, 13);
+        grid.insertNode(-1); // cannot be reached from any other node
+        grid.insertEdge(5, 6, 0.0);
+        grid.insertEdge(6, 5, 0.0);
+        CsrGraph<Integer> frozen = grid.freeze();
+        for (double delta : new double[] { DeltaStepping.chooseDelta(frozen), 1.0, 1e9 }) {
+            for (int threshold : new int[] { 1024, 1 }) {
+                DeltaStepping<Integer> search = new DeltaStepping<>(frozen, delta);
+                search.parallelThreshold = threshold;
+                for (int source = 0; source < frozen.getNodeCount(); source += 97)
+                    Assertions.assertArrayEquals(frozen.computeCosts(source, false),
+                            search.computeCosts(source));
+            }
+        }
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new DeltaStepping<>(frozen, 0));
+    }
+
+    /**
+     * tests that trees hold the same costs as Dijkstra's algorithm finds, and
+     * that each node follows an edge from its predecessor, including nodes
+     * reached through edges of weight zero
+     */
+    @Test
+    public void shortestPathTreeTest() {
+        DijkstraGraph<Integer, Double> grid = GraphBenchmark.makeGridGraph(30, 13);
+        assertSameTree(grid, 0);
+
+        DijkstraGraph<String, Double> small = new DijkstraGraph<>();
+        for (String node : new String[] { "A", "B", "C", "D", "E" })
+            small.insertNode(node);
+        small.insertEdge("A", "B", 4.0);
+        small.insertEdge("A", "C", 2.0);
+        small.insertEdge("C", "B", 2.0);
+        small.insertEdge("B", "D", 0.0);
+        small.insertEdge("D", "B", 0.0);
+        small.insertEdge("D", "E", 3.0);
+        for (String start : small.getAllNodes())
+            assertSameTree(small, start);
+
+        Assertions.assertThrows(NoSuchElementException.class,
+                () -> new DeltaStepping<>(grid.freeze()).shortestPathTree(1000));
+    }
+
+    // checks the tree that delta-stepping builds from start against the one
+    // that graph builds with Dijkstra's algorithm
+    private static <T> void assertSameTree(DijkstraGraph<T, Double> graph, T start) {
+        ShortestPathTree<T> expected = graph.shortestPathTree(start);
+        ShortestPathTree<T> tree = new DeltaStepping<>(graph.freeze()).shortestPathTree(start);
+        Assertions.assertEquals(expected.getReachedNodes().size(), tree.getReachedNodes().size());
+        for (T node : expected.getReachedNodes()) {
+            Assertions.assertEquals(expected.getCost(node), tree.getCost(node));
+            T predecessor = tree.getPredecessor(node);
+            if (predecessor != null) {
+                Assertions.assertEquals(tree.getCost(predecessor)
+                        + graph.getEdge(predecessor, node).doubleValue(), tree.getCost(node));
+                Assertions.assertEquals(tree.getHopCount(predecessor) + 1, tree.getHopCount(node));
+            }
+        }
+    }
+}
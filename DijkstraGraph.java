@@ -9,6 +9,7 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import java.util.PriorityQueue;
 import java.util.List;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.NoSuchElementException;
 
@@ -29,7 +30,8 @@ public class DijkstraGraph<NodeType, EdgeType extends Number>
      * field. The total cost of this path is stored in its cost field. And the
      * predecessor SearchNode within this path is referened by the predecessor
      * field (this field is null within the SearchNode containing the starting
-     * node in its node field).
+     * node in its node field), and the weight of the edge from that
+     * predecessor is stored in the edgeWeight field.
      *
      * SearchNodes are Comparable and are sorted by cost so that the lowest cost
      * SearchNode has the highest priority within a java.util.PriorityQueue.
@@ -38,11 +40,17 @@ public class DijkstraGraph<NodeType, EdgeType extends Number>
         public Node node;
         public double cost;
         public SearchNode predecessor;
+        public double edgeWeight;
 
         public SearchNode(Node node, double cost, SearchNode predecessor) {
+            this(node, cost, predecessor, 0);
+        }
+
+        public SearchNode(Node node, double cost, SearchNode predecessor, double edgeWeight) {
             this.node = node;
             this.cost = cost;
             this.predecessor = predecessor;
+            this.edgeWeight = edgeWeight;
         }
 
         public int compareTo(SearchNode other) {
@@ -55,10 +63,447 @@ public class DijkstraGraph<NodeType, EdgeType extends Number>
     }
 
     /**
-     * Constructor that sets the map that the graph uses.
+     * The searches that computeShortestPath can run. LAZY_QUEUE adds a new
+     * SearchNode to a java.util.PriorityQueue for every edge that it relaxes,
+     * and skips over outdated SearchNodes as they are polled. INDEXED_HEAP
+     * keeps a single entry per node in an IndexedMinHeap over node ids, and
+     * lowers that entry's cost in place whenever a cheaper path is found.
+     * It runs in this thread's SearchWorkspace, so that it allocates nothing
+     * but the path it returns, and is the default.
+     * BUCKET_QUEUE runs the same search over a BucketQueue instead, whose
+     * buckets are as wide as the smallest positive edge weight, so that
+     * inserting a node or lowering its cost takes constant time. It falls
+     * back to INDEXED_HEAP when any edge weight is negative, or when the
+     * weights range so widely that more than MAX_BUCKETS buckets are needed.
+     * BIDIRECTIONAL searches forward from the start and backward from the end
+     * (through each node's entering edges) at the same time, and stops once
+     * the two searches cannot find a cheaper path where they meet.
+     * LANDMARKS runs an A* search directed toward the end node by the lower
+     * bounds of a LandmarkIndex, which must first be computed through
+     * prepareLandmarks or setLandmarkIndex. While there is no index that is
+     * up to date with this graph, INDEXED_HEAP is used instead.
+     * CONTRACTION_HIERARCHY runs two upward searches over a
+     * ContractionHierarchy, which must first be built through
+     * prepareContractionHierarchy or setContractionHierarchy, and likewise
+     * falls back to INDEXED_HEAP while it is not up to date with this graph.
+     * ALL_PAIRS reads paths out of an AllPairsTable without searching at all,
+     * once it is computed through prepareAllPairs or setAllPairsTable, and
+     * also falls back to INDEXED_HEAP while that table is not up to date.
+     */
+    public enum SearchStrategy {
+        LAZY_QUEUE, INDEXED_HEAP, BUCKET_QUEUE, BIDIRECTIONAL, LANDMARKS, CONTRACTION_HIERARCHY, ALL_PAIRS
+    }
+
+    // the search used by computeShortestPath
+    protected SearchStrategy strategy = SearchStrategy.INDEXED_HEAP;
+
+    // the most buckets that a BUCKET_QUEUE search will use before it falls
+    // back to INDEXED_HEAP
+    public static final int MAX_BUCKETS = 1 << 16;
+
+    // smallest positive and largest edge weights for the BUCKET_QUEUE search
+    // (NaN when it cannot be used), and the graph version they were found at.
+    // These never change once measured, so that searches on several threads
+    // always read all three from the same measurement.
+    protected static class WeightRange {
+        public final double smallest;
+        public final double largest;
+        public final long version;
+
+        public WeightRange(double smallest, double largest, long version) {
+            this.smallest = smallest;
+            this.largest = largest;
+            this.version = version;
+        }
+
+        // whether these weights are all non-negative, and fit into at most
+        // MAX_BUCKETS buckets
+        public boolean fitsBuckets() {
+            return smallest > 0 && BucketQueue.bucketCount(smallest, largest) <= MAX_BUCKETS;
+        }
+    }
+
+    // the weights last measured by measureWeights, or null
+    protected volatile WeightRange weightRange = null;
+
+    // landmarks for the LANDMARKS search, and the graph version they match
+    protected LandmarkIndex<NodeType> landmarks = null;
+    protected long landmarksVersion = -1;
+
+    // hierarchy for the CONTRACTION_HIERARCHY search, and the graph version
+    // it matches
+    protected ContractionHierarchy<NodeType> hierarchy = null;
+    protected long hierarchyVersion = -1;
+
+    // table for the ALL_PAIRS search, and the graph version it matches
+    protected AllPairsTable<NodeType> allPairs = null;
+    protected long allPairsVersion = -1;
+
+    // index that answers when there is no path without searching, and the
+    // graph version it is up to date with. Searches on several threads may
+    // find the index out of date at once, so both are volatile, the index is
+    // always written before its version, and rebuilds are synchronized.
+    protected volatile ReachabilityIndex<NodeType> reachability = null;
+    protected volatile long reachabilityVersion = -1;
+
+    // recent results of computeShortestPath, or null when caching is off
+    protected RouteCache<NodeType, SearchNode> routeCache = null;
+
+    // whether shortestPathTree runs a parallel DeltaStepping search
+    protected boolean parallelTreeSearch = false;
+
+    // DeltaStepping search over a snapshot of this graph, and the graph
+    // version that snapshot matches. Like the reachability index, both are
+    // volatile and rebuilds are synchronized.
+    protected volatile DeltaStepping<NodeType> treeSearch = null;
+    protected volatile long treeSearchVersion = -1;
+
+    /**
+     * Constructor that sets the map that the graph uses. Nodes are looked up
+     * on every edge insertion and search, so an OpenAddressingMap is used by
+     * default; any other MapADT (like HashtableMap) can be chosen through
+     * withMap instead. This is the only constructor, so that JUnit can run
+     * the tests in this class.
      */
     public DijkstraGraph() {
-        super(new HashtableMap<NodeType, Node>());
+        super(new OpenAddressingMap<NodeType, Node>());
+    }
+
+    /**
+     * Creates an empty graph that stores its nodes in the provided map.
+     *
+     * @param map the empty map the graph uses to map a data object to the
+     *        node object it is stored in
+     * @return a new graph without any nodes or edges
+     */
+    public static <NodeType, EdgeType extends Number> DijkstraGraph<NodeType, EdgeType> withMap(
+            MapADT<NodeType, BaseGraph<NodeType, EdgeType>.Node> map) {
+        DijkstraGraph<NodeType, EdgeType> graph = new DijkstraGraph<>();
+        graph.nodes = map;
+        return graph;
+    }
+
+    /**
+     * Creates a copy of this graph with the same nodes, edges and settings,
+     * which can be changed (for example through applyChanges) while this
+     * graph is still being searched on other threads. The copy numbers its
+     * nodes and orders its edges just as this graph does, and starts at this
+     * graph's version, so it shares this graph's snapshot and indexes: they
+     * are all read-only, and changes applied to the copy then update them as
+     * they would here. Cached paths refer to this graph's nodes, so the copy
+     * starts with an empty cache of the same capacity.
+     *
+     * @return a new graph with the same contents as this one
+     */
+    public DijkstraGraph<NodeType, EdgeType> copy() {
+	DijkstraGraph<NodeType, EdgeType> copy = new DijkstraGraph<>();
+	copy.setEdgeIndexEnabled(isEdgeIndexEnabled());
+	for(Node node : nodesById)
+		if(node != null)
+			copy.insertNode(node.data);
+	for(Node node : nodesById)
+		if(node != null)
+			for(Edge edge : node.edgesLeaving)
+				copy.insertEdge(node.data, edge.successor.data, edge.data);
+	copy.version = version;
+	if(snapshotVersion == version) {
+		copy.snapshot = snapshot;
+		copy.snapshotVersion = version;
+	}
+	copy.strategy = strategy;
+	copy.weightRange = weightRange;
+	copy.landmarks = landmarks;
+	copy.landmarksVersion = landmarksVersion;
+	copy.hierarchy = hierarchy;
+	copy.hierarchyVersion = hierarchyVersion;
+	copy.allPairs = allPairs;
+	copy.allPairsVersion = allPairsVersion;
+	copy.reachability = reachability;
+	copy.reachabilityVersion = reachabilityVersion;
+	copy.parallelTreeSearch = parallelTreeSearch;
+	copy.treeSearch = treeSearch;
+	copy.treeSearchVersion = treeSearchVersion;
+	if(routeCache != null)
+		copy.setRouteCacheCapacity(routeCache.getCapacity());
+	return copy;
+    }
+
+    /**
+     * Selects the search that is used to compute shortest paths.
+     *
+     * @param strategy the search used by shortestPathData and shortestPathCost
+     */
+    public void setSearchStrategy(SearchStrategy strategy) {
+        if (routeCache != null && strategy != this.strategy)
+            routeCache.clear(); // so that later paths come from this search
+        this.strategy = strategy;
+    }
+
+    /**
+     * @return the search that is used to compute shortest paths
+     */
+    public SearchStrategy getSearchStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Selects how shortestPathTree searches: with Dijkstra's algorithm on the
+     * calling thread (the default), or with a DeltaStepping search over a
+     * snapshot of this graph that relaxes edges on every core. Both find the
+     * same costs, but the parallel search only pays off on large graphs.
+     *
+     * @param parallel true to build shortest path trees with DeltaStepping
+     */
+    public void setParallelTreeSearch(boolean parallel) {
+        this.parallelTreeSearch = parallel;
+    }
+
+    /**
+     * @return true if shortestPathTree builds trees with DeltaStepping
+     */
+    public boolean isParallelTreeSearch() {
+        return parallelTreeSearch;
+    }
+
+    /**
+     * @return the DeltaStepping search used by parallel tree search, which is
+     *         first created over a new snapshot if this graph has changed
+     *         since the last one was taken
+     */
+    protected DeltaStepping<NodeType> getTreeSearch() {
+        if (treeSearchVersion != version) {
+            synchronized (this) {
+                if (treeSearchVersion != version) {
+                    treeSearch = new DeltaStepping<>(snapshot());
+                    treeSearchVersion = version;
+                }
+            }
+        }
+        return treeSearch;
+    }
+
+    /**
+     * Turns on caching of shortest paths, keeping up to capacity of the most
+     * recently used paths. Cached paths are only returned while this graph is
+     * unchanged, since every insertion or removal of a node or edge changes
+     * the graph's version.
+     *
+     * @param capacity the most paths to cache, or 0 to turn caching off
+     */
+    public void setRouteCacheCapacity(int capacity) {
+        routeCache = capacity > 0 ? new RouteCache<>(capacity) : null;
+    }
+
+    /**
+     * @return the cache of recent shortest paths, or null when caching is off
+     */
+    public RouteCache<NodeType, SearchNode> getRouteCache() {
+        return routeCache;
+    }
+
+    /**
+     * Computes a LandmarkIndex with count landmarks for the current contents
+     * of this graph, to be used by the LANDMARKS search.
+     *
+     * @param count the number of landmarks to choose
+     */
+    public void prepareLandmarks(int count) {
+        setLandmarkIndex(new LandmarkIndex<>(snapshot(), count));
+    }
+
+    /**
+     * Sets the LandmarkIndex used by the LANDMARKS search. This index must
+     * have been computed for a snapshot of this graph's current contents, and
+     * it is no longer used once this graph changes.
+     *
+     * @param landmarks the index computed from this graph's current contents
+     */
+    public void setLandmarkIndex(LandmarkIndex<NodeType> landmarks) {
+        this.landmarks = landmarks;
+        this.landmarksVersion = version;
+    }
+
+    /**
+     * @return the LandmarkIndex used by the LANDMARKS search, or null when
+     *         there is no index that is up to date with this graph
+     */
+    public LandmarkIndex<NodeType> getLandmarkIndex() {
+        return landmarksVersion == version ? landmarks : null;
+    }
+
+    /**
+     * Builds a ContractionHierarchy for the current contents of this graph, to
+     * be used by the CONTRACTION_HIERARCHY search.
+     */
+    public void prepareContractionHierarchy() {
+        setContractionHierarchy(new ContractionHierarchy<>(snapshot()));
+    }
+
+    /**
+     * Sets the ContractionHierarchy used by the CONTRACTION_HIERARCHY search.
+     * This hierarchy must have been built for a snapshot of this graph's
+     * current contents, and it is no longer used once this graph changes.
+     *
+     * @param hierarchy the hierarchy built from this graph's current contents
+     */
+    public void setContractionHierarchy(ContractionHierarchy<NodeType> hierarchy) {
+        this.hierarchy = hierarchy;
+        this.hierarchyVersion = version;
+    }
+
+    /**
+     * @return the ContractionHierarchy used by the CONTRACTION_HIERARCHY
+     *         search, or null when there is no hierarchy that is up to date
+     *         with this graph
+     */
+    public ContractionHierarchy<NodeType> getContractionHierarchy() {
+        return hierarchyVersion == version ? hierarchy : null;
+    }
+
+    /**
+     * Computes an AllPairsTable for the current contents of this graph, to be
+     * used by the ALL_PAIRS search. This table holds an entry for every pair
+     * of nodes, so it should only be computed for small graphs.
+     */
+    public void prepareAllPairs() {
+        setAllPairsTable(new AllPairsTable<>(snapshot()));
+    }
+
+    /**
+     * Sets the AllPairsTable used by the ALL_PAIRS search. This table must
+     * have been computed for a snapshot of this graph's current contents, and
+     * it is no longer used once this graph changes.
+     *
+     * @param allPairs the table computed from this graph's current contents
+     */
+    public void setAllPairsTable(AllPairsTable<NodeType> allPairs) {
+        this.allPairs = allPairs;
+        this.allPairsVersion = version;
+    }
+
+    /**
+     * @return the AllPairsTable used by the ALL_PAIRS search, or null when
+     *         there is no table that is up to date with this graph
+     */
+    public AllPairsTable<NodeType> getAllPairsTable() {
+        return allPairsVersion == version ? allPairs : null;
+    }
+
+    /**
+     * Computes a ReachabilityIndex for the current contents of this graph.
+     * From then on, computeShortestPath throws a NoSuchElementException
+     * without searching whenever this index shows there is no path. The
+     * index is kept up to date through every change that cannot let a node
+     * reach any node it could not reach before, and is computed again the
+     * next time it is needed after any other change.
+     */
+    public synchronized void prepareReachability() {
+        this.reachability = new ReachabilityIndex<>(snapshot());
+        this.reachabilityVersion = version;
+    }
+
+    /**
+     * @return the ReachabilityIndex of this graph, which is first computed
+     *         again if changes have left it out of date, or null when
+     *         prepareReachability has never been called
+     */
+    public ReachabilityIndex<NodeType> getReachabilityIndex() {
+        if (reachabilityVersion != version && reachability != null) {
+            synchronized (this) {
+                // another search may have rebuilt it while this one waited
+                if (reachabilityVersion != version)
+                    prepareReachability();
+            }
+        }
+        return reachability;
+    }
+
+    /**
+     * Inserts or updates an edge like BaseGraph does. When pred could already
+     * reach succ, the edge lets no node reach anything new, so the
+     * ReachabilityIndex stays up to date.
+     */
+    @Override
+    public boolean insertEdge(NodeType pred, NodeType succ, EdgeType weight) {
+	boolean keepsReachability = reachabilityVersion == version
+			&& reachability.getGraph().containsNode(pred)
+			&& reachability.getGraph().containsNode(succ)
+			&& reachability.mayReach(pred, succ);
+	boolean inserted = super.insertEdge(pred, succ, weight);
+	if(inserted && keepsReachability)
+		reachabilityVersion = version;
+	return inserted;
+    }
+
+    /**
+     * Removes an edge like BaseGraph does. Removing an edge can only leave
+     * fewer paths, so the ReachabilityIndex stays up to date.
+     */
+    @Override
+    public boolean removeEdge(NodeType pred, NodeType succ) {
+	boolean keepsReachability = reachabilityVersion == version;
+	boolean removed = super.removeEdge(pred, succ);
+	if(keepsReachability)
+		reachabilityVersion = version;
+	return removed;
+    }
+
+    /**
+     * Inserts a node like BaseGraph does. A new node has no edges yet, so the
+     * ReachabilityIndex stays up to date, treating it as reaching only itself.
+     */
+    @Override
+    public boolean insertNode(NodeType data) {
+	boolean keepsReachability = reachabilityVersion == version;
+	boolean inserted = super.insertNode(data);
+	if(keepsReachability)
+		reachabilityVersion = version;
+	return inserted;
+    }
+
+    /**
+     * Removes a node like BaseGraph does. Removing a node can only leave fewer
+     * paths, so the ReachabilityIndex stays up to date.
+     */
+    @Override
+    public boolean removeNode(NodeType data) {
+	boolean keepsReachability = reachabilityVersion == version;
+	boolean removed = super.removeNode(data);
+	if(keepsReachability)
+		reachabilityVersion = version;
+	return removed;
+    }
+
+    /**
+     * Keeps the cached paths and indexes that a batch of changes leaves
+     * correct. The landmarks and the all-pairs table are moved over to a
+     * snapshot of the changed graph, computing again only the costs and paths
+     * that the changes affect. When the changes can only make paths longer,
+     * every cached path that uses none of the changed edges is still a
+     * shortest path, so only the cached paths through changed edges are
+     * dropped. Any other changes leave the cache out of date, exactly as
+     * single changes do.
+     *
+     * @param changes         the changes that were just applied
+     * @param previousVersion this graph's version before those changes
+     */
+    @Override
+    protected void changesApplied(GraphChangeSet<NodeType, EdgeType> changes, long previousVersion) {
+	if(landmarks != null && landmarksVersion == previousVersion) {
+		//null when the changes removed one of the landmarks
+		LandmarkIndex<NodeType> changed = landmarks.forChangedGraph(snapshot(), changes);
+		if(changed != null)
+			setLandmarkIndex(changed);
+	}
+	if(allPairs != null && allPairsVersion == previousVersion)
+		setAllPairsTable(allPairs.forChangedGraph(snapshot(), changes));
+	if(routeCache != null && changes.onlyLengthensPaths())
+		routeCache.retainUnaffected(previousVersion, version, path -> {
+			for(SearchNode step = path; step.predecessor != null; step = step.predecessor)
+				if(changes.changesEdge(step.predecessor.node.data, step.node.data))
+					return true;
+			return false;
+		});
     }
 
     /**
@@ -77,17 +522,89 @@ public class DijkstraGraph<NodeType, EdgeType extends Number>
      *                                correspond to a graph node
      */
     protected SearchNode computeShortestPath(NodeType start, NodeType end) {
+	SearchNode path = findShortestPath(start, end);
+	if(path == null)
+		throw new NoSuchElementException("No path from " + start + " to " + end);
+	return path;
+    }
+
+    /**
+     * Finds the shortest path from start to end like computeShortestPath, but
+     * returns null rather than throwing an exception when there is none, so
+     * that a missing path costs nothing more than the search.
+     *
+     * @param start the data item in the starting node for the path
+     * @param end   the data item in the destination node for the path
+     * @return SearchNode for the final end node within the shortest path, or
+     *         null when no path from start to end is found or when either
+     *         start or end data do not correspond to a graph node
+     */
+    protected SearchNode findShortestPath(NodeType start, NodeType end) {
+	//when the index shows there is no path, there is nothing to search for
+	ReachabilityIndex<NodeType> index = getReachabilityIndex();
+	if(index != null && !index.mayReach(start, end))
+		return null;
+
+	//SearchNodes are never changed once a search returns them, so a cached
+	//path can be shared by every caller that asks for it
+	RouteCache<NodeType, SearchNode> cache = routeCache;
+	if(cache == null)
+		return computeShortestPathUncached(start, end);
+	long searchedVersion = version;
+	SearchNode path = cache.get(start, end, searchedVersion);
+	if(path == null) {
+		path = computeShortestPathUncached(start, end);
+		if(path != null)
+			cache.put(start, end, searchedVersion, path);
+	}
+	return path;
+    }
+
+    /**
+     * Computes the shortest path from start to end with the current
+     * SearchStrategy, without checking the route cache.
+     *
+     * @param start the data item in the starting node for the path
+     * @param end   the data item in the destination node for the path
+     * @return SearchNode for the final end node within the shortest path, or
+     *         null when no path from start to end is found or when either
+     *         start or end data do not correspond to a graph node
+     */
+    protected SearchNode computeShortestPathUncached(NodeType start, NodeType end) {
+	switch(strategy) {
+		case INDEXED_HEAP: return computeShortestPathIndexed(start, end);
+		case BUCKET_QUEUE: return computeShortestPathBuckets(start, end);
+		case BIDIRECTIONAL: return computeShortestPathBidirectional(start, end);
+		case LANDMARKS: return computeShortestPathLandmarks(start, end);
+		case CONTRACTION_HIERARCHY: return computeShortestPathHierarchy(start, end);
+		case ALL_PAIRS: return computeShortestPathAllPairs(start, end);
+		default: return computeShortestPathLazy(start, end);
+	}
+    }
+
+    /**
+     * Computes the shortest path from start to end with a java.util.PriorityQueue
+     * that may hold several SearchNodes for the same node at once.
+     *
+     * @param start the data item in the starting node for the path
+     * @param end   the data item in the destination node for the path
+     * @return SearchNode for the final end node within the shortest path, or
+     *         null when no path from start to end is found or when either
+     *         start or end data do not correspond to a graph node
+     */
+    protected SearchNode computeShortestPathLazy(NodeType start, NodeType end) {
 	//initialize the queue of paths taken, searchnode, and placeholdermap indicating if they have been visited
 	PriorityQueue<SearchNode> paths = new PriorityQueue<SearchNode>();
-	HashtableMap visitedNodes = new HashtableMap();
+	MapADT<Node, Integer> visitedNodes = new OpenAddressingMap<>();
 	SearchNode search = null;
 
 	//if the start provided is valid, add it to the path queue and mark it as visited
-	//otherwise, throw a NoSuchElementException
-	if(nodes.containsKey(start)) {
-		search = new SearchNode(nodes.get(start), 0, null);
+	//otherwise, there is no path to find
+	Node startNode = nodes.getOrNull(start);
+	if(startNode != null) {
+		search = new SearchNode(startNode, 0, null);
 		paths.add(search);
-	} else { throw new NoSuchElementException(); }
+	} else { return null; }
 
 	while(!paths.isEmpty()) {
 		//take off min cost searchnode off priority queue, if its destination
@@ -101,12 +618,439 @@ public class DijkstraGraph<NodeType, EdgeType extends Number>
 			double cost = search.cost;
 			for(Edge edges : search.node.edgesLeaving) {
 				double edgeCost = edges.data.doubleValue();
-				paths.add(new SearchNode(edges.successor, cost + edgeCost, search));
+				paths.add(new SearchNode(edges.successor, cost + edgeCost, search, edgeCost));
 			}
 		}
 	}
 
-	throw new NoSuchElementException();
+	return null;
+    }
+
+    /**
+     * Computes the shortest path from start to end with an IndexedMinHeap that
+     * holds at most one entry per node, so that only the SearchNodes along the
+     * final path are ever created. The costs, predecessors and heap are kept
+     * in this thread's SearchWorkspace, so nothing else is allocated either.
+     *
+     * @param start the data item in the starting node for the path
+     * @param end   the data item in the destination node for the path
+     * @return SearchNode for the final end node within the shortest path, or
+     *         null when no path from start to end is found or when either
+     *         start or end data do not correspond to a graph node
+     */
+    protected SearchNode computeShortestPathIndexed(NodeType start, NodeType end) {
+	Node startNode = nodes.getOrNull(start);
+	Node endNode = nodes.getOrNull(end);
+	if(startNode == null || endNode == null)
+		return null;
+
+	//costs and the node each node was reached from are indexed by node id
+	SearchWorkspace workspace = SearchWorkspace.acquire();
+	try {
+		IndexedMinHeap paths = workspace.start(getNodeIdBound());
+		return searchIndexed(startNode, endNode, workspace, paths);
+	} finally {
+		workspace.release();
+	}
+    }
+
+    /**
+     * Computes the shortest path from start to end like
+     * computeShortestPathIndexed, but with a BucketQueue in place of the heap.
+     * The range of edge weights that sizes its buckets is measured once per
+     * version of this graph. When a weight is negative, or the weights need
+     * more than MAX_BUCKETS buckets, this falls back to
+     * computeShortestPathIndexed.
+     *
+     * @param start the data item in the starting node for the path
+     * @param end   the data item in the destination node for the path
+     * @return SearchNode for the final end node within the shortest path, or
+     *         null when no path from start to end is found or when either
+     *         start or end data do not correspond to a graph node
+     */
+    protected SearchNode computeShortestPathBuckets(NodeType start, NodeType end) {
+	Node startNode = nodes.getOrNull(start);
+	Node endNode = nodes.getOrNull(end);
+	if(startNode == null || endNode == null)
+		return null;
+	WeightRange range = weightRange;
+	if(range == null || range.version != version)
+		weightRange = range = measureWeights();
+	if(!range.fitsBuckets())
+		return computeShortestPathIndexed(start, end);
+
+	SearchWorkspace workspace = SearchWorkspace.acquire();
+	try {
+		BucketQueue paths = workspace.startBuckets(getNodeIdBound(), range.smallest, range.largest);
+		return searchIndexed(startNode, endNode, workspace, paths);
+	} finally {
+		workspace.release();
+	}
+    }
+
+    /**
+     * @return true if the edge weights last measured by measureWeights are
+     *         all non-negative, and fit into at most MAX_BUCKETS buckets
+     */
+    protected boolean canUseBuckets() {
+	WeightRange range = weightRange;
+	return range != null && range.fitsBuckets();
+    }
+
+    /**
+     * Finds the smallest positive and the largest edge weight in this graph,
+     * for the BUCKET_QUEUE search. Both are NaN when any weight is negative
+     * (or NaN), or when no weight is positive.
+     *
+     * @return the weights, measured at this graph's current version
+     */
+    protected WeightRange measureWeights() {
+	double smallest = Double.POSITIVE_INFINITY;
+	double largest = 0;
+	boolean usable = true;
+	for(Node node : nodesById) {
+		if(node == null)
+			continue;
+		for(Edge edge : node.edgesLeaving) {
+			double weight = edge.data.doubleValue();
+			if(!(weight >= 0))
+				usable = false;
+			else if(weight > 0 && weight < smallest)
+				smallest = weight;
+			largest = Math.max(largest, weight);
+		}
+	}
+	usable = usable && smallest != Double.POSITIVE_INFINITY;
+	return usable ? new WeightRange(smallest, largest, version)
+			: new WeightRange(Double.NaN, Double.NaN, version);
+    }
+
+    /**
+     * Runs Dijkstra's algorithm from startNode until endNode is settled,
+     * keeping a single entry per node in paths, and the costs and
+     * predecessors of reached nodes in workspace.
+     *
+     * @param startNode the node to search from
+     * @param endNode   the node to search for
+     * @param workspace the workspace of this search, already started
+     * @param paths     the empty queue of this search
+     * @return SearchNode for endNode within the shortest path, or null when
+     *         no path from startNode to endNode is found
+     */
+    protected SearchNode searchIndexed(Node startNode, Node endNode, SearchWorkspace workspace,
+		    IndexedMinQueue paths) {
+	workspace.reach(startNode.id, 0, -1);
+	paths.insert(startNode.id, 0);
+
+	while(!paths.isEmpty()) {
+		//take the cheapest node off the queue, and return its path if it is the end
+		Node node = nodesById.get(paths.poll());
+		if(node == endNode)
+			return buildSearchPath(node, workspace);
+		workspace.settle(node.id);
+		double cost = workspace.getCost(node.id);
+
+		//add or lower the cost of each unsettled successor
+		for(Edge edge : node.edgesLeaving) {
+			int successor = edge.successor.id;
+			if(workspace.isSettled(successor))
+				continue;
+			double newCost = cost + edge.data.doubleValue();
+			if(!workspace.isReached(successor))
+				paths.insert(successor, newCost);
+			else if(newCost < workspace.getCost(successor))
+				paths.decreaseKey(successor, newCost);
+			else
+				continue;
+			workspace.reach(successor, newCost, node.id, edge.data.doubleValue());
+		}
+	}
+
+	return null;
+    }
+
+    /**
+     * Computes the shortest path from start to end with two searches: one
+     * forward from start along leaving edges, and one backward from end along
+     * entering edges, each always expanding whichever has the cheaper next
+     * node. Every time an edge reaches a node that the other search has also
+     * reached, the path through that node is a candidate. Once the cheapest
+     * nodes left in both searches cost at least as much together as the best
+     * candidate, no path through an unexplored node can be cheaper.
+     *
+     * @param start the data item in the starting node for the path
+     * @param end   the data item in the destination node for the path
+     * @return SearchNode for the final end node within the shortest path, or
+     *         null when no path from start to end is found or when either
+     *         start or end data do not correspond to a graph node
+     */
+    protected SearchNode computeShortestPathBidirectional(NodeType start, NodeType end) {
+	Node startNode = nodes.getOrNull(start);
+	Node endNode = nodes.getOrNull(end);
+	if(startNode == null || endNode == null)
+		return null;
+	if(startNode == endNode)
+		return new SearchNode(startNode, 0, null);
+
+	//forward search state: cost from start, and the node each node was reached from
+	SearchWorkspace forwardSearch = SearchWorkspace.acquire();
+	//backward search state: cost to end, and the node each node leaves toward end through
+	SearchWorkspace backwardSearch = SearchWorkspace.acquire();
+	try {
+		return searchBidirectional(startNode, endNode, forwardSearch, backwardSearch);
+	} finally {
+		forwardSearch.release();
+		backwardSearch.release();
+	}
+    }
+
+    /**
+     * Runs the two searches of computeShortestPathBidirectional from
+     * startNode and endNode until they meet.
+     *
+     * @param startNode      the node the path starts at
+     * @param endNode        the node the path ends at
+     * @param forwardSearch  the workspace to search forward from startNode in
+     * @param backwardSearch the workspace to search backward from endNode in
+     * @return SearchNode for endNode within the shortest path, or null when
+     *         no path from startNode to endNode is found
+     */
+    protected SearchNode searchBidirectional(Node startNode, Node endNode,
+		    SearchWorkspace forwardSearch, SearchWorkspace backwardSearch) {
+	int bound = getNodeIdBound();
+	IndexedMinHeap forward = forwardSearch.start(bound);
+	IndexedMinHeap backward = backwardSearch.start(bound);
+
+	forward.insert(startNode.id, 0);
+	forwardSearch.reach(startNode.id, 0, -1);
+	backward.insert(endNode.id, 0);
+	backwardSearch.reach(endNode.id, 0, -1);
+	double bestCost = Double.POSITIVE_INFINITY;
+	Node meetingNode = null;
+
+	while(!forward.isEmpty() && !backward.isEmpty()) {
+		//stop once neither search can lead to a cheaper path
+		if(forward.peekKey() + backward.peekKey() >= bestCost)
+			break;
+
+		if(forward.peekKey() <= backward.peekKey()) {
+			//expand the cheapest node of the forward search along its leaving edges
+			Node node = nodesById.get(forward.poll());
+			forwardSearch.settle(node.id);
+			double cost = forwardSearch.getCost(node.id);
+			for(Edge edge : node.edgesLeaving) {
+				int successor = edge.successor.id;
+				if(forwardSearch.isSettled(successor))
+					continue;
+				double newCost = cost + edge.data.doubleValue();
+				if(!forwardSearch.isReached(successor))
+					forward.insert(successor, newCost);
+				else if(newCost < forwardSearch.getCost(successor))
+					forward.decreaseKey(successor, newCost);
+				else
+					continue;
+				forwardSearch.reach(successor, newCost, node.id, edge.data.doubleValue());
+				//the backward search has already found a way from here to the end
+				if(newCost + backwardSearch.getCost(successor) < bestCost) {
+					bestCost = newCost + backwardSearch.getCost(successor);
+					meetingNode = edge.successor;
+				}
+			}
+		} else {
+			//expand the cheapest node of the backward search along its entering edges
+			Node node = nodesById.get(backward.poll());
+			backwardSearch.settle(node.id);
+			double cost = backwardSearch.getCost(node.id);
+			for(Edge edge : node.edgesEntering) {
+				int predecessor = edge.predecessor.id;
+				if(backwardSearch.isSettled(predecessor))
+					continue;
+				double newCost = cost + edge.data.doubleValue();
+				if(!backwardSearch.isReached(predecessor))
+					backward.insert(predecessor, newCost);
+				else if(newCost < backwardSearch.getCost(predecessor))
+					backward.decreaseKey(predecessor, newCost);
+				else
+					continue;
+				backwardSearch.reach(predecessor, newCost, node.id, edge.data.doubleValue());
+				//the forward search has already found a way from the start to here
+				if(forwardSearch.getCost(predecessor) + newCost < bestCost) {
+					bestCost = forwardSearch.getCost(predecessor) + newCost;
+					meetingNode = edge.predecessor;
+				}
+			}
+		}
+	}
+
+	if(meetingNode == null)
+		return null;
+
+	//join the forward path up to the meeting node with the backward path after it
+	SearchNode path = buildSearchPath(meetingNode, forwardSearch);
+	for(int id = backwardSearch.getPredecessor(meetingNode.id); id >= 0;
+			id = backwardSearch.getPredecessor(id)) {
+		//the backward search reached path.node through the edge leading to id
+		double weight = backwardSearch.getEdgeWeight(path.node.id);
+		path = new SearchNode(nodesById.get(id), path.cost + weight, path, weight);
+	}
+	return path;
+    }
+
+    /**
+     * Computes the shortest path from start to end with an A* search over a
+     * snapshot of this graph, directed by the lower bounds of the current
+     * LandmarkIndex. When there is no up to date index, this falls back to
+     * computeShortestPathIndexed.
+     *
+     * @param start the data item in the starting node for the path
+     * @param end   the data item in the destination node for the path
+     * @return SearchNode for the final end node within the shortest path, or
+     *         null when no path from start to end is found or when either
+     *         start or end data do not correspond to a graph node
+     */
+    protected SearchNode computeShortestPathLandmarks(NodeType start, NodeType end) {
+	LandmarkIndex<NodeType> index = getLandmarkIndex();
+	if(index == null)
+		return computeShortestPathIndexed(start, end);
+	CsrGraph<NodeType> snapshot = index.getGraph();
+	int startId = snapshot.getId(start);
+	int endId = snapshot.getId(end);
+	if(startId < 0 || endId < 0)
+		return null;
+
+	SearchWorkspace workspace = SearchWorkspace.acquire();
+	try {
+		if(!index.search(startId, endId, workspace))
+			return null;
+		return buildSearchPath(snapshot, endId, workspace);
+	} finally {
+		workspace.release();
+	}
+    }
+
+    /**
+     * Computes the shortest path from start to end with the upward searches of
+     * the current ContractionHierarchy. When there is no up to date hierarchy,
+     * this falls back to computeShortestPathIndexed.
+     *
+     * @param start the data item in the starting node for the path
+     * @param end   the data item in the destination node for the path
+     * @return SearchNode for the final end node within the shortest path, or
+     *         null when no path from start to end is found or when either
+     *         start or end data do not correspond to a graph node
+     */
+    protected SearchNode computeShortestPathHierarchy(NodeType start, NodeType end) {
+	ContractionHierarchy<NodeType> current = getContractionHierarchy();
+	if(current == null)
+		return computeShortestPathIndexed(start, end);
+	CsrGraph<NodeType> snapshot = current.getGraph();
+	int startId = snapshot.getId(start);
+	int endId = snapshot.getId(end);
+	if(startId < 0 || endId < 0)
+		return null;
+
+	int[] pathEdges = current.shortestPathEdges(startId, endId);
+	if(pathEdges == null)
+		return null;
+	return buildSearchPathFromEdges(snapshot, startId, pathEdges);
+    }
+
+    /**
+     * Reads the shortest path from start to end out of the current
+     * AllPairsTable. When there is no up to date table, this falls back to
+     * computeShortestPathIndexed.
+     *
+     * @param start the data item in the starting node for the path
+     * @param end   the data item in the destination node for the path
+     * @return SearchNode for the final end node within the shortest path, or
+     *         null when no path from start to end is found or when either
+     *         start or end data do not correspond to a graph node
+     */
+    protected SearchNode computeShortestPathAllPairs(NodeType start, NodeType end) {
+	AllPairsTable<NodeType> table = getAllPairsTable();
+	if(table == null)
+		return computeShortestPathIndexed(start, end);
+	CsrGraph<NodeType> snapshot = table.getGraph();
+	int startId = snapshot.getId(start);
+	int endId = snapshot.getId(end);
+	if(startId < 0 || endId < 0)
+		return null;
+
+	int[] pathEdges = table.shortestPathEdges(startId, endId);
+	if(pathEdges == null)
+		return null;
+	return buildSearchPathFromEdges(snapshot, startId, pathEdges);
+    }
+
+    /**
+     * Builds the chain of SearchNodes along a path of snapshot edges, summing
+     * their costs from the start in the same order as the other searches.
+     *
+     * @param snapshot  the snapshot of this graph that the path is within
+     * @param startId   the snapshot id of the first node on the path
+     * @param pathEdges the index of each snapshot edge along the path, in order
+     * @return SearchNode for the last node on the path, linked back through
+     *         the whole path
+     */
+    protected SearchNode buildSearchPathFromEdges(CsrGraph<NodeType> snapshot, int startId,
+		int[] pathEdges) {
+	SearchNode path = new SearchNode(nodes.get(snapshot.getData(startId)), 0, null);
+	for(int edge : pathEdges)
+		path = new SearchNode(nodes.get(snapshot.getData(snapshot.targets[edge])),
+				path.cost + snapshot.weights[edge], path, snapshot.weights[edge]);
+	return path;
+    }
+
+    /**
+     * Builds the chain of SearchNodes along a path found within a snapshot of
+     * this graph, by following the edge that each node was reached through
+     * back to the start. The edges are collected in a loop rather than by
+     * recursion, so that long paths cannot overflow the call stack, and costs
+     * are then summed from the start in path order.
+     *
+     * @param snapshot  the snapshot of this graph that was searched
+     * @param id        the snapshot id of the last node on the path
+     * @param workspace the search that reached id, holding in place of the
+     *                  node each node was reached from the index of the
+     *                  snapshot edge it was reached through, or -1 for the
+     *                  start node
+     * @return SearchNode for the node with this id, linked back through the
+     *         whole path
+     */
+    protected SearchNode buildSearchPath(CsrGraph<NodeType> snapshot, int id, SearchWorkspace workspace) {
+	//count the edges along the path, then list them from the start
+	int hops = 0;
+	int startId = id;
+	for(; workspace.getPredecessor(startId) >= 0; hops++)
+		startId = snapshot.getEdgeSource(workspace.getPredecessor(startId));
+	int[] pathEdges = new int[hops];
+	for(int v = id; v != startId; v = snapshot.getEdgeSource(pathEdges[hops]))
+		pathEdges[--hops] = workspace.getPredecessor(v);
+	return buildSearchPathFromEdges(snapshot, startId, pathEdges);
+    }
+
+    /**
+     * Builds the chain of SearchNodes along the path that ends at node, by
+     * following the node that each node was reached from back to the start in
+     * a loop, so that long paths cannot overflow the call stack. The weight
+     * of each edge is read from the workspace, which recorded it when the
+     * node was reached, so no edge is looked up again.
+     *
+     * @param node      the last node on the path
+     * @param workspace the search that reached node, holding the cost of, the
+     *                  predecessor of, and the weight of the edge into each
+     *                  node along the path
+     * @return SearchNode for node, linked back through the whole path
+     */
+    protected SearchNode buildSearchPath(Node node, SearchWorkspace workspace) {
+	SearchNode path = new SearchNode(node, workspace.getCost(node.id), null);
+	SearchNode successor = path;
+	for(int id = workspace.getPredecessor(node.id); id >= 0; id = workspace.getPredecessor(id)) {
+		successor.edgeWeight = workspace.getEdgeWeight(successor.node.id);
+		successor.predecessor = new SearchNode(nodesById.get(id), workspace.getCost(id), null);
+		successor = successor.predecessor;
+	}
+	return path;
     }
 
     /**
@@ -150,11 +1094,148 @@ public class DijkstraGraph<NodeType, EdgeType extends Number>
         return computeShortestPath(start, end).cost;
     }
 
+    /**
+     * Returns the nodes, edge weights and total cost of the shortest path from
+     * start to end, all read from the chain of SearchNodes found by a single
+     * search.
+     *
+     * @param start the data item in the starting node for the path
+     * @param end   the data item in the destination node for the path
+     * @return the route along this shortest path
+     * @throws NoSuchElementException when no path from start to end is found
+     *                                or when either start or end data do not
+     *                                correspond to a graph node
+     */
+    @Override
+    public Route<NodeType> shortestPathRoute(NodeType start, NodeType end) {
+	return buildRoute(computeShortestPath(start, end));
+    }
+
+    /**
+     * Returns the same route as shortestPathRoute, or null without throwing
+     * an exception when there is no path from start to end, or when either
+     * start or end data do not correspond to a graph node.
+     *
+     * @param start the data item in the starting node for the path
+     * @param end   the data item in the destination node for the path
+     * @return the route along this shortest path, or null if there is none
+     */
+    @Override
+    public Route<NodeType> tryShortestPath(NodeType start, NodeType end) {
+	SearchNode last = findShortestPath(start, end);
+	return last == null ? null : buildRoute(last);
+    }
+
+    /**
+     * Reads the nodes, edge weights and total cost of a path out of its chain
+     * of SearchNodes.
+     *
+     * @param last SearchNode for the final node within the path
+     * @return the route along this path
+     */
+    protected Route<NodeType> buildRoute(SearchNode last) {
+	LinkedList<NodeType> path = new LinkedList<>();
+	LinkedList<Double> edgeWeights = new LinkedList<>();
+	for(SearchNode search = last; search != null; search = search.predecessor) {
+		path.addFirst(search.node.data);
+		if(search.predecessor != null)
+			edgeWeights.addFirst(search.edgeWeight);
+	}
+	return new Route<>(path, edgeWeights, last.cost);
+    }
+
+    /**
+     * Returns the tree of shortest paths from start to every node that can be
+     * reached from it, found by a single run of Dijkstra's algorithm over an
+     * IndexedMinHeap, or by a DeltaStepping search when parallel tree search
+     * is turned on. That search and its snapshot are kept for every tree
+     * built until this graph changes. This replaces one search per node, whatever the current
+     * SearchStrategy is.
+     *
+     * @param start the data item in the starting node for every path
+     * @return the tree of shortest paths from start
+     * @throws NoSuchElementException if start is not a node in this graph
+     */
+    @Override
+    public ShortestPathTree<NodeType> shortestPathTree(NodeType start) {
+	if(parallelTreeSearch)
+		return getTreeSearch().shortestPathTree(start);
+	if(!nodes.containsKey(start))
+		throw new NoSuchElementException();
+	ShortestPathTree<NodeType> tree = new ShortestPathTree<>(start);
+	int bound = getNodeIdBound();
+	int[] hopCounts = new int[bound];
+	@SuppressWarnings("unchecked")
+	Edge[] predecessorEdges = (Edge[]) new BaseGraph<?, ?>.Edge[bound];
+	boolean[] visited = new boolean[bound];
+	IndexedMinHeap paths = new IndexedMinHeap(bound);
+	paths.insert(nodes.get(start).id, 0);
+
+	while(!paths.isEmpty()) {
+		//add each node to the tree as it is settled, after its predecessor
+		Node node = nodesById.get(paths.peek());
+		double cost = paths.peekKey();
+		paths.poll();
+		visited[node.id] = true;
+		Edge reachedBy = predecessorEdges[node.id];
+		if(reachedBy != null) {
+			hopCounts[node.id] = hopCounts[reachedBy.predecessor.id] + 1;
+			tree.add(node.data, reachedBy.predecessor.data, cost, hopCounts[node.id]);
+		}
+
+		for(Edge edge : node.edgesLeaving) {
+			int successor = edge.successor.id;
+			if(visited[successor])
+				continue;
+			double newCost = cost + edge.data.doubleValue();
+			if(!paths.contains(successor))
+				paths.insert(successor, newCost);
+			else if(newCost < paths.getKey(successor))
+				paths.decreaseKey(successor, newCost);
+			else
+				continue;
+			predecessorEdges[successor] = edge;
+		}
+	}
+	return tree;
+    }
+
+    /**
+     * Returns the cost of the shortest path from each of the sources to each
+     * of the targets, whatever the current SearchStrategy is. When there is
+     * an up to date AllPairsTable these costs are read out of it. Otherwise
+     * a snapshot of this graph is searched once from each source, with the
+     * sources searched in parallel (see CsrGraph.shortestPathCosts). That
+     * snapshot is shared by every call until this graph changes again.
+     *
+     * @param sources the data items in the starting nodes, one per row
+     * @param targets the data items in the destination nodes, one per column
+     * @return a matrix where [i][j] is the cost of the shortest path from
+     *         sources.get(i) to targets.get(j), or Double.POSITIVE_INFINITY
+     *         when there is no path between them
+     * @throws NoSuchElementException if any source or target is not a node in
+     *                                this graph
+     */
+    @Override
+    public double[][] shortestPathCosts(List<NodeType> sources, List<NodeType> targets) {
+	AllPairsTable<NodeType> table = getAllPairsTable();
+	if(table == null)
+		return snapshot().shortestPathCosts(sources, targets);
+	CsrGraph<NodeType> snapshot = table.getGraph();
+	int[] sourceIds = snapshot.getIds(sources);
+	int[] targetIds = snapshot.getIds(targets);
+	double[][] costs = new double[sourceIds.length][targetIds.length];
+	for(int i = 0; i < sourceIds.length; i++)
+		for(int j = 0; j < targetIds.length; j++)
+			costs[i][j] = table.getCost(sourceIds[i], targetIds[j]);
+	return costs;
+    }
+
    /**
     * makes a weighted graph we went over during lecture
     */
-    private DijkstraGraph makeGraph() {
-        DijkstraGraph test = new DijkstraGraph();
+    private DijkstraGraph<String, Integer> makeGraph() {
+        DijkstraGraph<String, Integer> test = new DijkstraGraph<>();
         test.insertNode("A");
         test.insertNode("B");
         test.insertNode("C");
@@ -216,6 +1297,728 @@ public class DijkstraGraph<NodeType, EdgeType extends Number>
                 Assertions.fail("shortestPathLectureTest() testing method failed when checking cost");
     }
 
+   /**
+    * checks that strategy finds paths with the same cost as the lazy search
+    * between every pair of nodes in test, and fails to find the same paths
+    */
+    private void assertSameAsLazy(DijkstraGraph<String, Integer> test, SearchStrategy strategy) {
+	String[] names = { "A", "B", "C", "D", "E", "F", "G", "H", "X" };
+	for(String start : names) {
+		for(String end : names) {
+			test.setSearchStrategy(SearchStrategy.LAZY_QUEUE);
+			boolean found = test.containsNode(start) && test.containsNode(end);
+			double expectedCost = -1;
+			try { expectedCost = test.shortestPathCost(start, end); }
+			catch(NoSuchElementException e) { found = false; }
+
+			test.setSearchStrategy(strategy);
+			if(found)
+				Assertions.assertEquals(expectedCost, test.shortestPathCost(start, end),
+						strategy + " cost from " + start + " to " + end);
+			else
+				Assertions.assertThrows(NoSuchElementException.class,
+						() -> test.shortestPathCost(start, end));
+		}
+	}
+    }
+
+   /**
+    * tests that the indexed heap search finds the same paths as the lazy one
+    */
+    @Test
+    public void indexedHeapTest() {
+	DijkstraGraph<String, Integer> test = makeGraph();
+	assertSameAsLazy(test, SearchStrategy.INDEXED_HEAP);
+	Assertions.assertEquals(List.of("A", "B", "D", "F", "H"), test.shortestPathData("A", "H"));
+
+	//a graph storing its nodes in another map finds the same paths
+	DijkstraGraph<String, Integer> hashed = DijkstraGraph.withMap(new HashtableMap<>());
+	for(String node : List.of("A", "B", "D", "F", "H"))
+		hashed.insertNode(node);
+	hashed.insertEdge("A", "B", 4);
+	hashed.insertEdge("B", "D", 1);
+	hashed.insertEdge("D", "F", 0);
+	hashed.insertEdge("F", "H", 4);
+	Assertions.assertTrue(hashed.nodes instanceof HashtableMap);
+	Assertions.assertEquals(List.of("A", "B", "D", "F", "H"), hashed.shortestPathData("A", "H"));
+    }
+
+   /**
+    * tests that the bucket queue search finds the same paths as the indexed
+    * heap one, and falls back to it when the weights do not fit its buckets
+    */
+    @Test
+    public void bucketQueueTest() {
+	DijkstraGraph<String, Integer> test = makeGraph();
+	assertSameAsLazy(test, SearchStrategy.BUCKET_QUEUE);
+	Assertions.assertTrue(test.canUseBuckets());
+
+	DijkstraGraph<Integer, Double> grid = GraphBenchmark.makeGridGraph(10, 17);
+	grid.insertNode(999); //cannot be reached from any other node
+	for(int start = 0; start < 100; start += 3) {
+		int from = start;
+		for(int end = 0; end < 100; end++) {
+			grid.setSearchStrategy(SearchStrategy.INDEXED_HEAP);
+			double expected = grid.shortestPathCost(start, end);
+			List<Integer> expectedPath = grid.shortestPathData(start, end);
+			grid.setSearchStrategy(SearchStrategy.BUCKET_QUEUE);
+			Assertions.assertEquals(expected, grid.shortestPathCost(start, end));
+			Assertions.assertEquals(expectedPath, grid.shortestPathData(start, end));
+		}
+		Assertions.assertThrows(NoSuchElementException.class, () -> grid.shortestPathCost(from, 999));
+	}
+	Assertions.assertTrue(grid.canUseBuckets());
+
+	//weights too far apart to fit into MAX_BUCKETS buckets
+	grid.insertEdge(0, 99, 1e-6);
+	Assertions.assertEquals(1e-6, grid.shortestPathCost(0, 99));
+	Assertions.assertFalse(grid.canUseBuckets());
+	//a negative weight
+	grid.insertEdge(0, 99, -1.0);
+	Assertions.assertEquals(-1.0, grid.shortestPathCost(0, 99));
+	Assertions.assertFalse(grid.canUseBuckets());
+	//back within range once that edge is gone
+	grid.removeEdge(0, 99);
+	grid.setSearchStrategy(SearchStrategy.INDEXED_HEAP);
+	double expected = grid.shortestPathCost(0, 99);
+	grid.setSearchStrategy(SearchStrategy.BUCKET_QUEUE);
+	Assertions.assertEquals(expected, grid.shortestPathCost(0, 99));
+	Assertions.assertTrue(grid.canUseBuckets());
+    }
+
+   /**
+    * tests that the bidirectional search finds the same paths as the lazy one
+    */
+    @Test
+    public void bidirectionalTest() {
+	DijkstraGraph<String, Integer> test = makeGraph();
+	assertSameAsLazy(test, SearchStrategy.BIDIRECTIONAL);
+	Assertions.assertEquals(List.of("A", "B", "D", "F", "H"), test.shortestPathData("A", "H"));
+	Assertions.assertEquals(List.of("C"), test.shortestPathData("C", "C"));
+    }
+
+   /**
+    * tests that paths far longer than the call stack is deep are built
+    * without overflowing it, from both workspace and snapshot searches
+    */
+    @Test
+    public void longPathTest() {
+	int length = 200000;
+	DijkstraGraph<Integer, Double> chain = new DijkstraGraph<>();
+	for(int i = 0; i < length; i++)
+		chain.insertNode(i);
+	for(int i = 1; i < length; i++)
+		chain.insertEdge(i - 1, i, 0.5);
+	SearchStrategy[] strategies = { SearchStrategy.INDEXED_HEAP, SearchStrategy.BIDIRECTIONAL };
+	for(SearchStrategy strategy : strategies) {
+		chain.setSearchStrategy(strategy);
+		Assertions.assertEquals(length - 1, chain.shortestPathCost(0, length - 1) * 2);
+		Assertions.assertEquals(length, chain.shortestPathData(0, length - 1).size());
+	}
+	CsrGraph<Integer> snapshot = chain.freeze();
+	SearchWorkspace workspace = new SearchWorkspace();
+	workspace.start(length);
+	workspace.reach(snapshot.getId(0), 0, -1);
+	for(int i = 1; i < length; i++)
+		workspace.reach(snapshot.getId(i), i / 2.0, snapshot.offsets[snapshot.getId(i - 1)]);
+	DijkstraGraph<Integer, Double>.SearchNode path =
+			chain.buildSearchPath(snapshot, snapshot.getId(length - 1), workspace);
+	Assertions.assertEquals((length - 1) / 2.0, path.cost);
+	Assertions.assertEquals(0.5, path.edgeWeight);
+	Assertions.assertEquals((int) path.predecessor.node.data, length - 2);
+    }
+
+   /**
+    * tests that a frozen CsrGraph snapshot has the same edges and shortest
+    * paths as the graph it was created from
+    */
+    @Test
+    public void freezeTest() {
+	DijkstraGraph<String, Integer> test = makeGraph();
+	CsrGraph<String> frozen = test.freeze();
+	Assertions.assertEquals(test.getNodeCount(), frozen.getNodeCount());
+	Assertions.assertEquals(test.getEdgeCount(), frozen.getEdgeCount());
+	Assertions.assertEquals(4.0, frozen.getEdge("A", "B").doubleValue());
+	Assertions.assertFalse(frozen.containsEdge("B", "A"));
+
+	String[] names = { "A", "B", "C", "D", "E", "F", "G", "H" };
+	for(String start : names) {
+		for(String end : names) {
+			try {
+				double expectedCost = test.shortestPathCost(start, end);
+				Assertions.assertEquals(expectedCost, frozen.shortestPathCost(start, end));
+				Assertions.assertEquals(test.shortestPathData(start, end),
+						frozen.shortestPathData(start, end));
+			} catch(NoSuchElementException e) {
+				Assertions.assertThrows(NoSuchElementException.class,
+						() -> frozen.shortestPathData(start, end));
+			}
+		}
+	}
+
+	//the snapshot is read-only, and does not see later changes to the graph
+	Assertions.assertThrows(UnsupportedOperationException.class,
+			() -> frozen.insertNode("I"));
+	test.removeEdge("A", "B");
+	Assertions.assertEquals(4.0, frozen.getEdge("A", "B").doubleValue());
+    }
+
+   /**
+    * tests that the landmark search finds the same paths as the lazy one, and
+    * that its landmarks can be saved and loaded again
+    */
+    @Test
+    public void landmarksTest() throws java.io.IOException {
+	DijkstraGraph<String, Integer> test = makeGraph();
+	test.setSearchStrategy(SearchStrategy.LANDMARKS);
+	Assertions.assertNull(test.getLandmarkIndex());
+	Assertions.assertEquals(9.0, test.shortestPathCost("A", "H")); // no index yet
+
+	test.prepareLandmarks(3);
+	assertSameAsLazy(test, SearchStrategy.LANDMARKS);
+	Assertions.assertEquals(List.of("A", "B", "D", "F", "H"), test.shortestPathData("A", "H"));
+
+	java.io.File file = java.io.File.createTempFile("landmarks", ".bin");
+	file.deleteOnExit();
+	test.getLandmarkIndex().save(file.getPath());
+	CsrGraph<String> frozen = test.freeze();
+	Assertions.assertNotNull(LandmarkIndex.load(file.getPath(), frozen));
+
+	//changing the graph makes the index stale, so it is no longer used
+	test.insertEdge("A", "H", 1);
+	Assertions.assertNull(test.getLandmarkIndex());
+	Assertions.assertEquals(1.0, test.shortestPathCost("A", "H"));
+	Assertions.assertNull(LandmarkIndex.load(file.getPath(), test.freeze()));
+    }
+
+   /**
+    * tests that the contraction hierarchy search finds the same paths as the
+    * lazy one, and that its hierarchy can be saved and loaded again
+    */
+    @Test
+    public void contractionHierarchyTest() throws java.io.IOException {
+	DijkstraGraph<String, Integer> test = makeGraph();
+	test.setSearchStrategy(SearchStrategy.CONTRACTION_HIERARCHY);
+	Assertions.assertNull(test.getContractionHierarchy());
+	Assertions.assertEquals(9.0, test.shortestPathCost("A", "H")); // no hierarchy yet
+
+	test.prepareContractionHierarchy();
+	assertSameAsLazy(test, SearchStrategy.CONTRACTION_HIERARCHY);
+	Assertions.assertEquals(List.of("A", "B", "D", "F", "H"), test.shortestPathData("A", "H"));
+
+	java.io.File file = java.io.File.createTempFile("hierarchy", ".bin");
+	file.deleteOnExit();
+	test.getContractionHierarchy().save(file.getPath());
+	ContractionHierarchy<String> loaded = ContractionHierarchy.load(file.getPath(), test.freeze());
+	Assertions.assertNotNull(loaded);
+	test.setContractionHierarchy(loaded);
+	assertSameAsLazy(test, SearchStrategy.CONTRACTION_HIERARCHY);
+
+	//changing the graph makes the hierarchy stale, so it is no longer used
+	test.insertEdge("A", "H", 1);
+	Assertions.assertNull(test.getContractionHierarchy());
+	Assertions.assertEquals(1.0, test.shortestPathCost("A", "H"));
+	Assertions.assertNull(ContractionHierarchy.load(file.getPath(), test.freeze()));
+    }
+
+   /**
+    * tests that the contraction hierarchy search finds the same costs as the
+    * lazy one between every pair of nodes in a grid with random weights
+    */
+    @Test
+    public void contractionHierarchyGridTest() {
+	DijkstraGraph<Integer, Double> grid = GraphBenchmark.makeGridGraph(8, 3);
+	grid.prepareContractionHierarchy();
+	for(int start = 0; start < grid.getNodeCount(); start++) {
+		for(int end = 0; end < grid.getNodeCount(); end++) {
+			grid.setSearchStrategy(SearchStrategy.LAZY_QUEUE);
+			double expected = grid.shortestPathCost(start, end);
+			grid.setSearchStrategy(SearchStrategy.CONTRACTION_HIERARCHY);
+			Assertions.assertEquals(expected, grid.shortestPathCost(start, end), 1e-9);
+		}
+	}
+    }
+
+   /**
+    * tests that searches sharing this thread's SearchWorkspace find the same
+    * costs as the lazy one, after a search that found no path, and after the
+    * graph grows past the size of the workspace
+    */
+    @Test
+    public void searchWorkspaceTest() {
+	DijkstraGraph<Integer, Double> grid = GraphBenchmark.makeGridGraph(6, 5);
+	grid.insertNode(999); //cannot be reached from any other node
+	for(int round = 0; round < 2; round++) {
+		for(int start = 0; start < 36; start++) {
+			int from = start;
+			for(int end = 0; end < 36; end++) {
+				grid.setSearchStrategy(SearchStrategy.LAZY_QUEUE);
+				double expected = grid.shortestPathCost(start, end);
+				for(SearchStrategy strategy : List.of(SearchStrategy.INDEXED_HEAP,
+						SearchStrategy.BIDIRECTIONAL)) {
+					grid.setSearchStrategy(strategy);
+					Assertions.assertEquals(expected, grid.shortestPathCost(start, end), 1e-9);
+					Assertions.assertThrows(NoSuchElementException.class,
+							() -> grid.shortestPathCost(from, 999));
+				}
+			}
+		}
+		//a corner reachable only through a new node with a larger id
+		grid.insertNode(1000);
+		grid.insertEdge(35, 1000, 1.0);
+		grid.insertEdge(1000, 0, 1.0);
+		Assertions.assertEquals(1.0, grid.shortestPathCost(35, 1000));
+	}
+	CsrGraph<Integer> frozen = grid.freeze();
+	Assertions.assertEquals(grid.shortestPathCost(7, 30), frozen.shortestPathCost(7, 30), 1e-9);
+	Assertions.assertEquals(grid.shortestPathData(7, 30), frozen.shortestPathData(7, 30));
+    }
+
+   /**
+    * tests that a matrix of costs matches separate searches, both with and
+    * without an all pairs table, including repeated and unreachable targets
+    */
+    @Test
+    public void shortestPathCostsTest() {
+	DijkstraGraph<Integer, Double> grid = GraphBenchmark.makeGridGraph(7, 11);
+	grid.insertNode(100); //cannot be reached from any other node
+	List<Integer> sources = List.of(0, 48, 17, 100, 17);
+	List<Integer> targets = List.of(48, 3, 3, 0, 100, 25);
+	for(int round = 0; round < 2; round++) {
+		double[][] costs = grid.shortestPathCosts(sources, targets);
+		Assertions.assertEquals(sources.size(), costs.length);
+		for(int i = 0; i < sources.size(); i++) {
+			Assertions.assertEquals(targets.size(), costs[i].length);
+			for(int j = 0; j < targets.size(); j++) {
+				double expected = Double.POSITIVE_INFINITY;
+				try {
+					expected = grid.shortestPathCost(sources.get(i), targets.get(j));
+				} catch(NoSuchElementException e) {
+					//no path, so the matrix should hold infinity
+				}
+				Assertions.assertEquals(expected, costs[i][j], 1e-9);
+			}
+		}
+		grid.prepareAllPairs();
+	}
+	Assertions.assertNotNull(grid.getAllPairsTable());
+	Assertions.assertEquals(0, grid.shortestPathCosts(List.of(), targets).length);
+	Assertions.assertThrows(NoSuchElementException.class,
+			() -> grid.shortestPathCosts(List.of(0), List.of(-1)));
+	grid.insertEdge(0, 1, 1.0);
+	Assertions.assertThrows(NoSuchElementException.class,
+			() -> grid.shortestPathCosts(List.of(-1), List.of(0)));
+    }
+
+   /**
+    * checks that index shows a path between exactly the pairs of nodes of
+    * test that the lazy search finds a path between
+    */
+    private void assertSameAsSearching(DijkstraGraph<Integer, Double> test, ReachabilityIndex<Integer> index) {
+	for(int start : test.getAllNodes()) {
+		boolean reachesOthers = false;
+		for(int end : test.getAllNodes()) {
+			//the lazy search never checks the index, unlike computeShortestPath
+			boolean found = test.computeShortestPathLazy(start, end) != null;
+			Assertions.assertEquals(found, index.mayReach(start, end), start + " to " + end);
+			reachesOthers |= found && start != end;
+		}
+		Assertions.assertEquals(reachesOthers, index.reachesOthers(index.getGraph().getId(start)));
+	}
+    }
+
+   /**
+    * tests that the reachability index answers exactly like searching on a
+    * graph with many components, that it stays up to date through changes
+    * that add no paths, and that long chains of components are handled
+    * without a closure
+    */
+    @Test
+    public void reachabilityTest() {
+	java.util.Random random = new java.util.Random(24);
+	DijkstraGraph<Integer, Double> test = new DijkstraGraph<>();
+	for(int i = 0; i < 40; i++)
+		test.insertNode(i);
+	for(int e = 0; e < 45; e++)
+		test.insertEdge(random.nextInt(40), random.nextInt(40), 1.0);
+	test.prepareReachability();
+	ReachabilityIndex<Integer> index = test.getReachabilityIndex();
+	Assertions.assertTrue(index.isExact());
+	Assertions.assertTrue(index.getComponentCount() > 1);
+	assertSameAsSearching(test, index);
+
+	//an edge between nodes that already reach each other keeps the index,
+	//as do removals and new nodes
+	int from = 0;
+	int to = 0;
+	while(from == to || !index.mayReach(from, to)) {
+		from = random.nextInt(40);
+		to = random.nextInt(40);
+	}
+	test.insertEdge(from, to, 5.0);
+	test.removeEdge(from, to);
+	test.insertNode(40);
+	Assertions.assertTrue(test.getReachabilityIndex() == index);
+	Assertions.assertThrows(NoSuchElementException.class, () -> test.shortestPathCost(0, 40));
+	Assertions.assertThrows(NoSuchElementException.class, () -> test.shortestPathCost(0, 41));
+	Assertions.assertEquals(0.0, test.shortestPathCost(40, 40));
+	//edges into a new node, or between nodes that could not reach each
+	//other, compute the index again
+	test.insertEdge(0, 40, 1.0);
+	Assertions.assertFalse(test.getReachabilityIndex() == index);
+	Assertions.assertEquals(1.0, test.shortestPathCost(0, 40));
+	test.insertEdge(40, 39, 1.0);
+	assertSameAsSearching(test, test.getReachabilityIndex());
+
+	//searches on several threads that find the index out of date share the
+	//one index that is computed again
+	test.insertEdge(39, 0, 1.0);
+	List<ReachabilityIndex<Integer>> found = java.util.stream.IntStream.range(0, 8).parallel()
+			.mapToObj(i -> test.getReachabilityIndex()).toList();
+	for(ReachabilityIndex<Integer> shared : found)
+		Assertions.assertTrue(shared == test.getReachabilityIndex());
+
+	//two chains with more components than the closure holds
+	int length = ReachabilityIndex.MAX_CLOSURE_COMPONENTS + 100;
+	List<Integer> nodes = new ArrayList<>();
+	int[] sources = new int[2 * length];
+	int[] targets = new int[2 * length];
+	int edgeCount = 0;
+	for(int i = 0; i < 2 * length; i++) {
+		nodes.add(i);
+		if(i % length != length - 1) {
+			sources[edgeCount] = i;
+			targets[edgeCount++] = i + 1;
+		}
+	}
+	ReachabilityIndex<Integer> chains = new ReachabilityIndex<>(
+			CsrGraph.fromEdgeList(nodes, sources, targets, new double[edgeCount], edgeCount));
+	Assertions.assertFalse(chains.isExact());
+	Assertions.assertEquals(2 * length, chains.getComponentCount());
+	Assertions.assertTrue(chains.mayReach(3, length - 1));
+	Assertions.assertFalse(chains.mayReach(length - 1, 3));
+	Assertions.assertFalse(chains.mayReach(3, length + 5));
+	Assertions.assertFalse(chains.reachesOthers(length - 1));
+	Assertions.assertTrue(chains.reachesOthers(length));
+    }
+
+   /**
+    * tests that parallel tree search finds the same costs as the sequential
+    * one, and reuses one DeltaStepping search until this graph changes
+    */
+    @Test
+    public void parallelTreeSearchTest() {
+	DijkstraGraph<String, Integer> test = makeGraph();
+	test.setParallelTreeSearch(true);
+	DeltaStepping<String> search = test.getTreeSearch();
+	for(String start : test.getAllNodes()) {
+		ShortestPathTree<String> tree = test.shortestPathTree(start);
+		test.setParallelTreeSearch(false);
+		ShortestPathTree<String> expected = test.shortestPathTree(start);
+		test.setParallelTreeSearch(true);
+		Assertions.assertEquals(expected.getReachedNodes().size(), tree.getReachedNodes().size());
+		for(String node : expected.getReachedNodes())
+			Assertions.assertEquals(expected.getCost(node), tree.getCost(node));
+	}
+	Assertions.assertTrue(test.getTreeSearch() == search);
+
+	test.insertEdge("A", "H", 1);
+	Assertions.assertFalse(test.getTreeSearch() == search);
+	Assertions.assertEquals(1.0, test.shortestPathTree("A").getCost("H"));
+    }
+
+   /**
+    * tests that a route holds the same nodes and cost as separate searches,
+    * along with the weight of each edge along the path
+    */
+    @Test
+    public void shortestPathRouteTest() {
+	DijkstraGraph<String, Integer> test = makeGraph();
+	test.prepareLandmarks(2);
+	test.prepareContractionHierarchy();
+	for(SearchStrategy strategy : SearchStrategy.values()) {
+		test.setSearchStrategy(strategy);
+		Route<String> route = test.shortestPathRoute("A", "H");
+		Assertions.assertEquals(List.of("A", "B", "D", "F", "H"), route.getNodes());
+		Assertions.assertEquals(List.of(4.0, 1.0, 0.0, 4.0), route.getEdgeWeights());
+		Assertions.assertEquals(test.shortestPathCost("A", "H"), route.getTotalCost());
+	}
+	Route<String> single = test.shortestPathRoute("C", "C");
+	Assertions.assertEquals(List.of("C"), single.getNodes());
+	Assertions.assertTrue(single.getEdgeWeights().isEmpty());
+	Assertions.assertThrows(NoSuchElementException.class, () -> test.shortestPathRoute("A", "G"));
+    }
+
+   /**
+    * tests that the lookups returning null find the same routes and edges as
+    * the ones that throw, and return null exactly where those throw
+    */
+    @Test
+    public void tryShortestPathTest() {
+	DijkstraGraph<String, Integer> test = makeGraph();
+	CsrGraph<String> frozen = test.freeze();
+	for(SearchStrategy strategy : SearchStrategy.values()) {
+		test.setSearchStrategy(strategy);
+		Route<String> route = test.tryShortestPath("A", "H");
+		Assertions.assertEquals(test.shortestPathRoute("A", "H").getNodes(), route.getNodes());
+		Assertions.assertEquals(test.shortestPathCost("A", "H"), route.getTotalCost());
+		Assertions.assertNull(test.tryShortestPath("A", "G"));
+		Assertions.assertNull(test.tryShortestPath("A", "Nowhere"));
+		Assertions.assertNull(test.tryShortestPath("Nowhere", "A"));
+	}
+	Route<String> frozenRoute = frozen.tryShortestPath("A", "H");
+	Assertions.assertEquals(test.shortestPathRoute("A", "H").getNodes(), frozenRoute.getNodes());
+	Assertions.assertEquals(test.shortestPathRoute("A", "H").getEdgeWeights(), frozenRoute.getEdgeWeights());
+	Assertions.assertEquals(List.of("C"), frozen.shortestPathRoute("C", "C").getNodes());
+	Assertions.assertNull(frozen.tryShortestPath("A", "G"));
+	Assertions.assertThrows(NoSuchElementException.class, () -> frozen.shortestPathRoute("A", "G"));
+
+	Assertions.assertEquals(4, (int) test.tryGetEdge("A", "B"));
+	Assertions.assertNull(test.tryGetEdge("B", "A"));
+	Assertions.assertNull(test.tryGetEdge("A", "Nowhere"));
+	Assertions.assertEquals(4.0, frozen.tryGetEdge("A", "B").doubleValue());
+	Assertions.assertNull(frozen.tryGetEdge("B", "A"));
+	Assertions.assertNull(frozen.tryGetEdge("Nowhere", "A"));
+    }
+
+   /**
+    * tests that the all pairs table finds the same paths as the lazy search,
+    * including across a saved and loaded table
+    */
+    @Test
+    public void allPairsTest() throws java.io.IOException {
+	DijkstraGraph<String, Integer> test = makeGraph();
+	test.setSearchStrategy(SearchStrategy.ALL_PAIRS);
+	Assertions.assertNull(test.getAllPairsTable());
+	Assertions.assertEquals(9.0, test.shortestPathCost("A", "H")); // no table yet
+
+	test.prepareAllPairs();
+	assertSameAsLazy(test, SearchStrategy.ALL_PAIRS);
+	Assertions.assertEquals(List.of("A", "B", "D", "F", "H"), test.shortestPathData("A", "H"));
+
+	java.io.File file = java.io.File.createTempFile("allpairs", ".bin");
+	file.deleteOnExit();
+	test.getAllPairsTable().save(file.getPath());
+	AllPairsTable<String> loaded = AllPairsTable.load(file.getPath(), test.freeze());
+	Assertions.assertNotNull(loaded);
+	test.setAllPairsTable(loaded);
+	assertSameAsLazy(test, SearchStrategy.ALL_PAIRS);
+
+	//changing the graph makes the table stale, so it is no longer used
+	test.insertEdge("A", "H", 1);
+	Assertions.assertNull(test.getAllPairsTable());
+	Assertions.assertEquals(1.0, test.shortestPathCost("A", "H"));
+	Assertions.assertNull(AllPairsTable.load(file.getPath(), test.freeze()));
+    }
+
+   /**
+    * tests that the landmarks and all-pairs table are moved over to the
+    * graph through batches of changes, and find the same paths as searching
+    * the changed graph does
+    */
+    @Test
+    public void changedIndexesTest() {
+	DijkstraGraph<String, Integer> test = makeGraph();
+	test.prepareLandmarks(3);
+	test.prepareAllPairs();
+	AllPairsTable<String> table = test.getAllPairsTable();
+
+	//B to D is on many shortest paths, while A to E is made cheaper
+	GraphChangeSet<String, Integer> changes = new GraphChangeSet<>();
+	changes.updateEdge("B", "D", 1, 6);
+	changes.updateEdge("A", "E", 15, 3);
+	test.applyChanges(changes);
+	Assertions.assertTrue(table != test.getAllPairsTable());
+	Assertions.assertEquals(3.0, test.getAllPairsTable().getCost(0, 4));
+	assertSameAsLazy(test, SearchStrategy.ALL_PAIRS);
+	assertSameAsLazy(test, SearchStrategy.LANDMARKS);
+
+	//a new node with edges in and out, and a removed node
+	changes = new GraphChangeSet<>();
+	changes.insertNode("X");
+	changes.insertEdge("H", "X", 1);
+	changes.insertEdge("X", "A", 2);
+	changes.removeEdge("A", "C", 2);
+	changes.removeEdge("C", "D", 5);
+	changes.removeNode("C");
+	test.applyChanges(changes);
+	Assertions.assertNotNull(test.getAllPairsTable());
+	Assertions.assertNotNull(test.getLandmarkIndex());
+	assertSameAsLazy(test, SearchStrategy.ALL_PAIRS);
+	assertSameAsLazy(test, SearchStrategy.LANDMARKS);
+	Assertions.assertEquals(List.of("H", "X", "A", "E"), test.shortestPathData("H", "E"));
+
+	//removing an edge and raising a weight, which only lengthens paths
+	changes = new GraphChangeSet<>();
+	changes.removeEdge("D", "F", 0);
+	changes.updateEdge("H", "X", 1, 3);
+	test.applyChanges(changes);
+	assertSameAsLazy(test, SearchStrategy.ALL_PAIRS);
+	assertSameAsLazy(test, SearchStrategy.LANDMARKS);
+	CsrGraph<String> snapshot = test.snapshot();
+	Assertions.assertTrue(snapshot == test.getAllPairsTable().getGraph());
+	Assertions.assertTrue(snapshot == test.getLandmarkIndex().getGraph());
+
+	//G is the first landmark chosen, since A cannot reach it
+	changes = new GraphChangeSet<>();
+	changes.removeEdge("G", "H", 4);
+	changes.removeNode("G");
+	test.applyChanges(changes);
+	Assertions.assertNull(test.getLandmarkIndex());
+	assertSameAsLazy(test, SearchStrategy.ALL_PAIRS);
+    }
+
+   /**
+    * tests that cached paths are returned until the graph changes, and that
+    * the least recently used path is evicted first
+    */
+    @Test
+    public void routeCacheTest() {
+	DijkstraGraph<String, Integer> test = makeGraph();
+	test.setRouteCacheCapacity(2);
+	RouteCache<String, DijkstraGraph<String, Integer>.SearchNode> cache = test.getRouteCache();
+	Assertions.assertEquals(9.0, test.shortestPathCost("A", "H"));
+	Assertions.assertEquals(9.0, test.shortestPathCost("A", "H"));
+	Assertions.assertEquals(1, cache.getHits());
+	Assertions.assertEquals(1, cache.getMisses());
+
+	//A to E is now the least recently used path, so it is evicted first
+	test.shortestPathCost("A", "E");
+	test.shortestPathCost("A", "H");
+	test.shortestPathCost("B", "E");
+	Assertions.assertEquals(2, cache.getSize());
+	test.shortestPathCost("A", "H");
+	Assertions.assertEquals(3, cache.getHits());
+	test.shortestPathCost("A", "E");
+	Assertions.assertEquals(3, cache.getHits());
+
+	//changing an edge makes every cached path stale
+	test.insertEdge("A", "H", 1);
+	Assertions.assertEquals(1.0, test.shortestPathCost("A", "H"));
+	test.removeEdge("A", "H");
+	Assertions.assertEquals(9.0, test.shortestPathCost("A", "H"));
+	Assertions.assertEquals(3, cache.getHits());
+	Assertions.assertThrows(NoSuchElementException.class, () -> test.shortestPathCost("A", "G"));
+    }
+
+   /**
+    * tests that a batch of changes that only lengthens paths keeps the cached
+    * paths it does not touch and the landmarks, and that listeners see it
+    */
+    @Test
+    public void applyChangesTest() {
+	DijkstraGraph<String, Integer> test = makeGraph();
+	test.setRouteCacheCapacity(16);
+	test.prepareLandmarks(2);
+	test.setSearchStrategy(SearchStrategy.LANDMARKS);
+	RouteCache<String, DijkstraGraph<String, Integer>.SearchNode> cache = test.getRouteCache();
+	List<GraphChangeSet<String, Integer>> heard = new ArrayList<>();
+	test.addChangeListener(heard::add);
+	Assertions.assertEquals(9.0, test.shortestPathCost("A", "H"));
+	Assertions.assertEquals(8.0, test.shortestPathCost("A", "E"));
+	Assertions.assertEquals(5.0, test.shortestPathCost("C", "D"));
+
+	//B to D is on the first two paths, and G to H is on none of them
+	GraphChangeSet<String, Integer> changes = new GraphChangeSet<>();
+	changes.updateEdge("B", "D", 1, 3);
+	changes.updateEdge("G", "H", 4, 6);
+	test.applyChanges(changes);
+	Assertions.assertEquals(List.of(changes), heard);
+	Assertions.assertEquals(1, cache.getSize());
+	Assertions.assertNotNull(test.getLandmarkIndex());
+	Assertions.assertEquals(5.0, test.shortestPathCost("C", "D"));
+	Assertions.assertEquals(1, cache.getHits());
+	Assertions.assertEquals(11.0, test.shortestPathCost("A", "H"));
+	Assertions.assertEquals(3, (int) test.getEdge("B", "D"));
+
+	//inserting an edge could make any path shorter, so the landmarks'
+	//costs are lowered through it
+	changes = new GraphChangeSet<>();
+	changes.insertEdge("A", "H", 1);
+	test.applyChanges(changes);
+	Assertions.assertNotNull(test.getLandmarkIndex());
+	Assertions.assertEquals(1.0, test.shortestPathCost("A", "H"));
+	Assertions.assertEquals(1, cache.getSize());
+	Assertions.assertEquals(2, heard.size());
+    }
+
+   /**
+    * tests that the edge index finds the same edges as scanning edge lists,
+    * and stays in sync as edges and nodes (including a hub) are removed
+    */
+    @Test
+    public void edgeIndexTest() {
+	for(boolean indexed : new boolean[] {true, false}) {
+		DijkstraGraph<Integer, Integer> test = new DijkstraGraph<>();
+		test.setEdgeIndexEnabled(indexed);
+		Assertions.assertEquals(indexed, test.isEdgeIndexEnabled());
+		for(int i = 0; i <= 1000; i++)
+			test.insertNode(i);
+		//node 0 is a hub with an edge to and from every other node
+		for(int i = 1; i <= 1000; i++) {
+			test.insertEdge(0, i, i);
+			test.insertEdge(i, 0, -i);
+		}
+		test.insertEdge(0, 0, 7);
+		test.insertEdge(0, 500, 5);
+		Assertions.assertEquals(2001, test.getEdgeCount());
+		Assertions.assertEquals(5, (int) test.getEdge(0, 500));
+		Assertions.assertEquals(-999, (int) test.getEdge(999, 0));
+		Assertions.assertFalse(test.containsEdge(1, 2));
+		Assertions.assertFalse(test.containsEdge(1, 5000));
+		Assertions.assertFalse(test.insertEdge(1, 5000, 1));
+		Assertions.assertThrows(NoSuchElementException.class, () -> test.getEdge(1, 2));
+
+		Assertions.assertTrue(test.removeEdge(0, 500));
+		Assertions.assertFalse(test.removeEdge(0, 500));
+		Assertions.assertFalse(test.containsEdge(0, 500));
+		Assertions.assertEquals(2000, test.getEdgeCount());
+
+		//removing the hub removes its edges, and its reused id starts clean
+		Assertions.assertTrue(test.removeNode(0));
+		Assertions.assertEquals(0, test.getEdgeCount());
+		test.insertNode(-1);
+		Assertions.assertFalse(test.containsEdge(-1, 1));
+		Assertions.assertFalse(test.containsEdge(1, -1));
+		test.insertEdge(-1, 1, 3);
+		Assertions.assertEquals(3, (int) test.getEdge(-1, 1));
+
+		//turning the index on later indexes the edges already in the graph
+		test.setEdgeIndexEnabled(true);
+		Assertions.assertEquals(3, (int) test.getEdge(-1, 1));
+		Assertions.assertFalse(test.containsEdge(1, -1));
+	}
+    }
+
+   /**
+    * tests that a shortest path tree has the same costs as separate searches,
+    * and leaves out the nodes that cannot be reached
+    */
+    @Test
+    public void shortestPathTreeTest() {
+	DijkstraGraph<String, Integer> test = makeGraph();
+	ShortestPathTree<String> tree = test.shortestPathTree("A");
+	Assertions.assertEquals("A", tree.getStart());
+	Assertions.assertEquals(List.of("A"), tree.getPath("A"));
+	Assertions.assertNull(tree.getPredecessor("A"));
+	Assertions.assertEquals(List.of("A", "B", "D", "F", "H"), tree.getPath("H"));
+	Assertions.assertEquals(4, tree.getHopCount("H"));
+
+	String[] names = { "B", "C", "D", "E", "F", "G", "H" };
+	for(String end : names) {
+		try {
+			double expectedCost = test.shortestPathCost("A", end);
+			Assertions.assertEquals(expectedCost, tree.getCost(end));
+			Assertions.assertEquals(test.shortestPathData("A", end).size() - 1, tree.getHopCount(end));
+		} catch(NoSuchElementException e) {
+			Assertions.assertFalse(tree.isReachable(end));
+			Assertions.assertThrows(NoSuchElementException.class, () -> tree.getPath(end));
+		}
+	}
+	Assertions.assertFalse(tree.isReachable("G"));
+	Assertions.assertThrows(NoSuchElementException.class, () -> test.shortestPathTree("X"));
+    }
+
    /**
     * tests running through a path between two nodes that dont connect at all
     */
@@ -0,0 +1,464 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This DotParser reads the nodes and weighted edges of a directed graph from a
+ * DOT file, one statement at a time, without loading the whole file or using
+ * regular expressions. Characters are read in large blocks from the Reader
+ * and tokenized by hand, and the data of a node is only turned into a new
+ * String when it differs from the nodes of the previous statement, since
+ * exported files usually list all the edges leaving a node together.
+ *
+ * The supported part of the DOT language covers what graph exporters write:
+ * quoted or unquoted ids (with \" escapes in quoted ids), edge chains like
+ * a -> b -> c, attribute lists, graph/node/edge default attribute statements
+ * and id = id statements (which are skipped), and // and C style comments,
+ * as well as lines starting with #. Every edge must have the weight
+ * attribute given to the constructor, like [seconds=105.8]. Anything that
+ * cannot be parsed is reported as an IOException whose message starts with
+ * the line number it was found on.
+ *
+ * Call next() to advance to each node or edge in turn:
+ *     while (parser.next())
+ *         if (parser.isEdge()) ... parser.getSource(), parser.getTarget(),
+ *                                  parser.getWeight()
+ */
+public class DotParser implements Closeable {
+
+    // the kinds of tokens that the tokenizer produces
+    protected static final int END_OF_FILE = 0;
+    protected static final int ID = 1;
+    protected static final int ARROW = 2; // ->
+    protected static final int UNDIRECTED = 3; // --
+    protected static final int SYMBOL = 4; // one of { } [ ] = ; , :
+
+    protected Reader reader;
+    protected String weightAttribute;
+
+    // block of characters read from reader, and the position within it
+    protected char[] buffer = new char[1 << 16];
+    protected int position = 0;
+    protected int limit = 0;
+    protected int line = 1;
+    protected boolean atLineStart = true; // only whitespace read on this line
+
+    // the current token: its kind, the line it started on, its text for ids,
+    // and its character for symbols. peeked is true when this token has been
+    // looked at but not yet consumed.
+    protected int tokenType;
+    protected int tokenLine;
+    protected StringBuilder tokenText = new StringBuilder();
+    protected char tokenSymbol;
+    protected boolean peeked = false;
+
+    protected boolean headerRead = false;
+    protected boolean finished = false;
+
+    // the ids of the current statement, and which of them next() returns next
+    protected List<String> statementIds = new ArrayList<>();
+    protected int statementIndex = 0;
+    protected double statementWeight;
+    protected boolean statementIsEdge;
+    protected int statementLine;
+
+    // the ids of the previous statement, reused when the same text comes again
+    protected List<String> recentIds = new ArrayList<>();
+
+    /**
+     * Creates a parser for the DOT text read from reader.
+     *
+     * @param reader          the source of the DOT text, which is read in
+     *                        blocks and so does not need to be buffered
+     * @param weightAttribute the name of the attribute holding edge weights
+     */
+    public DotParser(Reader reader, String weightAttribute) {
+        this.reader = reader;
+        this.weightAttribute = weightAttribute;
+    }
+
+    /**
+     * Advances to the next node or edge in the file. A statement naming a
+     * single node gives a node, and an edge chain a -> b -> c gives the edges
+     * a -> b and then b -> c.
+     *
+     * @return true if there is another node or edge, or false once the
+     *         closing brace of the graph has been reached
+     * @throws IOException if the file could not be read or parsed
+     */
+    public boolean next() throws IOException {
+        if (!headerRead) {
+            readHeader();
+            headerRead = true;
+        }
+        // an edge chain gives one edge for each two neighboring ids
+        statementIndex++;
+        if (statementIsEdge && statementIndex < statementIds.size())
+            return true;
+        while (!finished) {
+            if (readStatement())
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if next() advanced to an edge, or false for a node
+     */
+    public boolean isEdge() {
+        return statementIsEdge;
+    }
+
+    /**
+     * @return the node, or the node that the current edge leaves
+     */
+    public String getSource() {
+        return statementIsEdge ? statementIds.get(statementIndex - 1) : statementIds.get(0);
+    }
+
+    /**
+     * @return the node that the current edge enters
+     */
+    public String getTarget() {
+        return statementIds.get(statementIndex);
+    }
+
+    /**
+     * @return the weight of the current edge
+     */
+    public double getWeight() {
+        return statementWeight;
+    }
+
+    /**
+     * @return the line number that the current node or edge was found on
+     */
+    public int getLineNumber() {
+        return statementLine;
+    }
+
+    /**
+     * Closes the underlying reader.
+     *
+     * @throws IOException if the reader could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    // returns an exception describing a problem found on the given line
+    protected IOException error(int errorLine, String message) {
+        return new IOException("line " + errorLine + ": " + message);
+    }
+
+    // reads: [strict] digraph [id] {
+    protected void readHeader() throws IOException {
+        if (nextToken() == ID && tokenIs("strict"))
+            nextToken();
+        if (tokenType != ID || !tokenIs("digraph"))
+            throw error(tokenLine, "expected a digraph declaration, found " + describeToken());
+        if (nextToken() == ID)
+            nextToken();
+        if (!isSymbol('{'))
+            throw error(tokenLine, "expected { after the digraph declaration, found " + describeToken());
+    }
+
+    /**
+     * Reads one statement of the graph's body. Nodes and edges are stored in
+     * the statement fields, while attribute statements are skipped.
+     *
+     * @return true if the statement was a node or edge, false otherwise
+     * @throws IOException if the file could not be read or parsed
+     */
+    protected boolean readStatement() throws IOException {
+        int type = nextToken();
+        if (type == END_OF_FILE)
+            throw error(tokenLine, "missing } at the end of the graph");
+        if (isSymbol(';'))
+            return false;
+        if (isSymbol('}')) {
+            if (nextToken() != END_OF_FILE)
+                throw error(tokenLine, "unexpected " + describeToken() + " after the end of the graph");
+            finished = true;
+            return false;
+        }
+        if (type != ID)
+            throw error(tokenLine, "expected a node or edge, found " + describeToken());
+        int line = tokenLine;
+        if (tokenIs("subgraph"))
+            throw error(line, "subgraphs are not supported");
+        boolean isKeyword = tokenIs("graph") || tokenIs("node") || tokenIs("edge");
+        String first = idFromToken(); // before peeking replaces the token's text
+
+        // graph, node and edge statements only set default attributes
+        if (isKeyword && peekToken() == SYMBOL && tokenSymbol == '[') {
+            readAttributes(line, false);
+            return false;
+        }
+        // id = id statements set attributes of the whole graph
+        if (peekToken() == SYMBOL && tokenSymbol == '=') {
+            nextToken();
+            if (nextToken() != ID)
+                throw error(tokenLine, "expected a value after =, found " + describeToken());
+            return false;
+        }
+
+        // reuse the previous statement's ids before clearing them
+        List<String> previous = recentIds;
+        recentIds = statementIds;
+        statementIds = previous;
+        statementIds.clear();
+        statementIds.add(first);
+        while (peekToken() == ARROW || tokenType == UNDIRECTED) {
+            if (tokenType == UNDIRECTED)
+                throw error(tokenLine, "undirected edges (--) are not supported in a digraph");
+            nextToken();
+            if (nextToken() != ID)
+                throw error(tokenLine, "expected a node after ->, found " + describeToken());
+            statementIds.add(idFromToken());
+        }
+        statementIsEdge = statementIds.size() > 1;
+        statementIndex = statementIsEdge ? 1 : 0;
+        statementLine = line;
+
+        boolean hasWeight = false;
+        while (peekToken() == SYMBOL && tokenSymbol == '[')
+            hasWeight |= readAttributes(line, statementIsEdge);
+        if (statementIsEdge && !hasWeight)
+            throw error(line, "edge from " + first + " has no " + weightAttribute + " attribute");
+        return true;
+    }
+
+    /**
+     * Reads an attribute list like [a=b, c=d], storing the weight attribute
+     * into statementWeight when readWeight is true.
+     *
+     * @return true if the weight attribute was found
+     */
+    protected boolean readAttributes(int line, boolean readWeight) throws IOException {
+        nextToken(); // [
+        boolean found = false;
+        while (true) {
+            if (nextToken() == SYMBOL && tokenSymbol == ']')
+                return found;
+            if (tokenType == SYMBOL && (tokenSymbol == ',' || tokenSymbol == ';'))
+                continue;
+            if (tokenType != ID)
+                throw error(tokenLine, "expected an attribute name, found " + describeToken());
+            boolean isWeight = tokenIs(weightAttribute);
+            if (nextToken() != SYMBOL || tokenSymbol != '=')
+                throw error(tokenLine, "expected = after an attribute name, found " + describeToken());
+            if (nextToken() != ID)
+                throw error(tokenLine, "expected an attribute value, found " + describeToken());
+            if (isWeight && readWeight) {
+                statementWeight = parseWeight();
+                found = true;
+            }
+        }
+    }
+
+    // parses the current token as a non-negative edge weight
+    protected double parseWeight() throws IOException {
+        double weight;
+        try {
+            weight = Double.parseDouble(tokenText.toString());
+        } catch (NumberFormatException e) {
+            throw error(tokenLine, weightAttribute + " is not a number: " + tokenText);
+        }
+        if (!(weight >= 0) || Double.isInfinite(weight))
+            throw error(tokenLine, weightAttribute + " must be a finite, non-negative number: " + tokenText);
+        return weight;
+    }
+
+    // returns the current id token as a String, reusing the String from the
+    // previous statement when it holds the same text
+    protected String idFromToken() {
+        for (String recent : recentIds)
+            if (recent.contentEquals(tokenText))
+                return recent;
+        for (String current : statementIds)
+            if (current.contentEquals(tokenText))
+                return current;
+        return tokenText.toString();
+    }
+
+    // returns true if the current token is an id with exactly this text
+    protected boolean tokenIs(String text) {
+        return tokenType == ID && text.contentEquals(tokenText);
+    }
+
+    // returns true if the current token is the symbol c
+    protected boolean isSymbol(char c) {
+        return tokenType == SYMBOL && tokenSymbol == c;
+    }
+
+    // describes the current token for error messages
+    protected String describeToken() {
+        switch (tokenType) {
+            case END_OF_FILE: return "the end of the file";
+            case ID: return "\"" + tokenText + "\"";
+            case ARROW: return "->";
+            case UNDIRECTED: return "--";
+            default: return "'" + tokenSymbol + "'";
+        }
+    }
+
+    // looks at the next token without consuming it
+    protected int peekToken() throws IOException {
+        if (!peeked) {
+            readToken();
+            peeked = true;
+        }
+        return tokenType;
+    }
+
+    // consumes the next token
+    protected int nextToken() throws IOException {
+        if (peeked)
+            peeked = false;
+        else
+            readToken();
+        return tokenType;
+    }
+
+    // returns the next character without consuming it, or -1 at the end
+    protected int peekChar() throws IOException {
+        if (position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position];
+    }
+
+    // consumes the next character, counting lines as they end and noting
+    // whether only whitespace has been read since the line started
+    protected int readChar() throws IOException {
+        int c = peekChar();
+        if (c == '\n') {
+            line++;
+            atLineStart = true;
+        } else if (c != ' ' && c != '\t' && c != '\r' && c != '\f') {
+            atLineStart = false;
+        }
+        if (c >= 0)
+            position++;
+        return c;
+    }
+
+    // skips whitespace and comments before the next token
+    protected void skipWhitespace() throws IOException {
+        while (true) {
+            int c = peekChar();
+            if (c == ' ' || c == '\t' || c == '\r' || c == '\n' || c == '\f') {
+                readChar();
+            } else if (c == '#' && atLineStart) {
+                skipLine();
+            } else if (c == '/') {
+                readChar();
+                int next = peekChar();
+                if (next == '/') {
+                    skipLine();
+                } else if (next == '*') {
+                    int commentLine = line;
+                    readChar();
+                    int previous = 0;
+                    while ((c = readChar()) >= 0 && !(previous == '*' && c == '/'))
+                        previous = c;
+                    if (c < 0)
+                        throw error(commentLine, "comment is never closed");
+                } else {
+                    throw error(line, "unexpected '/'");
+                }
+            } else {
+                return;
+            }
+        }
+    }
+
+    // skips the rest of the current line, including its line break
+    protected void skipLine() throws IOException {
+        int c;
+        while ((c = readChar()) >= 0 && c != '\n')
+            ;
+    }
+
+    // reads the next token into the token fields
+    protected void readToken() throws IOException {
+        skipWhitespace();
+        tokenLine = line;
+        tokenText.setLength(0);
+        int c = peekChar();
+        if (c < 0) {
+            tokenType = END_OF_FILE;
+        } else if (c == '"') {
+            readChar();
+            readQuotedId();
+            tokenType = ID;
+        } else if (c == '-') {
+            readChar();
+            int next = peekChar();
+            if (next == '>' || next == '-') {
+                readChar();
+                tokenType = next == '>' ? ARROW : UNDIRECTED;
+            } else {
+                tokenText.append('-'); // a negative number
+                readBareId();
+                tokenType = ID;
+            }
+        } else if (c == '{' || c == '}' || c == '[' || c == ']' || c == '=' || c == ';' || c == ','
+                || c == ':') {
+            readChar();
+            tokenType = SYMBOL;
+            tokenSymbol = (char) c;
+        } else if (isIdChar(c)) {
+            readBareId();
+            tokenType = ID;
+        } else {
+            throw error(line, "unexpected character '" + (char) c + "'");
+        }
+    }
+
+    // returns true for the characters allowed in unquoted ids and numbers
+    protected static boolean isIdChar(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_'
+                || c == '.' || c >= 0x80;
+    }
+
+    // reads the characters of an unquoted id or number
+    protected void readBareId() throws IOException {
+        while (isIdChar(peekChar()))
+            tokenText.append((char) readChar());
+    }
+
+    // reads the characters of a quoted id, after its opening quote
+    protected void readQuotedId() throws IOException {
+        int startLine = line;
+        while (true) {
+            int c = readChar();
+            if (c < 0)
+                throw error(startLine, "quoted id is never closed");
+            if (c == '"')
+                return;
+            if (c == '\\') {
+                int next = readChar();
+                if (next == '"')
+                    tokenText.append('"');
+                else if (next == '\n')
+                    continue; // a backslash before a line break joins the lines
+                else if (next == '\r' && peekChar() == '\n')
+                    readChar();
+                else if (next >= 0)
+                    tokenText.append('\\').append((char) next);
+            } else {
+                tokenText.append((char) c);
+            }
+        }
+    }
+}
@@ -59,11 +59,12 @@ public class Frontend implements FrontendInterface {
      *         two locations
      */
     public String generateShortestPathResponseHTML(String start, String end) {
-	//finds all locations on the shortest path from start to end
-	List<String> locations = backend.findLocationsOnShortestPath(start, end);
+	//finds all locations on the shortest path from start to end, along with the time to run it
+	Route<String> route = backend.findRouteOnShortestPath(start, end);
+	List<String> locations = route.getNodes();
 
 	//checks if the above list of locations is empty, responds accordingly
-	if(locations == null || locations.isEmpty())
+	if(locations.isEmpty())
 		return "<p>No path could be found between the two points.</p>";
 
 	//makes a html list of all locations on shortest path
@@ -72,13 +73,8 @@ public class Frontend implements FrontendInterface {
 	for(int i = 0; i < locations.size(); i++)
 		list.append("<li>" + locations.get(i) + "</li>\n");
 
-	//finds the total time to run the path
-	List<Double> times = backend.findTimesOnShortestPath(start, end);
-	double totalTime = 0;
-
-	//adds up times from times list and adds it to totalTime
-	for(int i = 0; i < times.size(); i++)
-		totalTime += times.get(i);
+	//the total time to run the path comes from the same search
+	double totalTime = route.getTotalCost();
 
 	//shortens total time taken to just 2 decimal points
 	String time = String.format("%.2f", totalTime);
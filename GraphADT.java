@@ -1,3 +1,4 @@
+import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
 
@@ -99,6 +100,21 @@ public interface GraphADT<NodeType, EdgeType extends Number> {
    */
   public EdgeType getEdge(NodeType pred, NodeType succ);
 
+  /**
+   * Return the data associated with a specific edge, or null when there is
+   * no such edge, without throwing an exception. This default checks for the
+   * edge before getting it, so graphs that can find an edge once should
+   * override it.
+   *
+   * @param pred the data item contained in the source node for the edge
+   * @param succ the data item contained in the target node for the edge
+   * @return the data from the edge between those nodes, or null if either
+   *         node or the edge between them are not found within this graph
+   */
+  public default EdgeType tryGetEdge(NodeType pred, NodeType succ) {
+    return containsEdge(pred, succ) ? getEdge(pred, succ) : null;
+  }
+
   /**
    * Return the number of edges in the graph.
    *
@@ -138,4 +154,114 @@ public interface GraphADT<NodeType, EdgeType extends Number> {
    */
   public double shortestPathCost(NodeType start, NodeType end);
     
+  /**
+   * Returns the nodes, edge weights and total cost of the shortest path from
+   * the node with the provided start value to the node with the provided end
+   * value. This default runs shortestPathData and then looks up each edge
+   * weight with getEdge, so graphs that can read the weights straight from
+   * their search should override it.
+   *
+   * @param start the data item in the starting node for the path
+   * @param end the data item in the destination node for the path
+   * @return the route along this shortest path
+   * @throws NoSuchElementException if either the start or end node cannot
+   *         be found in the graph, or if there is no directed path from the
+   *         start node to the end node
+   */
+  public default Route<NodeType> shortestPathRoute(NodeType start, NodeType end) {
+    List<NodeType> path = shortestPathData(start, end);
+    List<Double> edgeWeights = new ArrayList<>();
+    double totalCost = 0;
+    for (int i = 0; i + 1 < path.size(); i++) {
+      double weight = getEdge(path.get(i), path.get(i + 1)).doubleValue();
+      edgeWeights.add(weight);
+      totalCost += weight;
+    }
+    return new Route<>(path, edgeWeights, totalCost);
+  }
+
+  /**
+   * Returns the same route as shortestPathRoute, or null when either node
+   * cannot be found in the graph or there is no directed path between them,
+   * so that a missing path costs no exception. This default still catches
+   * the exception thrown by shortestPathRoute, so graphs that can tell that
+   * a search found nothing should override it.
+   *
+   * @param start the data item in the starting node for the path
+   * @param end the data item in the destination node for the path
+   * @return the route along this shortest path, or null if there is none
+   */
+  public default Route<NodeType> tryShortestPath(NodeType start, NodeType end) {
+    try {
+      return shortestPathRoute(start, end);
+    } catch (NoSuchElementException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns the tree of shortest paths from the node with the provided start
+   * value to every node that can be reached from it. This default builds the
+   * tree from one shortestPathData and shortestPathCost search per node, so
+   * graphs that can find every path in a single search should override it.
+   *
+   * @param start the data item in the starting node for every path
+   * @return the tree of shortest paths from start
+   * @throws NoSuchElementException if the start node cannot be found in the
+   *         graph
+   */
+  public default ShortestPathTree<NodeType> shortestPathTree(NodeType start) {
+    if (!containsNode(start))
+      throw new NoSuchElementException("No node " + start + " in this graph");
+    ShortestPathTree<NodeType> tree = new ShortestPathTree<>(start);
+    List<List<NodeType>> paths = new ArrayList<>();
+    for (NodeType end : getAllNodes()) {
+      if (end.equals(start))
+        continue;
+      // when end cannot be reached from start, it is left out of the tree
+      Route<NodeType> route = tryShortestPath(start, end);
+      if (route != null && route.getNodes().size() > 1)
+        paths.add(route.getNodes());
+    }
+    // add the nodes along shorter paths first, reaching each node through
+    // the first path found to it
+    paths.sort((a, b) -> Integer.compare(a.size(), b.size()));
+    for (List<NodeType> path : paths)
+      for (int i = 1; i < path.size(); i++)
+        if (!tree.isReachable(path.get(i)))
+          tree.add(path.get(i), path.get(i - 1), shortestPathCost(start, path.get(i)), i);
+    return tree;
+  }
+
+  /**
+   * Returns the cost of the shortest path from each of the sources to each
+   * of the targets. This default runs shortestPathCost once for every pair,
+   * so graphs that can find the costs to many targets in a single search
+   * should override it.
+   *
+   * @param sources the data items in the starting nodes, one per row
+   * @param targets the data items in the destination nodes, one per column
+   * @return a matrix where [i][j] is the cost of the shortest path from
+   *         sources.get(i) to targets.get(j), or Double.POSITIVE_INFINITY
+   *         when there is no path between them
+   * @throws NoSuchElementException if any source or target node cannot be
+   *         found in the graph
+   */
+  public default double[][] shortestPathCosts(List<NodeType> sources, List<NodeType> targets) {
+    for (NodeType node : sources)
+      if (!containsNode(node))
+        throw new NoSuchElementException("No node " + node + " in this graph");
+    for (NodeType node : targets)
+      if (!containsNode(node))
+        throw new NoSuchElementException("No node " + node + " in this graph");
+    double[][] costs = new double[sources.size()][targets.size()];
+    for (int i = 0; i < sources.size(); i++) {
+      for (int j = 0; j < targets.size(); j++) {
+        Route<NodeType> route = tryShortestPath(sources.get(i), targets.get(j));
+        costs[i][j] = route == null ? Double.POSITIVE_INFINITY : route.getTotalCost();
+      }
+    }
+    return costs;
+  }
+
 }
@@ -0,0 +1,161 @@
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Rough timing benchmarks for the graph and map implementations, run with:
+ *     java GraphBenchmark [gridSize] [queries]
+ *
+ * Shortest path searches are timed on a gridSize x gridSize grid of nodes with
+ * random weights, which is much larger than campus.dot and so shows how each
+ * search scales. Along with time per query, the bytes allocated per query by
+ * the benchmarking thread are reported, since garbage from discarded search
+ * state is a large part of each search's cost.
+ *
+ * The costs from one node to every node are also computed by Dijkstra's
+ * algorithm and by a DeltaStepping search, which should run faster the more
+ * cores are available.
+ *
+ * Loading keys into each MapADT is also timed at growing sizes, up to one
+ * million keys: the time per key should stay roughly flat as the number of
+ * keys grows, since each put should take constant time on average.
+ */
+public class GraphBenchmark {
+
+    public static void main(String[] args) {
+        int gridSize = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        DijkstraGraph<Integer, Double> graph = makeGridGraph(gridSize, 42);
+        System.out.println("grid graph with " + graph.getNodeCount() + " nodes and "
+                + graph.getEdgeCount() + " edges, " + queries + " queries");
+
+        long startTime = System.nanoTime();
+        graph.prepareLandmarks(8);
+        System.out.printf("computed 8 landmarks in %.1f ms%n", (System.nanoTime() - startTime) / 1e6);
+        startTime = System.nanoTime();
+        graph.prepareContractionHierarchy();
+        System.out.printf("contracted hierarchy with %d shortcuts in %.1f ms%n",
+                graph.getContractionHierarchy().getShortcutCount(), (System.nanoTime() - startTime) / 1e6);
+
+        for (DijkstraGraph.SearchStrategy strategy : DijkstraGraph.SearchStrategy.values()) {
+            if (strategy == DijkstraGraph.SearchStrategy.ALL_PAIRS)
+                continue; // a table for every pair of grid nodes would not fit in memory
+            graph.setSearchStrategy(strategy);
+            benchmarkQueries(strategy + " warm-up", graph, queries / 4, 7);
+            benchmarkQueries(strategy.toString(), graph, queries, 7);
+        }
+        CsrGraph<Integer> frozen = graph.freeze();
+        benchmarkQueries("CSR_SNAPSHOT warm-up", frozen, queries / 4, 7);
+        benchmarkQueries("CSR_SNAPSHOT", frozen, queries, 7);
+
+        DeltaStepping<Integer> deltaStepping = new DeltaStepping<>(frozen);
+        benchmarkOneToAll("DIJKSTRA one-to-all", source -> frozen.computeCosts(source, false),
+                frozen.getNodeCount(), 5);
+        benchmarkOneToAll("DELTA_STEPPING one-to-all", deltaStepping::computeCosts,
+                frozen.getNodeCount(), 5);
+
+        for (int keys = 250_000; keys <= 1_000_000; keys *= 2) {
+            benchmarkLoad("HashtableMap", new HashtableMap<>(), keys);
+            benchmarkLoad("OpenAddressingMap", new OpenAddressingMap<>(), keys);
+        }
+    }
+
+    /**
+     * Times putting keys distinct Integer keys into an empty map, and prints
+     * the total time along with the average time per key.
+     *
+     * @param label the name printed with these results
+     * @param map   the empty map to load
+     * @param keys  the number of keys to put into the map
+     */
+    public static void benchmarkLoad(String label, MapADT<Integer, Integer> map, int keys) {
+        long startTime = System.nanoTime();
+        for (int i = 0; i < keys; i++)
+            map.put(i, i);
+        long elapsed = System.nanoTime() - startTime;
+        System.out.printf("%-22s %10d keys %10.1f ms %8.1f ns/key%n", label, map.getSize(),
+                elapsed / 1e6, (double) elapsed / keys);
+    }
+
+    /**
+     * Builds a grid of size x size nodes, where each node has edges to its
+     * neighbors in both directions with random weights between 10 and 300.
+     *
+     * @param size the number of nodes along each side of the grid
+     * @param seed the seed for the random edge weights
+     * @return the grid graph, with nodes numbered row by row from 0
+     */
+    public static DijkstraGraph<Integer, Double> makeGridGraph(int size, long seed) {
+        Random random = new Random(seed);
+        DijkstraGraph<Integer, Double> graph = new DijkstraGraph<>();
+        for (int i = 0; i < size * size; i++)
+            graph.insertNode(i);
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int node = row * size + col;
+                if (col + 1 < size) {
+                    graph.insertEdge(node, node + 1, 10 + random.nextDouble() * 290);
+                    graph.insertEdge(node + 1, node, 10 + random.nextDouble() * 290);
+                }
+                if (row + 1 < size) {
+                    graph.insertEdge(node, node + size, 10 + random.nextDouble() * 290);
+                    graph.insertEdge(node + size, node, 10 + random.nextDouble() * 290);
+                }
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Times shortestPathCost between random pairs of nodes, and prints the
+     * average time and allocation per query.
+     *
+     * @param label   the name printed with these results
+     * @param graph   the graph to search, with nodes numbered from 0
+     * @param queries the number of queries to run
+     * @param seed    the seed used to choose the pairs of nodes
+     */
+    public static void benchmarkQueries(String label, GraphADT<Integer, Double> graph,
+            int queries, long seed) {
+        Random random = new Random(seed);
+        int nodeCount = graph.getNodeCount();
+        double checksum = 0;
+        long startBytes = allocatedBytes();
+        long startTime = System.nanoTime();
+        for (int i = 0; i < queries; i++)
+            checksum += graph.shortestPathCost(random.nextInt(nodeCount), random.nextInt(nodeCount));
+        long elapsed = System.nanoTime() - startTime;
+        long bytes = allocatedBytes() - startBytes;
+        System.out.printf("%-32s %10.3f ms/query %12d bytes/query (checksum %.1f)%n", label,
+                elapsed / 1e6 / queries, bytes / queries, checksum);
+    }
+
+    /**
+     * Times computing the costs from random sources to every node, and prints
+     * the average time per source.
+     *
+     * @param label     the name printed with these results
+     * @param search    computes the cost of reaching every node from a source
+     * @param nodeCount the number of nodes to choose sources from
+     * @param sources   the number of sources to search from
+     */
+    public static void benchmarkOneToAll(String label, java.util.function.IntFunction<double[]> search,
+            int nodeCount, int sources) {
+        Random random = new Random(11);
+        search.apply(random.nextInt(nodeCount)); // warm up
+        double checksum = 0;
+        long startTime = System.nanoTime();
+        for (int i = 0; i < sources; i++)
+            for (double cost : search.apply(random.nextInt(nodeCount)))
+                checksum += cost;
+        long elapsed = System.nanoTime() - startTime;
+        System.out.printf("%-32s %10.1f ms/source on %d cores (checksum %.1f)%n", label,
+                elapsed / 1e6 / sources, Runtime.getRuntime().availableProcessors(), checksum);
+    }
+
+    // returns the number of bytes allocated so far by the current thread
+    protected static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getCurrentThreadAllocatedBytes();
+    }
+}
@@ -0,0 +1,15 @@
+/**
+ * A GraphChangeListener is told about each batch of changes applied to a
+ * BaseGraph through applyChanges(), after all of them have been made, so that
+ * it can update data it derives from that graph.
+ */
+@FunctionalInterface
+public interface GraphChangeListener<NodeType, EdgeType extends Number> {
+
+    /**
+     * Called after a batch of changes has been applied to the graph.
+     *
+     * @param changes exactly the nodes and edges that were changed
+     */
+    public void graphChanged(GraphChangeSet<NodeType, EdgeType> changes);
+}
@@ -0,0 +1,224 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * This GraphChangeSet lists the nodes and edges that one batch of changes
+ * inserts into a graph, removes from it, or gives a new weight. A change set
+ * can be built by hand, or computed as the difference between two snapshots
+ * of a graph by between(), and is applied to a BaseGraph by applyChanges().
+ * Data derived from a graph can use a change set to decide how much of that
+ * data is still correct, rather than rebuilding all of it.
+ */
+public class GraphChangeSet<NodeType, EdgeType extends Number> {
+
+    // One edge that is inserted, removed, or given a new weight
+    public static class EdgeChange<NodeType, EdgeType extends Number> {
+        public final NodeType predecessor;
+        public final NodeType successor;
+        public final EdgeType oldWeight; // null when the edge is inserted
+        public final EdgeType newWeight; // null when the edge is removed
+
+        public EdgeChange(NodeType predecessor, NodeType successor, EdgeType oldWeight,
+                EdgeType newWeight) {
+            this.predecessor = predecessor;
+            this.successor = successor;
+            this.oldWeight = oldWeight;
+            this.newWeight = newWeight;
+        }
+
+        public boolean isInsert() {
+            return oldWeight == null;
+        }
+
+        public boolean isRemove() {
+            return newWeight == null;
+        }
+
+        @Override
+        public String toString() {
+            return predecessor + " -> " + successor + " (" + oldWeight + " to " + newWeight + ")";
+        }
+    }
+
+    protected List<NodeType> insertedNodes = new ArrayList<>();
+    protected List<NodeType> removedNodes = new ArrayList<>();
+    protected List<EdgeChange<NodeType, EdgeType>> edgeChanges = new ArrayList<>();
+    // the successors of every changed edge, by predecessor, built on demand
+    protected HashMap<NodeType, HashSet<NodeType>> changedEdges = null;
+
+    /**
+     * Records that a node is inserted.
+     *
+     * @param data the data of the new node
+     */
+    public void insertNode(NodeType data) {
+        insertedNodes.add(data);
+    }
+
+    /**
+     * Records that a node is removed. The edges leaving and entering it should
+     * be recorded as removed too, so that this change set lists every edge
+     * that stops being part of the graph.
+     *
+     * @param data the data of the node being removed
+     */
+    public void removeNode(NodeType data) {
+        removedNodes.add(data);
+    }
+
+    /**
+     * Records that an edge is inserted.
+     *
+     * @param pred   the data of the node the edge leaves
+     * @param succ   the data of the node the edge enters
+     * @param weight the weight of the new edge
+     */
+    public void insertEdge(NodeType pred, NodeType succ, EdgeType weight) {
+        addEdgeChange(new EdgeChange<>(pred, succ, null, weight));
+    }
+
+    /**
+     * Records that an edge is removed.
+     *
+     * @param pred      the data of the node the edge leaves
+     * @param succ      the data of the node the edge enters
+     * @param oldWeight the weight of the edge before it is removed
+     */
+    public void removeEdge(NodeType pred, NodeType succ, EdgeType oldWeight) {
+        addEdgeChange(new EdgeChange<>(pred, succ, oldWeight, null));
+    }
+
+    /**
+     * Records that an existing edge is given a new weight.
+     *
+     * @param pred      the data of the node the edge leaves
+     * @param succ      the data of the node the edge enters
+     * @param oldWeight the weight of the edge before this change
+     * @param newWeight the weight of the edge after this change
+     */
+    public void updateEdge(NodeType pred, NodeType succ, EdgeType oldWeight, EdgeType newWeight) {
+        addEdgeChange(new EdgeChange<>(pred, succ, oldWeight, newWeight));
+    }
+
+    protected void addEdgeChange(EdgeChange<NodeType, EdgeType> change) {
+        edgeChanges.add(change);
+        changedEdges = null;
+    }
+
+    /**
+     * @return the data of every inserted node, in the order they were recorded
+     */
+    public List<NodeType> getInsertedNodes() {
+        return Collections.unmodifiableList(insertedNodes);
+    }
+
+    /**
+     * @return the data of every removed node, in the order they were recorded
+     */
+    public List<NodeType> getRemovedNodes() {
+        return Collections.unmodifiableList(removedNodes);
+    }
+
+    /**
+     * @return every inserted, removed and updated edge, in the order they
+     *         were recorded
+     */
+    public List<EdgeChange<NodeType, EdgeType>> getEdgeChanges() {
+        return Collections.unmodifiableList(edgeChanges);
+    }
+
+    /**
+     * @return the total number of node and edge changes in this change set
+     */
+    public int size() {
+        return insertedNodes.size() + removedNodes.size() + edgeChanges.size();
+    }
+
+    /**
+     * @return true if this change set does not change anything
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @param pred the data of the node an edge leaves
+     * @param succ the data of the node that edge enters
+     * @return true if the edge from pred to succ is inserted, removed or
+     *         given a new weight by this change set
+     */
+    public boolean changesEdge(NodeType pred, NodeType succ) {
+        if (changedEdges == null) {
+            changedEdges = new HashMap<>();
+            for (EdgeChange<NodeType, EdgeType> change : edgeChanges)
+                changedEdges.computeIfAbsent(change.predecessor, key -> new HashSet<>())
+                        .add(change.successor);
+        }
+        HashSet<NodeType> successors = changedEdges.get(pred);
+        return successors != null && successors.contains(succ);
+    }
+
+    /**
+     * Checks whether this change set can only make paths longer: it inserts
+     * no nodes or edges, and only removes edges and nodes or raises weights.
+     * No shortest path can then become any shorter, so a shortest path found
+     * before these changes is still a shortest path afterward as long as none
+     * of its edges were changed, and lower bounds on path costs stay valid.
+     *
+     * @return true if every change removes something or raises a weight
+     */
+    public boolean onlyLengthensPaths() {
+        if (!insertedNodes.isEmpty())
+            return false;
+        for (EdgeChange<NodeType, EdgeType> change : edgeChanges)
+            if (change.isInsert() || (!change.isRemove()
+                    && change.newWeight.doubleValue() < change.oldWeight.doubleValue()))
+                return false;
+        return true;
+    }
+
+    /**
+     * Computes the changes that turn one snapshot of a graph into another.
+     * Every edge of both snapshots is looked up once, and edges with the same
+     * weight in both are left out, so applying the result only touches the
+     * nodes and edges that actually differ.
+     *
+     * @param current the snapshot of the graph as it is now
+     * @param target  the snapshot of the graph as it should become
+     * @return the changes that turn current into target
+     */
+    public static <NodeType> GraphChangeSet<NodeType, Double> between(CsrGraph<NodeType> current,
+            CsrGraph<NodeType> target) {
+        GraphChangeSet<NodeType, Double> changes = new GraphChangeSet<>();
+        boolean[] matched = new boolean[target.getEdgeCount()];
+        for (int u = 0; u < current.getNodeCount(); u++) {
+            NodeType pred = current.getData(u);
+            int targetPred = target.getId(pred);
+            for (int e = current.offsets[u]; e < current.offsets[u + 1]; e++) {
+                NodeType succ = current.getData(current.targets[e]);
+                int targetEdge = targetPred < 0 ? -1 : target.findEdge(pred, succ);
+                if (targetEdge < 0) {
+                    changes.removeEdge(pred, succ, current.weights[e]);
+                } else {
+                    matched[targetEdge] = true;
+                    if (target.weights[targetEdge] != current.weights[e])
+                        changes.updateEdge(pred, succ, current.weights[e], target.weights[targetEdge]);
+                }
+            }
+            if (targetPred < 0)
+                changes.removeNode(pred);
+        }
+        for (int v = 0; v < target.getNodeCount(); v++)
+            if (!current.containsNode(target.getData(v)))
+                changes.insertNode(target.getData(v));
+        for (int u = 0; u < target.getNodeCount(); u++)
+            for (int e = target.offsets[u]; e < target.offsets[u + 1]; e++)
+                if (!matched[e])
+                    changes.insertEdge(target.getData(u), target.getData(target.targets[e]),
+                            target.weights[e]);
+        return changes;
+    }
+}
@@ -0,0 +1,234 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This GraphSnapshot reads and writes a CsrGraph with String node data as a
+ * compact binary file, so that a graph can be reopened without parsing its
+ * dot file again. The file holds a header, a string table with every node's
+ * name, the leaving and entering edge arrays exactly as CsrGraph stores them,
+ * and optionally a LandmarkIndex computed for the graph. Every array starts
+ * at a multiple of 8 bytes, and is read with a single bulk copy out of a
+ * memory-mapped view of the file, so opening a snapshot only costs the time
+ * to decode the node names and copy the arrays into place.
+ */
+public class GraphSnapshot {
+
+    // identifies files written by save(), followed by the format version
+    protected static final int FILE_MAGIC = 0x50464753; // "PFGS"
+    protected static final int FILE_VERSION = 1;
+    // magic, version, node count, edge count, string table bytes, landmark
+    // count, and the graph's fingerprint
+    protected static final int HEADER_BYTES = 32;
+
+    protected CsrGraph<String> graph;
+    protected LandmarkIndex<String> landmarks;
+
+    // creates a snapshot of graph, with landmarks that may be null
+    protected GraphSnapshot(CsrGraph<String> graph, LandmarkIndex<String> landmarks) {
+        this.graph = graph;
+        this.landmarks = landmarks;
+    }
+
+    /**
+     * @return the graph read from the snapshot file
+     */
+    public CsrGraph<String> getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return the landmarks stored for the graph, or null if the snapshot file
+     *         did not include any
+     */
+    public LandmarkIndex<String> getLandmarkIndex() {
+        return landmarks;
+    }
+
+    // rounds position up to the next multiple of 8 bytes
+    protected static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    /**
+     * Writes a graph, and optionally landmarks computed for a graph with the
+     * same contents, to a snapshot file. The snapshot is written to a
+     * temporary file in the same directory, which then atomically replaces
+     * filename, so that a reader mapping the old snapshot never sees a
+     * partly written one.
+     *
+     * @param filename  the path of the file to write
+     * @param graph     the graph to write
+     * @param landmarks landmarks for the graph to write along with it, or null
+     *                  to write the graph alone
+     * @throws IOException if there was any problem writing this file, or if
+     *                     the snapshot would be too large to map into memory
+     */
+    public static void save(String filename, CsrGraph<String> graph, LandmarkIndex<String> landmarks)
+            throws IOException {
+        int nodeCount = graph.getNodeCount();
+        int edgeCount = graph.getEdgeCount();
+        int landmarkCount = landmarks == null ? 0 : landmarks.getLandmarkCount();
+
+        // encode every name up front, since the string table's size comes first
+        byte[][] names = new byte[nodeCount][];
+        long stringBytes = 0;
+        for (int id = 0; id < nodeCount; id++) {
+            names[id] = graph.getData(id).getBytes(StandardCharsets.UTF_8);
+            stringBytes += names[id].length;
+        }
+        if (stringBytes > Integer.MAX_VALUE)
+            throw new IOException("node names are too long to store in a snapshot");
+
+        long size = HEADER_BYTES;
+        size = align(size + 4L * (nodeCount + 1)) + align(stringBytes);
+        size = align(size + 4L * (nodeCount + 1)) + align(4L * edgeCount) + 8L * edgeCount;
+        size = align(size + 4L * (nodeCount + 1)) + align(4L * edgeCount) + 8L * edgeCount;
+        size = align(size + 4L * landmarkCount) + 16L * landmarkCount * nodeCount;
+        if (size > Integer.MAX_VALUE)
+            throw new IOException("graph is too large to store in a snapshot");
+
+        Path target = Path.of(filename).toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName() + ".", ".tmp");
+        try {
+            write(temp, size, graph, landmarks, names, stringBytes);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp); // only left behind when writing failed
+        }
+    }
+
+    // writes the snapshot laid out by save into the file at path
+    protected static void write(Path path, long size, CsrGraph<String> graph, LandmarkIndex<String> landmarks,
+            byte[][] names, long stringBytes) throws IOException {
+        int nodeCount = graph.getNodeCount();
+        int edgeCount = graph.getEdgeCount();
+        int landmarkCount = landmarks == null ? 0 : landmarks.getLandmarkCount();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            out.order(ByteOrder.LITTLE_ENDIAN);
+            out.putInt(FILE_MAGIC).putInt(FILE_VERSION).putInt(nodeCount).putInt(edgeCount)
+                    .putInt((int) stringBytes).putInt(landmarkCount).putLong(graph.fingerprint());
+
+            // the string table: where each name starts, then all of their bytes
+            int[] nameOffsets = new int[nodeCount + 1];
+            for (int id = 0; id < nodeCount; id++)
+                nameOffsets[id + 1] = nameOffsets[id] + names[id].length;
+            putInts(out, nameOffsets);
+            for (byte[] name : names)
+                out.put(name);
+            out.position((int) align(out.position()));
+
+            putInts(out, graph.offsets);
+            putInts(out, graph.targets);
+            putDoubles(out, graph.weights);
+            putInts(out, graph.reverseOffsets);
+            putInts(out, graph.sources);
+            putDoubles(out, graph.reverseWeights);
+            if (landmarks != null) {
+                putInts(out, landmarks.landmarks);
+                for (int i = 0; i < landmarkCount; i++) {
+                    putDoubles(out, landmarks.costsFrom[i]);
+                    putDoubles(out, landmarks.costsTo[i]);
+                }
+            }
+            out.force();
+            channel.force(true);
+        }
+    }
+
+    // copies values into out, then skips ahead to the next multiple of 8 bytes
+    protected static void putInts(ByteBuffer out, int[] values) {
+        out.asIntBuffer().put(values);
+        out.position((int) align(out.position() + 4L * values.length));
+    }
+
+    // copies values into out, which is already at a multiple of 8 bytes
+    protected static void putDoubles(ByteBuffer out, double[] values) {
+        out.asDoubleBuffer().put(values);
+        out.position(out.position() + 8 * values.length);
+    }
+
+    // copies count ints out of in, then skips ahead to the next multiple of 8
+    protected static int[] getInts(ByteBuffer in, int count) {
+        int[] values = new int[count];
+        in.asIntBuffer().get(values);
+        in.position((int) align(in.position() + 4L * count));
+        return values;
+    }
+
+    // copies count doubles out of in, which is already at a multiple of 8
+    protected static double[] getDoubles(ByteBuffer in, int count) {
+        double[] values = new double[count];
+        in.asDoubleBuffer().get(values);
+        in.position(in.position() + 8 * count);
+        return values;
+    }
+
+    /**
+     * Reads a snapshot written by save(), through a memory-mapped view of the
+     * file.
+     *
+     * @param filename the path of the file to read
+     * @return the graph and landmarks from that file, or null if the file was
+     *         not written by a known version of this class
+     * @throws IOException if there was any problem reading this file, or if it
+     *                     ends before all of its arrays
+     */
+    public static GraphSnapshot load(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE)
+                return null;
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            in.order(ByteOrder.LITTLE_ENDIAN);
+            if (in.getInt() != FILE_MAGIC || in.getInt() != FILE_VERSION)
+                return null;
+            int nodeCount = in.getInt();
+            int edgeCount = in.getInt();
+            int stringBytes = in.getInt();
+            int landmarkCount = in.getInt();
+            long fingerprint = in.getLong();
+
+            int[] nameOffsets = getInts(in, nodeCount + 1);
+            byte[] nameBytes = new byte[stringBytes];
+            in.get(nameBytes);
+            in.position((int) align(in.position()));
+            List<String> names = new ArrayList<>(nodeCount);
+            for (int id = 0; id < nodeCount; id++)
+                names.add(new String(nameBytes, nameOffsets[id], nameOffsets[id + 1] - nameOffsets[id],
+                        StandardCharsets.UTF_8));
+
+            CsrGraph<String> graph = new CsrGraph<>(names, getInts(in, nodeCount + 1),
+                    getInts(in, edgeCount), getDoubles(in, edgeCount), getInts(in, nodeCount + 1),
+                    getInts(in, edgeCount), getDoubles(in, edgeCount));
+            if (graph.fingerprint() != fingerprint)
+                throw new IOException(filename + " is corrupt: its graph does not match its fingerprint");
+
+            LandmarkIndex<String> landmarks = null;
+            if (landmarkCount > 0) {
+                int[] ids = getInts(in, landmarkCount);
+                double[][] costsFrom = new double[landmarkCount][];
+                double[][] costsTo = new double[landmarkCount][];
+                for (int i = 0; i < landmarkCount; i++) {
+                    costsFrom[i] = getDoubles(in, nodeCount);
+                    costsTo[i] = getDoubles(in, nodeCount);
+                }
+                landmarks = new LandmarkIndex<>(graph, ids, costsFrom, costsTo);
+            }
+            return new GraphSnapshot(graph, landmarks);
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException
+                | NegativeArraySizeException e) {
+            throw new IOException(filename + " is truncated or corrupt", e);
+        }
+    }
+}
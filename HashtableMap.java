@@ -6,7 +6,10 @@
 // Notes to Grader: <optional extra notes>
 
 import java.util.List;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -14,6 +17,7 @@ import org.junit.jupiter.api.Test;
 public class HashtableMap<KeyType, ValueType> implements MapADT<KeyType, ValueType> {
 
    protected LinkedList<Pair>[] table = null;
+   protected int size = 0; // number of pairs stored across all of table's lists
 
    @SuppressWarnings("unchecked")
    public HashtableMap(int capacity) {
@@ -25,7 +29,7 @@ public class HashtableMap<KeyType, ValueType> implements MapADT<KeyType, ValueTy
         table = (LinkedList<Pair>[]) new LinkedList[64];
    }
 
-   protected class Pair {
+   protected class Pair implements Map.Entry<KeyType, ValueType> {
 
 	public KeyType key;
 	public ValueType value;
@@ -35,6 +39,16 @@ public class HashtableMap<KeyType, ValueType> implements MapADT<KeyType, ValueTy
 		this.value = value;
 	}
 
+	public KeyType getKey() { return key; }
+
+	public ValueType getValue() { return value; }
+
+	public ValueType setValue(ValueType value) {
+		ValueType oldValue = this.value;
+		this.value = value;
+		return oldValue;
+	}
+
    }
 
     /**
@@ -54,8 +68,11 @@ public class HashtableMap<KeyType, ValueType> implements MapADT<KeyType, ValueTy
         	throw new IllegalArgumentException();
 
 	//checks if array needs to be resized for a LF threshold of .8
-	if((getSize() + 1) / (double)  getCapacity() >= 0.8)
+	//(the index must be recomputed afterwards, since the capacity changed)
+	if((getSize() + 1) / (double)  getCapacity() >= 0.8) {
 		resizeHelper();
+		hashCode = Math.abs(key.hashCode()) % getCapacity();
+	}
 
 	//if hashCode index is empty, make a new list for it
 	if(table[hashCode] == null)
@@ -63,23 +80,28 @@ public class HashtableMap<KeyType, ValueType> implements MapADT<KeyType, ValueTy
 
 	//add the new pair
 	table[hashCode].add(new Pair(key, value));
+	size++;
     }
 
     /**
      * resizes the array to double what it is currently and rehashes
      */
+    @SuppressWarnings("unchecked")
     private void resizeHelper() {
 	//inits new array with double old capacity
 	LinkedList<Pair>[] resizedArray = (LinkedList<Pair>[]) new LinkedList[getCapacity() * 2];
 	LinkedList<Pair>[] tempTable = table;
-	int tempSize = getCapacity();
 	table = resizedArray;
 
-	//rehashes the new array
-	for(int i = 0; i < tempSize; i++) {
-		if(tempTable[i] != null) {
-			for(int g = 0; g < tempTable[i].size(); g++) {
-				put(tempTable[i].get(g).key, tempTable[i].get(g).value);
+	//moves each existing pair into its new list, the keys are already known
+	//to be unique so there is no need to go through put() and containsKey()
+	for(LinkedList<Pair> list : tempTable) {
+		if(list != null) {
+			for(Pair pair : list) {
+				int hashCode = Math.abs(pair.key.hashCode()) % getCapacity();
+				if(table[hashCode] == null)
+					table[hashCode] = new LinkedList<Pair>();
+				table[hashCode].add(pair);
 			}
 		}
 	}
@@ -92,19 +114,26 @@ public class HashtableMap<KeyType, ValueType> implements MapADT<KeyType, ValueTy
      *         key doesn't map to a value
      */
     public boolean containsKey(KeyType key) {
-	//inits hashCode and then checks if given key at the index for
-	//the hashCode contains key already, returns true if so
+	return findPair(key) != null;
+    }
+
+    /**
+     * Finds the pair holding a key by walking the linkedList at the key's
+     * hashCode index once.
+     * @param key the key to look up
+     * @return the pair holding key, or null if key is not stored
+     */
+    protected Pair findPair(KeyType key) {
         int hashCode = Math.abs(key.hashCode()) % getCapacity();
 	if(table[hashCode] != null) {
-		for(int i = 0; i < table[hashCode].size(); i++) {
-                	if(table[hashCode].get(i).key.equals(key)) {
-                        	return true;
-                	}
+		for(Pair pair : table[hashCode]) {
+			if(pair.key.equals(key))
+				return pair;
 		}
 	}
 
 	//base case if key wasnt found
-	return false;
+	return null;
     }
 
     /**
@@ -115,22 +144,24 @@ public class HashtableMap<KeyType, ValueType> implements MapADT<KeyType, ValueTy
      *         collection
      */
     public ValueType get(KeyType key) throws NoSuchElementException {
-	//inits hashCode and checks if key is present first, if not throw exception
-        int hashCode = Math.abs(key.hashCode()) % getCapacity();
-	if(!containsKey(key))
+	//searches for the key once, and only throws an exception if it is missing
+	Pair pair = findPair(key);
+	if(pair == null)
 		throw new NoSuchElementException();
+        return pair.value;
+    }
 
-	//inits the found value and searches through linkedList at hashCode index
-	//if the key is found, return its value and stop searching
-	ValueType foundValue = null;
-	for(int i = 0; i < table[hashCode].size(); i++) {
-		if(table[hashCode].get(i).key.equals(key)) {
-			foundValue = table[hashCode].get(i).value;
-			break;
-		}
-	}
-
-        return foundValue;
+    /**
+     * Retrieves the value that a key maps to without throwing an exception
+     * when there is none.
+     * @param key the key to look up
+     * @return the value that key maps to, or null when key is not stored
+     *         in this collection
+     */
+    @Override
+    public ValueType getOrNull(KeyType key) {
+	Pair pair = findPair(key);
+	return pair == null ? null : pair.value;
     }
 
     /**
@@ -141,30 +172,32 @@ public class HashtableMap<KeyType, ValueType> implements MapADT<KeyType, ValueTy
      *         collection
      */
     public ValueType remove(KeyType key) throws NoSuchElementException {
-        //inits hashCode and checks if key is present first, if not throw exception
+        //searches through the linkedList at hashCode index once, and if the
+        //key is found, removes it through the iterator and returns its value
 	int hashCode = Math.abs(key.hashCode()) % getCapacity();
-	if(!containsKey(key))
-                throw new NoSuchElementException();
-
-        //inits the removed value and searches through linkedList at hashCode index
-        //if the key is found, return its value as removedValue and remove it after
-        ValueType removedValue = null;
-        for(int i = 0; i < table[hashCode].size(); i++) {
-                if(table[hashCode].get(i).key.equals(key)) {
-                        removedValue = table[hashCode].get(i).value;
-			table[hashCode].remove(i);
-                        break;
-                }
-        }
-
-        return removedValue;
+	if(table[hashCode] != null) {
+		Iterator<Pair> pairs = table[hashCode].iterator();
+		while(pairs.hasNext()) {
+			Pair pair = pairs.next();
+			if(pair.key.equals(key)) {
+				pairs.remove();
+				size--;
+				return pair.value;
+			}
+		}
+	}
+
+	//only a missing key throws an exception
+        throw new NoSuchElementException();
     }
 
     /**
      * Removes all key,value pairs from this collection.
      */
+    @SuppressWarnings("unchecked")
     public void clear() {
 	table = (LinkedList<Pair>[]) new LinkedList[getCapacity()];
+	size = 0;
     }
 
     /**
@@ -172,16 +205,6 @@ public class HashtableMap<KeyType, ValueType> implements MapADT<KeyType, ValueTy
      * @return the number of keys stored in this collection
      */
     public int getSize() {
-	int size = 0;
-
-	for(int i = 0; i < getCapacity(); i++) {
-		if(table[i] != null) {
-			for(int g = 0; g < table[i].size(); g++) {
-				size++;
-			}
-		}
-	}
-
         return size;
     }
 
@@ -198,20 +221,46 @@ public class HashtableMap<KeyType, ValueType> implements MapADT<KeyType, ValueTy
      * @return a list of keys in the underlying array for this collection
      */
     public List<KeyType> getKeys() {
-	List<KeyType> keys = new LinkedList<KeyType>();
-
-	//goes through table (array of pairs) and adds each key into keys list
-	for(int i = 0; i < getSize(); i++) {
-		if(table[i] != null) {
-			for(int g = 0; g < table[i].size(); g++) {
-                        	keys.add(table[i].get(g).key);
-                        }
-		}
-	}
+	List<KeyType> keys = new ArrayList<KeyType>(size);
+
+	//goes through every list in table (array of pairs) and adds each key into keys list
+	Iterator<Map.Entry<KeyType, ValueType>> entries = entryIterator();
+	while(entries.hasNext())
+		keys.add(entries.next().getKey());
 
 	return keys;
     }
 
+    /**
+     * Retrieves an iterator over this collection's key,value pairs, which
+     * walks through each list in the underlying array exactly once.
+     * @return an iterator over every key,value pair in this collection
+     */
+    public Iterator<Map.Entry<KeyType, ValueType>> entryIterator() {
+	return new Iterator<Map.Entry<KeyType, ValueType>>() {
+		private int index = -1; // index of the list that pairs comes from
+		private Iterator<Pair> pairs = null;
+
+		public boolean hasNext() {
+			//advances to the next non-empty list when the current one runs out
+			while(pairs == null || !pairs.hasNext()) {
+				index++;
+				if(index >= table.length)
+					return false;
+				if(table[index] != null)
+					pairs = table[index].iterator();
+			}
+			return true;
+		}
+
+		public Map.Entry<KeyType, ValueType> next() {
+			if(!hasNext())
+				throw new NoSuchElementException();
+			return pairs.next();
+		}
+	};
+    }
+
    /**
     * tests put() method
     */
@@ -303,6 +352,12 @@ public class HashtableMap<KeyType, ValueType> implements MapADT<KeyType, ValueTy
         try { test.get("FAIL"); }
         catch(NoSuchElementException e) { pass = true; }
         if(!pass) { Assertions.fail("get() method failed to handle getting a key not present"); }
+
+	//tests getOrNull() method finding a key, and returning null for a key that isnt in hashtable
+	HashtableMap<String, String> lookup = new HashtableMap<>(5);
+	lookup.put("test3", "test3");
+	if(!lookup.getOrNull("test3").equals("test3")) { Assertions.fail("getOrNull() method failed"); }
+	if(lookup.getOrNull("FAIL") != null) { Assertions.fail("getOrNull() method failed on finding nonexistent key"); }
     }
 
    /**
@@ -311,7 +366,7 @@ public class HashtableMap<KeyType, ValueType> implements MapADT<KeyType, ValueTy
     @Test
     public void sizeTest() {
 	//inits new Hashtable to be tested
-	HashtableMap test = new HashtableMap(5);
+	HashtableMap<String, String> test = new HashtableMap<>(5);
 
 	//test case for getSize() method
 	test.put("test1", "test1");
@@ -319,6 +374,10 @@ public class HashtableMap<KeyType, ValueType> implements MapADT<KeyType, ValueTy
 	test.put("test3", "test3");
 	if(test.getSize() != 3) { Assertions.fail("getSize() method failed"); }
 
+	//test case for getSize() after removing a key
+	test.remove("test2");
+	if(test.getSize() != 2) { Assertions.fail("getSize() method failed after remove()"); }
+
 	//test case for clear() method
 	test.clear();
 	if(test.getSize() != 0) { Assertions.fail("clear() method failed"); }
@@ -326,4 +385,31 @@ public class HashtableMap<KeyType, ValueType> implements MapADT<KeyType, ValueTy
 	//test case for getCapacity() method
 	if(test.getCapacity() != 5) { Assertions.fail("getCapacity() method failed"); }
     }
+
+   /**
+    * tests that getKeys() and entryIterator() return every key, including
+    * keys stored near the end of a mostly empty table
+    */
+    @Test
+    public void keysTest() {
+	//inits new Hashtable with far more capacity than keys
+	HashtableMap<Integer, String> test = new HashtableMap<>(100);
+	test.put(1, "one");
+	test.put(98, "ninety-eight");
+	test.put(99, "ninety-nine");
+
+	List<Integer> keys = test.getKeys();
+	if(keys.size() != 3 || !keys.contains(1) || !keys.contains(98) || !keys.contains(99))
+		Assertions.fail("getKeys() method failed to return every key");
+
+	int count = 0;
+	Iterator<Map.Entry<Integer, String>> entries = test.entryIterator();
+	while(entries.hasNext()) {
+		Map.Entry<Integer, String> entry = entries.next();
+		if(!test.get(entry.getKey()).equals(entry.getValue()))
+			Assertions.fail("entryIterator() returned a pair that is not in the table");
+		count++;
+	}
+	if(count != 3) { Assertions.fail("entryIterator() method failed to return every pair"); }
+    }
 }
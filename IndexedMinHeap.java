@@ -0,0 +1,217 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * This IndexedMinHeap is a d-ary min heap of int ids, each ordered by a
+ * double key. Unlike java.util.PriorityQueue, each id is stored at most once,
+ * and the position of every id within the heap is tracked so that its key can
+ * be lowered in place through decreaseKey. This lets Dijkstra's algorithm keep
+ * a single heap entry per node, instead of one entry per relaxed edge.
+ */
+public class IndexedMinHeap implements IndexedMinQueue {
+
+    protected int arity; // number of children below each heap entry
+    protected int[] heap; // ids in heap order, heap[0] has the smallest key
+    protected int[] position; // index of each id within heap, or -1
+    protected double[] keys; // key of each id, indexed by id
+    protected int size = 0;
+
+    /**
+     * Creates a 4-ary heap that can hold ids from 0 up to 15, which can be
+     * grown later through ensureCapacity.
+     */
+    public IndexedMinHeap() {
+        this(16);
+    }
+
+    /**
+     * Creates a 4-ary heap that can hold ids from 0 up to capacity-1.
+     *
+     * @param capacity the exclusive upper bound on ids stored in this heap
+     */
+    public IndexedMinHeap(int capacity) {
+        this(capacity, 4);
+    }
+
+    /**
+     * Creates a heap that can hold ids from 0 up to capacity-1.
+     *
+     * @param capacity the exclusive upper bound on ids stored in this heap
+     * @param arity    the number of children of each heap entry, at least 2
+     */
+    public IndexedMinHeap(int capacity, int arity) {
+        if (arity < 2)
+            throw new IllegalArgumentException("arity must be at least 2");
+        this.arity = arity;
+        this.heap = new int[capacity];
+        this.keys = new double[capacity];
+        this.position = new int[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    /**
+     * Grows this heap (when needed) so that it can hold ids up to capacity-1.
+     *
+     * @param capacity the new exclusive upper bound on ids
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity <= position.length)
+            return;
+        int oldCapacity = position.length;
+        heap = Arrays.copyOf(heap, capacity);
+        keys = Arrays.copyOf(keys, capacity);
+        position = Arrays.copyOf(position, capacity);
+        Arrays.fill(position, oldCapacity, capacity, -1);
+    }
+
+    /**
+     * @return true when this heap contains no ids
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the number of ids in this heap
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param id the id to check for
+     * @return true if id is currently in this heap
+     */
+    public boolean contains(int id) {
+        return position[id] >= 0;
+    }
+
+    /**
+     * @param id an id that is currently in this heap
+     * @return the key that id is ordered by
+     */
+    public double getKey(int id) {
+        return keys[id];
+    }
+
+    /**
+     * Adds a new id to this heap.
+     *
+     * @param id  the id to add
+     * @param key the key to order this id by
+     * @throws IllegalArgumentException if id is already in this heap
+     */
+    public void insert(int id, double key) {
+        if (contains(id))
+            throw new IllegalArgumentException("id " + id + " is already in the heap");
+        keys[id] = key;
+        heap[size] = id;
+        position[id] = size;
+        size++;
+        siftUp(size - 1);
+    }
+
+    /**
+     * Lowers the key of an id that is already in this heap.
+     *
+     * @param id  the id whose key to lower
+     * @param key the new key, no larger than the current one
+     * @throws IllegalArgumentException if id is not in this heap, or if key is
+     *                                  larger than its current key
+     */
+    public void decreaseKey(int id, double key) {
+        if (!contains(id))
+            throw new IllegalArgumentException("id " + id + " is not in the heap");
+        if (key > keys[id])
+            throw new IllegalArgumentException("key " + key + " is larger than " + keys[id]);
+        keys[id] = key;
+        siftUp(position[id]);
+    }
+
+    /**
+     * @return the id with the smallest key, without removing it
+     * @throws NoSuchElementException if this heap is empty
+     */
+    public int peek() {
+        if (size == 0)
+            throw new NoSuchElementException("heap is empty");
+        return heap[0];
+    }
+
+    /**
+     * @return the smallest key in this heap
+     * @throws NoSuchElementException if this heap is empty
+     */
+    public double peekKey() {
+        return keys[peek()];
+    }
+
+    /**
+     * Removes and returns the id with the smallest key.
+     *
+     * @return the id with the smallest key
+     * @throws NoSuchElementException if this heap is empty
+     */
+    public int poll() {
+        int min = peek();
+        size--;
+        position[min] = -1;
+        if (size > 0) {
+            int last = heap[size];
+            heap[0] = last;
+            position[last] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    /**
+     * Removes all ids from this heap.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++)
+            position[heap[i]] = -1;
+        size = 0;
+    }
+
+    // moves the entry at index i up until its parent's key is no larger
+    protected void siftUp(int i) {
+        int id = heap[i];
+        double key = keys[id];
+        while (i > 0) {
+            int parent = (i - 1) / arity;
+            int parentId = heap[parent];
+            if (keys[parentId] <= key)
+                break;
+            heap[i] = parentId;
+            position[parentId] = i;
+            i = parent;
+        }
+        heap[i] = id;
+        position[id] = i;
+    }
+
+    // moves the entry at index i down until none of its children are smaller
+    protected void siftDown(int i) {
+        int id = heap[i];
+        double key = keys[id];
+        while (true) {
+            int first = i * arity + 1;
+            if (first >= size)
+                break;
+            // find the child with the smallest key
+            int last = Math.min(first + arity, size);
+            int min = first;
+            for (int child = first + 1; child < last; child++)
+                if (keys[heap[child]] < keys[heap[min]])
+                    min = child;
+            if (keys[heap[min]] >= key)
+                break;
+            heap[i] = heap[min];
+            position[heap[i]] = i;
+            i = min;
+        }
+        heap[i] = id;
+        position[id] = i;
+    }
+}
@@ -0,0 +1,46 @@
+import java.util.NoSuchElementException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests the IndexedMinHeap class.
+ */
+public class IndexedMinHeapTests {
+
+    /**
+     * tests that ids are polled in order of their keys, after decreaseKey
+     */
+    @Test
+    public void pollOrderTest() {
+        for (int arity = 2; arity <= 4; arity += 2) {
+            IndexedMinHeap test = new IndexedMinHeap(6, arity);
+            test.insert(0, 5);
+            test.insert(1, 3);
+            test.insert(2, 8);
+            test.insert(3, 1);
+            test.insert(4, 9);
+            test.decreaseKey(4, 2);
+            test.decreaseKey(2, 0.5);
+            int[] expected = { 2, 3, 4, 1, 0 };
+            for (int id : expected)
+                Assertions.assertEquals(id, test.poll());
+            Assertions.assertTrue(test.isEmpty());
+        }
+    }
+
+    /**
+     * tests that each id can only be stored once, and that clear() empties
+     */
+    @Test
+    public void containsTest() {
+        IndexedMinHeap test = new IndexedMinHeap(3);
+        test.insert(1, 4);
+        Assertions.assertTrue(test.contains(1));
+        Assertions.assertFalse(test.contains(2));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> test.insert(1, 2));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> test.decreaseKey(1, 7));
+        test.clear();
+        Assertions.assertFalse(test.contains(1));
+        Assertions.assertThrows(NoSuchElementException.class, () -> test.poll());
+    }
+}
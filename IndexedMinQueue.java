@@ -0,0 +1,74 @@
+/**
+ * An IndexedMinQueue is a priority queue of int ids, each ordered by a double
+ * key, that stores each id at most once and can lower the key of an id it
+ * already holds. This is everything that Dijkstra's algorithm needs from its
+ * queue when it keeps a single entry per node.
+ */
+public interface IndexedMinQueue {
+
+    /**
+     * @return true when this queue contains no ids
+     */
+    public boolean isEmpty();
+
+    /**
+     * @return the number of ids in this queue
+     */
+    public int size();
+
+    /**
+     * @param id the id to check for
+     * @return true if id is currently in this queue
+     */
+    public boolean contains(int id);
+
+    /**
+     * @param id an id that is currently in this queue
+     * @return the key that id is ordered by
+     */
+    public double getKey(int id);
+
+    /**
+     * Adds a new id to this queue.
+     *
+     * @param id  the id to add
+     * @param key the key to order this id by
+     * @throws IllegalArgumentException if id is already in this queue
+     */
+    public void insert(int id, double key);
+
+    /**
+     * Lowers the key of an id that is already in this queue.
+     *
+     * @param id  the id whose key to lower
+     * @param key the new key, no larger than the current one
+     * @throws IllegalArgumentException if id is not in this queue, or if key
+     *                                  is larger than its current key
+     */
+    public void decreaseKey(int id, double key);
+
+    /**
+     * @return the id with the smallest key, without removing it
+     * @throws java.util.NoSuchElementException if this queue is empty
+     */
+    public int peek();
+
+    /**
+     * @return the smallest key in this queue
+     * @throws java.util.NoSuchElementException if this queue is empty
+     */
+    public double peekKey();
+
+    /**
+     * Removes and returns the id with the smallest key.
+     *
+     * @return the id with the smallest key
+     * @throws java.util.NoSuchElementException if this queue is empty
+     */
+    public int poll();
+
+    /**
+     * Removes all ids from this queue.
+     */
+    public void clear();
+}
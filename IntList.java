@@ -0,0 +1,22 @@
+import java.util.Arrays;
+
+/**
+ * A growable list of ints, which avoids boxing every node id. Its fields are
+ * read and written directly by the searches that use it, so it has no
+ * methods beyond add.
+ */
+public class IntList {
+    public int[] items = new int[4];
+    public int size = 0;
+
+    /**
+     * Adds item to the end of this list, doubling its array when full.
+     *
+     * @param item the int to add
+     */
+    public void add(int item) {
+        if (size == items.length)
+            items = Arrays.copyOf(items, size * 2);
+        items[size++] = item;
+    }
+}
@@ -0,0 +1,353 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * This LandmarkIndex supports A* searches with landmarks and the triangle
+ * inequality (ALT) over a CsrGraph. A few landmark nodes are chosen ahead of
+ * time, and the cost of the shortest path from each landmark to every node,
+ * and from every node to each landmark, is stored. For any landmark L, the
+ * triangle inequality gives two lower bounds on the cost of getting from v to
+ * the target t:
+ *     cost(v, L) - cost(t, L)    and    cost(L, t) - cost(L, v)
+ * The largest of these bounds is used by A* to expand nodes in the direction
+ * of the target first, rather than in every direction like Dijkstra's.
+ */
+public class LandmarkIndex<NodeType> {
+
+    // identifies files written by save(), followed by the format version
+    protected static final int FILE_MAGIC = 0x50464c4d; // "PFLM"
+    protected static final int FILE_VERSION = 1;
+
+    // bounds are scaled down very slightly, so that rounding errors in the
+    // stored costs can never make a bound larger than the true cost
+    protected static final double BOUND_SCALE = 1 - 1e-9;
+
+    protected CsrGraph<NodeType> graph;
+    protected int[] landmarks; // ids of the landmark nodes
+    protected double[][] costsFrom; // costsFrom[i][v] is cost(landmarks[i], v)
+    protected double[][] costsTo; // costsTo[i][v] is cost(v, landmarks[i])
+
+    /**
+     * Chooses up to count landmarks within graph, and computes the costs
+     * between each landmark and every node. Landmarks are chosen farthest
+     * first: each new landmark is the node that is farthest from all the
+     * landmarks chosen before it, with nodes that none of them can reach
+     * chosen before any others.
+     *
+     * @param graph the graph to compute landmarks for
+     * @param count the number of landmarks to choose
+     */
+    public LandmarkIndex(CsrGraph<NodeType> graph, int count) {
+        this.graph = graph;
+        int nodeCount = graph.getNodeCount();
+        count = Math.min(count, nodeCount);
+        landmarks = new int[count];
+        costsFrom = new double[count][];
+        costsTo = new double[count][];
+        if (count == 0)
+            return;
+
+        // start from the node farthest away from node 0
+        double[] closest = graph.computeCosts(0, false);
+        for (int i = 0; i < count; i++) {
+            int farthest = 0;
+            for (int v = 1; v < nodeCount; v++)
+                if (closest[v] > closest[farthest])
+                    farthest = v;
+            landmarks[i] = farthest;
+            costsFrom[i] = graph.computeCosts(farthest, false);
+            costsTo[i] = graph.computeCosts(farthest, true);
+
+            // remember how far each node is from the landmarks chosen so far
+            if (i == 0)
+                closest = costsFrom[0].clone();
+            else
+                for (int v = 0; v < nodeCount; v++)
+                    closest[v] = Math.min(closest[v], costsFrom[i][v]);
+        }
+    }
+
+    // creates an index from landmark costs that have already been computed
+    protected LandmarkIndex(CsrGraph<NodeType> graph, int[] landmarks, double[][] costsFrom,
+            double[][] costsTo) {
+        this.graph = graph;
+        this.landmarks = landmarks;
+        this.costsFrom = costsFrom;
+        this.costsTo = costsTo;
+    }
+
+    /**
+     * @return the graph that this index was computed for
+     */
+    public CsrGraph<NodeType> getGraph() {
+        return graph;
+    }
+
+    /**
+     * Moves these landmarks over to a changed copy of their graph, computing
+     * only the costs that the changes lower. Each stored cost is carried over
+     * to the node with the same data in changedGraph, with inserted nodes
+     * starting out unreachable. Changes that remove edges or raise weights
+     * are then left alone: every stored cost is at most the new cost, so each
+     * lower bound is still at most its new cost, and the bounds just become
+     * less tight as such changes build up. Each inserted edge and lowered
+     * weight that makes a cheaper path, though, is followed outward through
+     * changedGraph until costs stop dropping, as Dijkstra's would. The costs
+     * then obey the triangle inequality along every edge of changedGraph,
+     * which is all that the bounds and the unreachable cases rely on.
+     *
+     * @param changedGraph the graph after the changes were made
+     * @param changes      the changes that turned this index's graph into
+     *                     changedGraph
+     * @return an index with these landmarks and costs for changedGraph, or
+     *         null if the changes removed any of the landmarks
+     */
+    public LandmarkIndex<NodeType> forChangedGraph(CsrGraph<NodeType> changedGraph,
+            GraphChangeSet<NodeType, ? extends Number> changes) {
+        int[] changedLandmarks = new int[landmarks.length];
+        for (int i = 0; i < landmarks.length; i++) {
+            changedLandmarks[i] = changedGraph.getId(graph.getData(landmarks[i]));
+            if (changedLandmarks[i] < 0)
+                return null;
+        }
+        // the id in changedGraph of each node in graph, or -1 once removed
+        int[] changedIds = new int[graph.getNodeCount()];
+        boolean sameIds = changedGraph.getNodeCount() == graph.getNodeCount();
+        for (int v = 0; v < changedIds.length; v++) {
+            changedIds[v] = changedGraph.getId(graph.getData(v));
+            sameIds &= changedIds[v] == v;
+        }
+
+        double[][] changedFrom = new double[landmarks.length][];
+        double[][] changedTo = new double[landmarks.length][];
+        boolean sameCosts = sameIds;
+        for (int i = 0; i < landmarks.length; i++) {
+            changedFrom[i] = lowerCosts(
+                    sameIds ? costsFrom[i] : moveCosts(costsFrom[i], changedIds, changedGraph),
+                    changedGraph, changes, false);
+            changedTo[i] = lowerCosts(
+                    sameIds ? costsTo[i] : moveCosts(costsTo[i], changedIds, changedGraph),
+                    changedGraph, changes, true);
+            sameCosts &= changedFrom[i] == costsFrom[i] && changedTo[i] == costsTo[i];
+        }
+        if (sameCosts)
+            return new LandmarkIndex<>(changedGraph, landmarks, costsFrom, costsTo);
+        return new LandmarkIndex<>(changedGraph, changedLandmarks, changedFrom, changedTo);
+    }
+
+    // copies each cost over to the id its node has in changedGraph
+    private static double[] moveCosts(double[] costs, int[] changedIds, CsrGraph<?> changedGraph) {
+        double[] moved = new double[changedGraph.getNodeCount()];
+        Arrays.fill(moved, Double.POSITIVE_INFINITY);
+        for (int v = 0; v < costs.length; v++)
+            if (changedIds[v] >= 0)
+                moved[changedIds[v]] = costs[v];
+        return moved;
+    }
+
+    // lowers the costs from (or, when reverse is true, to) one landmark along
+    // every path through an inserted edge or lowered weight that is cheaper,
+    // copying costs before writing to them the first time
+    private static <NodeType> double[] lowerCosts(double[] costs, CsrGraph<NodeType> changedGraph,
+            GraphChangeSet<NodeType, ? extends Number> changes, boolean reverse) {
+        int[] edgeOffsets = reverse ? changedGraph.reverseOffsets : changedGraph.offsets;
+        int[] edgeNodes = reverse ? changedGraph.sources : changedGraph.targets;
+        double[] edgeWeights = reverse ? changedGraph.reverseWeights : changedGraph.weights;
+        double[] lowered = costs;
+        IndexedMinHeap queue = null;
+        for (GraphChangeSet.EdgeChange<NodeType, ? extends Number> change : changes.getEdgeChanges()) {
+            if (change.isRemove() || (!change.isInsert()
+                    && change.newWeight.doubleValue() >= change.oldWeight.doubleValue()))
+                continue;
+            int u = changedGraph.getId(reverse ? change.successor : change.predecessor);
+            int v = changedGraph.getId(reverse ? change.predecessor : change.successor);
+            double newCost = lowered[u] + change.newWeight.doubleValue();
+            if (!(newCost < lowered[v]))
+                continue;
+            if (queue == null) {
+                lowered = costs.clone();
+                queue = new IndexedMinHeap(changedGraph.getNodeCount());
+            }
+            lowered[v] = newCost;
+            if (queue.contains(v))
+                queue.decreaseKey(v, newCost);
+            else
+                queue.insert(v, newCost);
+        }
+
+        while (queue != null && !queue.isEmpty()) {
+            int u = queue.poll();
+            for (int e = edgeOffsets[u]; e < edgeOffsets[u + 1]; e++) {
+                int v = edgeNodes[e];
+                double newCost = lowered[u] + edgeWeights[e];
+                if (!(newCost < lowered[v]))
+                    continue;
+                lowered[v] = newCost;
+                if (queue.contains(v))
+                    queue.decreaseKey(v, newCost);
+                else
+                    queue.insert(v, newCost);
+            }
+        }
+        return lowered;
+    }
+
+    /**
+     * @return the number of landmarks in this index
+     */
+    public int getLandmarkCount() {
+        return landmarks.length;
+    }
+
+    /**
+     * Returns a lower bound on the cost of the shortest path from v to target.
+     *
+     * @param v      id of the node the path starts from
+     * @param target id of the node the path ends at
+     * @return a lower bound on that cost, which is Double.POSITIVE_INFINITY
+     *         when the landmarks show that target cannot be reached from v
+     */
+    public double lowerBound(int v, int target) {
+        double bound = 0;
+        for (int i = 0; i < landmarks.length; i++) {
+            // v cannot reach target if v cannot reach a landmark that target
+            // reaches, or if a landmark reaches v but cannot reach target
+            double toLandmark = costsTo[i][v];
+            double targetToLandmark = costsTo[i][target];
+            double fromLandmark = costsFrom[i][v];
+            double landmarkToTarget = costsFrom[i][target];
+            if (toLandmark == Double.POSITIVE_INFINITY && targetToLandmark != Double.POSITIVE_INFINITY)
+                return Double.POSITIVE_INFINITY;
+            if (landmarkToTarget == Double.POSITIVE_INFINITY && fromLandmark != Double.POSITIVE_INFINITY)
+                return Double.POSITIVE_INFINITY;
+            if (toLandmark != Double.POSITIVE_INFINITY && targetToLandmark != Double.POSITIVE_INFINITY)
+                bound = Math.max(bound, toLandmark - targetToLandmark);
+            if (landmarkToTarget != Double.POSITIVE_INFINITY && fromLandmark != Double.POSITIVE_INFINITY)
+                bound = Math.max(bound, landmarkToTarget - fromLandmark);
+        }
+        return bound * BOUND_SCALE;
+    }
+
+    /**
+     * Runs an A* search from start to end, ordering nodes by their cost from
+     * start plus their lower bound on the cost to end. The search runs in
+     * workspace, so that it allocates nothing in proportion to the graph.
+     *
+     * @param start     id of the node to search from
+     * @param end       id of the node to search for
+     * @param workspace the workspace to search in, which is left holding the
+     *                  cost of reaching each node, and in place of the node it
+     *                  was reached from, the index (into the graph's leaving
+     *                  edge arrays) of the edge it was reached through, or -1
+     *                  for start
+     * @return true if end was reached, or false if there is no path to it
+     */
+    public boolean search(int start, int end, SearchWorkspace workspace) {
+        IndexedMinHeap queue = workspace.start(graph.getNodeCount());
+        if (lowerBound(start, end) == Double.POSITIVE_INFINITY)
+            return false;
+        workspace.reach(start, 0, -1);
+        queue.insert(start, lowerBound(start, end));
+        while (!queue.isEmpty()) {
+            int u = queue.poll();
+            if (u == end)
+                return true;
+            workspace.settle(u);
+            double cost = workspace.getCost(u);
+            for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+                int v = graph.targets[e];
+                if (workspace.isSettled(v))
+                    continue;
+                double newCost = cost + graph.weights[e];
+                if (!queue.contains(v)) {
+                    double bound = lowerBound(v, end);
+                    if (bound == Double.POSITIVE_INFINITY)
+                        continue; // end cannot be reached through v
+                    queue.insert(v, newCost + bound);
+                } else if (newCost < workspace.getCost(v)) {
+                    queue.decreaseKey(v, newCost + lowerBound(v, end));
+                } else {
+                    continue;
+                }
+                workspace.reach(v, newCost, e);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes this index's landmarks and costs to a file, along with a
+     * fingerprint of the graph so that load() can tell if the file is stale.
+     * The index is written to a temporary file in the same directory, which
+     * then atomically replaces filename, so that a process loading the index
+     * never reads a partly written one.
+     *
+     * @param filename the path of the file to write
+     * @throws IOException if there was any problem writing this file
+     */
+    public void save(String filename) throws IOException {
+        Path target = Path.of(filename).toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName() + ".", ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(FILE_VERSION);
+                out.writeLong(graph.fingerprint());
+                out.writeInt(graph.getNodeCount());
+                out.writeInt(landmarks.length);
+                for (int i = 0; i < landmarks.length; i++) {
+                    out.writeInt(landmarks[i]);
+                    for (double cost : costsFrom[i])
+                        out.writeDouble(cost);
+                    for (double cost : costsTo[i])
+                        out.writeDouble(cost);
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp); // only left behind when writing failed
+        }
+    }
+
+    /**
+     * Reads an index written by save(), if it was computed for a graph with
+     * exactly the same contents as the provided graph.
+     *
+     * @param filename the path of the file to read
+     * @param graph    the graph that the index should belong to
+     * @return the index from that file, or null if the file was written for a
+     *         different graph or by an unknown version of this class
+     * @throws IOException if there was any problem reading this file
+     */
+    public static <NodeType> LandmarkIndex<NodeType> load(String filename,
+            CsrGraph<NodeType> graph) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(filename)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION
+                    || in.readLong() != graph.fingerprint() || in.readInt() != graph.getNodeCount())
+                return null;
+            int count = in.readInt();
+            int nodeCount = graph.getNodeCount();
+            int[] landmarks = new int[count];
+            double[][] costsFrom = new double[count][nodeCount];
+            double[][] costsTo = new double[count][nodeCount];
+            for (int i = 0; i < count; i++) {
+                landmarks[i] = in.readInt();
+                for (int v = 0; v < nodeCount; v++)
+                    costsFrom[i][v] = in.readDouble();
+                for (int v = 0; v < nodeCount; v++)
+                    costsTo[i][v] = in.readDouble();
+            }
+            return new LandmarkIndex<>(graph, landmarks, costsFrom, costsTo);
+        }
+    }
+}
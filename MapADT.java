@@ -33,6 +33,18 @@ public interface MapADT<KeyType, ValueType> {
      */
     public ValueType get(KeyType key) throws NoSuchElementException;
 
+    /**
+     * Retrieves the value that a key maps to without throwing an exception
+     * when there is none, so that a key that is missing costs no more to
+     * look up than one that is stored.
+     * @param key the key to look up
+     * @return the value that key maps to, or null when key is not stored
+     *         in this collection
+     */
+    public default ValueType getOrNull(KeyType key) {
+        return containsKey(key) ? get(key) : null;
+    }
+
     /**
      * Remove the mapping for a key from this collection.
      * @param key the key whose mapping to remove
@@ -0,0 +1,245 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Implements MapADT with open addressing: keys and values are stored directly
+ * in parallel arrays rather than in chains of Pair objects, and collisions are
+ * resolved by linear probing with Robin Hood ordering. Each key's hash is kept
+ * in a third array, so most probes compare ints rather than calling equals(),
+ * and a lookup can stop as soon as it reaches a key that sits closer to its
+ * home slot than the key being searched for would.
+ */
+public class OpenAddressingMap<KeyType, ValueType> implements MapADT<KeyType, ValueType> {
+
+    // resize once more than this fraction of the slots are in use
+    protected static final double MAX_LOAD_FACTOR = 0.75;
+
+    protected Object[] keys;
+    protected Object[] values;
+    protected int[] hashes; // hash of the key in each slot, or 0 when empty
+    protected int size = 0;
+
+    /**
+     * Creates a map with room for at least capacity slots, rounded up to a
+     * power of two.
+     *
+     * @param capacity the minimum number of slots in the underlying arrays
+     */
+    public OpenAddressingMap(int capacity) {
+        int slots = 2;
+        while (slots < capacity)
+            slots *= 2;
+        keys = new Object[slots];
+        values = new Object[slots];
+        hashes = new int[slots];
+    }
+
+    public OpenAddressingMap() { // with default capacity = 64
+        this(64);
+    }
+
+    // spreads the bits of key's hashCode, and marks the result as non-zero
+    protected static int hash(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) | 0x80000000;
+    }
+
+    // how many slots the entry in slot is past the slot its hash maps to
+    protected int probeDistance(int slot) {
+        return (slot - hashes[slot]) & (hashes.length - 1);
+    }
+
+    // returns the slot holding key, or -1 when key is not in this map
+    protected int findSlot(Object key) {
+        int hash = hash(key); // throws NPE when key is null
+        int mask = hashes.length - 1;
+        int slot = hash & mask;
+        for (int distance = 0; hashes[slot] != 0; distance++) {
+            // every key further along sits closer to its home than key would
+            if (probeDistance(slot) < distance)
+                return -1;
+            if (hashes[slot] == hash && keys[slot].equals(key))
+                return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Adds a new key,value pair/mapping to this collection.
+     * @param key the key of the key,value pair
+     * @param value the value that key maps to
+     * @throws IllegalArgumentException if key already maps to a value
+     * @throws NullPointerException if key is null
+     */
+    @Override
+    public void put(KeyType key, ValueType value) throws IllegalArgumentException {
+        if (key == null)
+            throw new NullPointerException("null keys not allowed");
+        if (findSlot(key) >= 0)
+            throw new IllegalArgumentException("key " + key.toString() + " already present in map");
+        if (size + 1 > hashes.length * MAX_LOAD_FACTOR)
+            resize(hashes.length * 2);
+        insert(hash(key), key, value);
+        size++;
+    }
+
+    // places an entry that is known not to be in the map yet, displacing any
+    // entries that are closer to their home slot than the one being placed
+    protected void insert(int hash, Object key, Object value) {
+        int mask = hashes.length - 1;
+        int slot = hash & mask;
+        for (int distance = 0; hashes[slot] != 0; distance++) {
+            int existingDistance = probeDistance(slot);
+            if (existingDistance < distance) {
+                // swap the entry being placed with the one in this slot
+                int displacedHash = hashes[slot];
+                Object displacedKey = keys[slot];
+                Object displacedValue = values[slot];
+                hashes[slot] = hash;
+                keys[slot] = key;
+                values[slot] = value;
+                hash = displacedHash;
+                key = displacedKey;
+                value = displacedValue;
+                distance = existingDistance;
+            }
+            slot = (slot + 1) & mask;
+        }
+        hashes[slot] = hash;
+        keys[slot] = key;
+        values[slot] = value;
+    }
+
+    // moves every entry into new arrays with the given number of slots
+    protected void resize(int slots) {
+        int[] oldHashes = hashes;
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        hashes = new int[slots];
+        keys = new Object[slots];
+        values = new Object[slots];
+        for (int i = 0; i < oldHashes.length; i++)
+            if (oldHashes[i] != 0)
+                insert(oldHashes[i], oldKeys[i], oldValues[i]);
+    }
+
+    /**
+     * Checks whether a key maps to a value in this collection.
+     * @param key the key to check
+     * @return true if the key maps to a value, and false is the
+     *         key doesn't map to a value
+     */
+    @Override
+    public boolean containsKey(KeyType key) {
+        return findSlot(key) >= 0;
+    }
+
+    /**
+     * Retrieves the specific value that a key maps to.
+     * @param key the key to look up
+     * @return the value that key maps to
+     * @throws NoSuchElementException when key is not stored in this
+     *         collection
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public ValueType get(KeyType key) throws NoSuchElementException {
+        int slot = findSlot(key);
+        if (slot < 0)
+            throw new NoSuchElementException("key " + key.toString() + " not in map");
+        return (ValueType) values[slot];
+    }
+
+    /**
+     * Retrieves the value that a key maps to without throwing an exception
+     * when there is none.
+     * @param key the key to look up
+     * @return the value that key maps to, or null when key is not stored
+     *         in this collection
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public ValueType getOrNull(KeyType key) {
+        int slot = findSlot(key);
+        return slot < 0 ? null : (ValueType) values[slot];
+    }
+
+    /**
+     * Remove the mapping for a key from this collection.
+     * @param key the key whose mapping to remove
+     * @return the value that the removed key mapped to
+     * @throws NoSuchElementException when key is not stored in this
+     *         collection
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public ValueType remove(KeyType key) throws NoSuchElementException {
+        int slot = findSlot(key);
+        if (slot < 0)
+            throw new NoSuchElementException("key " + key.toString() + " not in map");
+        ValueType removed = (ValueType) values[slot];
+
+        // shift the following entries back by one slot, until reaching an
+        // empty slot or an entry that is already in its home slot
+        int mask = hashes.length - 1;
+        int next = (slot + 1) & mask;
+        while (hashes[next] != 0 && probeDistance(next) > 0) {
+            hashes[slot] = hashes[next];
+            keys[slot] = keys[next];
+            values[slot] = values[next];
+            slot = next;
+            next = (next + 1) & mask;
+        }
+        hashes[slot] = 0;
+        keys[slot] = null;
+        values[slot] = null;
+        size--;
+        return removed;
+    }
+
+    /**
+     * Removes all key,value pairs from this collection.
+     */
+    @Override
+    public void clear() {
+        Arrays.fill(hashes, 0);
+        Arrays.fill(keys, null);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Retrieves the number of keys stored in this collection.
+     * @return the number of keys stored in this collection
+     */
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Retrieves this collection's capacity.
+     * @return the size of the underlying arrays for this collection
+     */
+    @Override
+    public int getCapacity() {
+        return hashes.length;
+    }
+
+    /**
+     * Retrieves this collection's keys.
+     * @return a list of keys in the underlying arrays for this collection
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<KeyType> getKeys() {
+        List<KeyType> list = new ArrayList<>(size);
+        for (int i = 0; i < hashes.length; i++)
+            if (hashes[i] != 0)
+                list.add((KeyType) keys[i]);
+        return list;
+    }
+}
@@ -0,0 +1,51 @@
+import java.util.NoSuchElementException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests the OpenAddressingMap class.
+ */
+public class OpenAddressingMapTests {
+
+    /**
+     * tests put(), get() and getSize() across several resizes
+     */
+    @Test
+    public void putGetTest() {
+        OpenAddressingMap<Integer, String> test = new OpenAddressingMap<>(2);
+        for (int i = 0; i < 1000; i++)
+            test.put(i * 31, "value" + i);
+        Assertions.assertEquals(1000, test.getSize());
+        for (int i = 0; i < 1000; i++)
+            Assertions.assertEquals("value" + i, test.get(i * 31));
+        Assertions.assertFalse(test.containsKey(1));
+        Assertions.assertEquals("value7", test.getOrNull(7 * 31));
+        Assertions.assertNull(test.getOrNull(1));
+        Assertions.assertEquals(1000, test.getKeys().size());
+
+        // duplicate and null keys are rejected
+        Assertions.assertThrows(IllegalArgumentException.class, () -> test.put(31, "again"));
+        Assertions.assertThrows(NullPointerException.class, () -> test.put(null, "null"));
+        Assertions.assertThrows(NoSuchElementException.class, () -> test.get(1));
+    }
+
+    /**
+     * tests that remove() leaves every other key reachable
+     */
+    @Test
+    public void removeTest() {
+        OpenAddressingMap<Integer, Integer> test = new OpenAddressingMap<>(8);
+        for (int i = 0; i < 200; i++)
+            test.put(i, i);
+        for (int i = 0; i < 200; i += 2)
+            Assertions.assertTrue(test.remove(i) == i);
+        Assertions.assertEquals(100, test.getSize());
+        for (int i = 0; i < 200; i++)
+            Assertions.assertEquals(i % 2 == 1, test.containsKey(i));
+        Assertions.assertThrows(NoSuchElementException.class, () -> test.remove(0));
+
+        test.clear();
+        Assertions.assertEquals(0, test.getSize());
+        Assertions.assertFalse(test.containsKey(1));
+    }
+}
@@ -0,0 +1,451 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * This ParallelGraphLoader loads very large graph files using every core. The
+ * file is memory-mapped with FileChannel.map and split into chunks that each
+ * end at a line break, and the chunks are parsed in parallel on the common
+ * fork-join pool into separate edge buffers, which are then merged in file
+ * order. Nodes are numbered in the order they first appear in the file, so
+ * the result is the same as loading the file one line at a time.
+ *
+ * Since chunks are split at line breaks, each statement must fit on a single
+ * line, as graph exporters (and campus.dot) write them. Each line is one of:
+ *     "source" -> "target" [seconds=12.5];   a DOT edge statement
+ *     source target 12.5                     an edge list entry
+ *     digraph name {   or   }                the start or end of a DOT graph
+ * along with blank lines and lines starting with # or //. Ids can be quoted
+ * or unquoted in either form. Any other line is reported as an IOException
+ * whose message starts with its line number.
+ */
+public class ParallelGraphLoader {
+
+    // files are split into chunks of about this many bytes by default
+    public static final int DEFAULT_CHUNK_SIZE = 16 << 20;
+
+    // the edges parsed from one chunk of the file, with nodes numbered within
+    // the chunk in the order they first appear in it
+    protected static class EdgeChunk {
+        public List<String> nodeData = new ArrayList<>();
+        public MapADT<String, Integer> ids = new OpenAddressingMap<>();
+        public int[] sources = new int[1024];
+        public int[] targets = new int[1024];
+        public double[] weights = new double[1024];
+        public int edgeCount = 0;
+        public int lineCount = 0;
+        // the first problem found in this chunk, with its line within the chunk
+        public String error = null;
+        public int errorLine = 0;
+
+        public int idOf(String data) {
+            Integer id = ids.getOrNull(data);
+            if (id != null)
+                return id;
+            ids.put(data, nodeData.size());
+            nodeData.add(data);
+            return nodeData.size() - 1;
+        }
+
+        public void addEdge(String source, String target, double weight) {
+            if (edgeCount == sources.length) {
+                sources = Arrays.copyOf(sources, edgeCount * 2);
+                targets = Arrays.copyOf(targets, edgeCount * 2);
+                weights = Arrays.copyOf(weights, edgeCount * 2);
+            }
+            sources[edgeCount] = idOf(source);
+            targets[edgeCount] = idOf(target);
+            weights[edgeCount] = weight;
+            edgeCount++;
+        }
+    }
+
+    // the nodes and edges of a whole file, with nodes numbered from 0
+    protected static class EdgeList {
+        public List<String> nodeData = new ArrayList<>();
+        public int[] sources;
+        public int[] targets;
+        public double[] weights;
+        public int edgeCount;
+    }
+
+    protected String weightAttribute;
+    protected int chunkSize;
+
+    /**
+     * Creates a loader that reads edge weights from the named DOT attribute.
+     *
+     * @param weightAttribute the name of the attribute holding edge weights
+     * @param chunkSize       about how many bytes each parallel task parses
+     */
+    public ParallelGraphLoader(String weightAttribute, int chunkSize) {
+        if (chunkSize <= 0)
+            throw new IllegalArgumentException("chunkSize must be positive");
+        this.weightAttribute = weightAttribute;
+        this.chunkSize = chunkSize;
+    }
+
+    public ParallelGraphLoader() { // with weights in seconds and 16MB chunks
+        this("seconds", DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Loads a file straight into a read-only CsrGraph snapshot. Each line of
+     * the file becomes its own edge, so an edge listed twice is kept twice.
+     *
+     * @param filename the path of the file to load
+     * @return the snapshot holding every node and edge in the file
+     * @throws IOException if the file could not be read or parsed
+     */
+    public CsrGraph<String> loadSnapshot(String filename) throws IOException {
+        EdgeList edges = load(filename);
+        return CsrGraph.fromEdgeList(edges.nodeData, edges.sources, edges.targets, edges.weights,
+                edges.edgeCount);
+    }
+
+    /**
+     * Loads a file into a graph, by inserting every node and then every edge
+     * in the order they appear in the file. Only parsing runs in parallel:
+     * the graph itself is only modified by the calling thread.
+     *
+     * @param graph    the graph to add the file's nodes and edges to
+     * @param filename the path of the file to load
+     * @throws IOException if the file could not be read or parsed, in which
+     *                     case graph is left unchanged
+     */
+    public void loadInto(GraphADT<String, Double> graph, String filename) throws IOException {
+        EdgeList edges = load(filename);
+        for (String data : edges.nodeData)
+            graph.insertNode(data);
+        for (int e = 0; e < edges.edgeCount; e++)
+            graph.insertEdge(edges.nodeData.get(edges.sources[e]), edges.nodeData.get(edges.targets[e]),
+                    edges.weights[e]);
+    }
+
+    // parses every chunk of a file in parallel, and merges them in file order
+    protected EdgeList load(String filename) throws IOException {
+        EdgeChunk[] chunks;
+        try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+            long[] bounds = findChunkBounds(channel);
+            chunks = IntStream.range(0, bounds.length - 1).parallel()
+                    .mapToObj(i -> parseChunk(channel, bounds[i], bounds[i + 1]))
+                    .toArray(EdgeChunk[]::new);
+        }
+
+        // report the first problem in the file, counting lines from its start
+        int linesBefore = 0;
+        int edgeCount = 0;
+        for (EdgeChunk chunk : chunks) {
+            if (chunk.error != null)
+                throw new IOException("line " + (linesBefore + chunk.errorLine) + ": " + chunk.error);
+            linesBefore += chunk.lineCount;
+            edgeCount += chunk.edgeCount;
+        }
+
+        // number nodes in the order they first appear across the chunks
+        EdgeList merged = new EdgeList();
+        MapADT<String, Integer> ids = new OpenAddressingMap<>();
+        merged.sources = new int[edgeCount];
+        merged.targets = new int[edgeCount];
+        merged.weights = new double[edgeCount];
+        for (EdgeChunk chunk : chunks) {
+            int[] globalIds = new int[chunk.nodeData.size()];
+            for (int local = 0; local < globalIds.length; local++) {
+                String data = chunk.nodeData.get(local);
+                Integer id = ids.getOrNull(data);
+                if (id == null) {
+                    id = merged.nodeData.size();
+                    ids.put(data, id);
+                    merged.nodeData.add(data);
+                }
+                globalIds[local] = id;
+            }
+            for (int e = 0; e < chunk.edgeCount; e++) {
+                merged.sources[merged.edgeCount] = globalIds[chunk.sources[e]];
+                merged.targets[merged.edgeCount] = globalIds[chunk.targets[e]];
+                merged.weights[merged.edgeCount] = chunk.weights[e];
+                merged.edgeCount++;
+            }
+        }
+        return merged;
+    }
+
+    // returns the offsets where chunks start, moving each nominal chunk start
+    // forward to just after the next line break, followed by the file size
+    protected long[] findChunkBounds(FileChannel channel) throws IOException {
+        long size = channel.size();
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        long next = chunkSize;
+        while (next < size) {
+            long lineStart = findLineStart(channel, next, size);
+            if (lineStart >= size)
+                break;
+            bounds.add(lineStart);
+            next = lineStart + chunkSize;
+        }
+        bounds.add(size);
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = bounds.get(i);
+        return result;
+    }
+
+    // returns the offset just after the first line break at or after from
+    protected long findLineStart(FileChannel channel, long from, long size) throws IOException {
+        long window = 1 << 16;
+        for (long start = from; start < size; start += window) {
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                    Math.min(window, size - start));
+            for (int i = 0; i < bytes.limit(); i++)
+                if (bytes.get(i) == '\n')
+                    return start + i + 1;
+        }
+        return size;
+    }
+
+    // maps the bytes between two chunk bounds, copies them into an array in
+    // one bulk read, and parses each line
+    protected EdgeChunk parseChunk(FileChannel channel, long start, long end) {
+        EdgeChunk chunk = new EdgeChunk();
+        byte[] data = new byte[(int) (end - start)];
+        try {
+            channel.map(FileChannel.MapMode.READ_ONLY, start, end - start).get(0, data);
+        } catch (IOException e) {
+            chunk.error = "unable to map the file: " + e.getMessage();
+            chunk.errorLine = 1;
+            return chunk;
+        }
+        LineReader reader = new LineReader();
+        int position = 0;
+        while (position < data.length) {
+            int lineEnd = position;
+            while (lineEnd < data.length && data[lineEnd] != '\n')
+                lineEnd++;
+            chunk.lineCount++;
+            reader.reset(data, position, lineEnd);
+            String error = parseLine(reader, chunk);
+            if (error != null) {
+                chunk.error = error;
+                chunk.errorLine = chunk.lineCount;
+                return chunk;
+            }
+            position = lineEnd + 1;
+        }
+        return chunk;
+    }
+
+    /**
+     * Parses one line of the file, adding any edge on it to chunk.
+     *
+     * @return a description of the problem with this line, or null if the
+     *         line was parsed
+     */
+    protected String parseLine(LineReader reader, EdgeChunk chunk) {
+        reader.skipSpaces();
+        if (reader.atEnd() || reader.peek() == '#' || reader.startsWith("//") || reader.startsWith("}"))
+            return null;
+        if (reader.startsWithWord("digraph") || reader.startsWithWord("strict"))
+            return reader.endsWith('{') ? null : "expected { at the end of the digraph declaration";
+
+        String source = reader.readId();
+        if (source == null)
+            return "expected a node, found " + reader.describe();
+        reader.skipSpaces();
+        boolean isDot = reader.startsWith("->");
+        if (isDot) {
+            reader.position += 2;
+            reader.skipSpaces();
+        }
+        String target = reader.readId();
+        if (target == null)
+            return "expected a second node, found " + reader.describe();
+        reader.skipSpaces();
+
+        String weight;
+        if (isDot) {
+            weight = reader.readAttribute(weightAttribute);
+            if (weight == null)
+                return reader.error != null ? reader.error : "edge has no " + weightAttribute + " attribute";
+        } else {
+            weight = reader.readId();
+            if (weight == null)
+                return "expected a weight, found " + reader.describe();
+        }
+        reader.skipSpaces();
+        if (!reader.atEnd() && reader.peek() == ';')
+            reader.position++;
+        reader.skipSpaces();
+        if (!reader.atEnd())
+            return "unexpected " + reader.describe() + " after the edge";
+
+        double value;
+        try {
+            value = Double.parseDouble(weight);
+        } catch (NumberFormatException e) {
+            return "weight is not a number: " + weight;
+        }
+        if (!(value >= 0) || Double.isInfinite(value))
+            return "weight must be a finite, non-negative number: " + weight;
+        chunk.addEdge(source, target, value);
+        return null;
+    }
+
+    // Reads the tokens of a single line of UTF-8 bytes, from position up to
+    // (but not including) length within the line array
+    protected static class LineReader {
+        public byte[] line;
+        public int length;
+        public int position;
+        public String error;
+
+        // starts reading a new line, ignoring the \r of a \r\n line break
+        public void reset(byte[] data, int start, int end) {
+            if (data != line)
+                previous = null; // the previous id's offsets were in another buffer
+            this.line = data;
+            this.length = end > start && data[end - 1] == '\r' ? end - 1 : end;
+            this.position = start;
+            this.error = null;
+        }
+
+        public boolean atEnd() {
+            return position >= length;
+        }
+
+        public int peek() {
+            return line[position];
+        }
+
+        public void skipSpaces() {
+            while (position < length && (line[position] == ' ' || line[position] == '\t'))
+                position++;
+        }
+
+        public boolean startsWith(String text) {
+            if (position + text.length() > length)
+                return false;
+            for (int i = 0; i < text.length(); i++)
+                if (line[position + i] != text.charAt(i))
+                    return false;
+            return true;
+        }
+
+        public boolean startsWithWord(String word) {
+            return startsWith(word) && (position + word.length() == length
+                    || !isIdByte(line[position + word.length()]));
+        }
+
+        public boolean endsWith(char c) {
+            int end = length;
+            while (end > position && (line[end - 1] == ' ' || line[end - 1] == '\t'))
+                end--;
+            return end > position && line[end - 1] == c;
+        }
+
+        public String describe() {
+            return atEnd() ? "the end of the line" : "'" + (char) line[position] + "'";
+        }
+
+        // reads a quoted or unquoted id, or returns null if there is none here
+        public String readId() {
+            if (atEnd())
+                return null;
+            if (line[position] == '"') {
+                int start = ++position;
+                boolean escaped = false;
+                while (position < length && line[position] != '"') {
+                    if (line[position] == '\\' && position + 1 < length) {
+                        escaped = true;
+                        position++;
+                    }
+                    position++;
+                }
+                if (position >= length) {
+                    error = "quoted id is never closed";
+                    return null;
+                }
+                String id = decode(start, position);
+                position++; // the closing quote
+                return escaped ? id.replace("\\\"", "\"") : id;
+            }
+            int start = position;
+            if (line[position] == '-' && position + 1 < length && line[position + 1] != '>')
+                position++; // the sign of a number
+            while (position < length && isIdByte(line[position]))
+                position++;
+            return position == start ? null : decode(start, position);
+        }
+
+        // the bytes and String of the id read before this one, since lines
+        // listing the edges leaving one node repeat that node on every line
+        private int previousStart = 0;
+        private int previousEnd = 0;
+        private String previous = null;
+
+        // decodes the bytes from start to end, reusing the previous String
+        // when these bytes are the same
+        public String decode(int start, int end) {
+            if (previous == null || !Arrays.equals(line, start, end, line, previousStart, previousEnd))
+                previous = new String(line, start, end - start, StandardCharsets.UTF_8);
+            previousStart = start;
+            previousEnd = end;
+            return previous;
+        }
+
+        // returns true for the bytes allowed in unquoted ids and numbers,
+        // including every byte of a multi-byte UTF-8 character
+        public static boolean isIdByte(byte b) {
+            return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '_'
+                    || b == '.' || b < 0;
+        }
+
+        // reads an attribute list like [a=b, c=d], and returns the value of
+        // the named attribute, or null if it is missing or the list is broken
+        public String readAttribute(String name) {
+            String value = null;
+            while (!atEnd() && line[position] == '[') {
+                position++;
+                while (true) {
+                    skipSpaces();
+                    if (atEnd()) {
+                        error = "attribute list is never closed";
+                        return null;
+                    }
+                    if (line[position] == ']') {
+                        position++;
+                        break;
+                    }
+                    if (line[position] == ',' || line[position] == ';') {
+                        position++;
+                        continue;
+                    }
+                    String key = readId();
+                    skipSpaces();
+                    if (key == null || atEnd() || line[position] != '=') {
+                        error = "expected an attribute like name=value, found " + describe();
+                        return null;
+                    }
+                    position++;
+                    skipSpaces();
+                    String attributeValue = readId();
+                    if (attributeValue == null) {
+                        error = "expected an attribute value, found " + describe();
+                        return null;
+                    }
+                    if (key.equals(name))
+                        value = attributeValue;
+                }
+                skipSpaces();
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+import java.util.Arrays;
+
+/**
+ * This ReachabilityIndex answers whether one node of a CsrGraph can reach
+ * another without searching. Nodes are grouped into strongly connected
+ * components (with Tarjan's algorithm), inside which every node reaches every
+ * other, and the components are numbered in topological order of the
+ * condensation DAG formed by the edges between them, so that every edge leads
+ * from a component to itself or to a later one. A node can then only reach
+ * nodes in the same or later components, and only within its own weakly
+ * connected region of the graph.
+ *
+ * When there are at most MAX_CLOSURE_COMPONENTS components, the set of
+ * components reachable from each one is also stored as a bitset, so that
+ * every answer is exact. For graphs with more components, mayReach can answer
+ * true for some pairs that have no path between them, but never answers
+ * false for a pair that has one.
+ */
+public class ReachabilityIndex<NodeType> {
+
+    // the most components whose reachable sets are stored, which take up to
+    // MAX_CLOSURE_COMPONENTS * MAX_CLOSURE_COMPONENTS bits (2 MB)
+    public static final int MAX_CLOSURE_COMPONENTS = 1 << 12;
+
+    protected CsrGraph<NodeType> graph;
+    protected int[] components; // component of each node, in topological order
+    protected int[] componentSizes; // number of nodes in each component
+    protected boolean[] leadsOut; // whether edges lead out of each component
+    protected int[] regions; // weakly connected region of each component
+    protected long[][] closure; // components reachable from each one, or null
+
+    /**
+     * Finds the strongly connected components of graph, and the components
+     * that each one can reach.
+     *
+     * @param graph the graph to index
+     */
+    public ReachabilityIndex(CsrGraph<NodeType> graph) {
+        this.graph = graph;
+        int nodeCount = graph.getNodeCount();
+        int[] tarjanComponents = new int[nodeCount];
+        int count = findComponents(tarjanComponents);
+
+        // Tarjan's algorithm finishes a component only after every component
+        // it leads to, so reversing its numbering gives a topological order
+        components = new int[nodeCount];
+        componentSizes = new int[count];
+        for (int v = 0; v < nodeCount; v++) {
+            components[v] = count - 1 - tarjanComponents[v];
+            componentSizes[components[v]]++;
+        }
+
+        // join the components that any edge connects into regions
+        leadsOut = new boolean[count];
+        int[] parents = new int[count];
+        for (int c = 0; c < count; c++)
+            parents[c] = c;
+        for (int u = 0; u < nodeCount; u++) {
+            for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+                int from = components[u];
+                int to = components[graph.targets[e]];
+                if (from == to)
+                    continue;
+                leadsOut[from] = true;
+                parents[find(parents, from)] = find(parents, to);
+            }
+        }
+        regions = new int[count];
+        for (int c = 0; c < count; c++)
+            regions[c] = find(parents, c);
+
+        if (count <= MAX_CLOSURE_COMPONENTS)
+            closure = computeClosure(count);
+    }
+
+    // returns the root of c's set, halving the path to it along the way
+    private static int find(int[] parents, int c) {
+        while (parents[c] != c) {
+            parents[c] = parents[parents[c]];
+            c = parents[c];
+        }
+        return c;
+    }
+
+    /**
+     * Runs Tarjan's algorithm without recursion, so that long paths cannot
+     * overflow the call stack.
+     *
+     * @param found filled with the component of each node, numbered in the
+     *              order that components are finished
+     * @return the number of components found
+     */
+    private int findComponents(int[] found) {
+        int nodeCount = graph.getNodeCount();
+        int[] order = new int[nodeCount]; // order each node was first visited in
+        int[] lowest = new int[nodeCount]; // lowest order reachable on the stack
+        int[] nextEdge = new int[nodeCount]; // next edge to follow from each node
+        int[] visiting = new int[nodeCount]; // nodes whose edges are being followed
+        int[] stack = new int[nodeCount]; // visited nodes without a component
+        Arrays.fill(order, -1);
+        Arrays.fill(found, -1);
+        int visited = 0;
+        int count = 0;
+
+        for (int root = 0; root < nodeCount; root++) {
+            if (order[root] >= 0)
+                continue;
+            int depth = 0;
+            int stackSize = 0;
+            order[root] = lowest[root] = visited++;
+            nextEdge[root] = graph.offsets[root];
+            visiting[depth++] = root;
+            stack[stackSize++] = root;
+            while (depth > 0) {
+                int v = visiting[depth - 1];
+                if (nextEdge[v] < graph.offsets[v + 1]) {
+                    int w = graph.targets[nextEdge[v]++];
+                    if (order[w] < 0) {
+                        order[w] = lowest[w] = visited++;
+                        nextEdge[w] = graph.offsets[w];
+                        visiting[depth++] = w;
+                        stack[stackSize++] = w;
+                    } else if (found[w] < 0) {
+                        // w is still on the stack, so it shares v's component
+                        lowest[v] = Math.min(lowest[v], order[w]);
+                    }
+                    continue;
+                }
+                depth--;
+                if (depth > 0) {
+                    int parent = visiting[depth - 1];
+                    lowest[parent] = Math.min(lowest[parent], lowest[v]);
+                }
+                if (lowest[v] == order[v]) {
+                    // v is the first node visited in its component
+                    int w;
+                    do {
+                        w = stack[--stackSize];
+                        found[w] = count;
+                    } while (w != v);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Computes the set of components reachable from each component, working
+     * backward from the last component, so that the sets of the components
+     * each one leads to are always computed before its own.
+     *
+     * @param count the number of components
+     * @return a bitset for each component
+     */
+    private long[][] computeClosure(int count) {
+        int nodeCount = graph.getNodeCount();
+        // list the nodes of each component together
+        int[] starts = new int[count + 1];
+        for (int c = 0; c < count; c++)
+            starts[c + 1] = starts[c] + componentSizes[c];
+        int[] members = new int[nodeCount];
+        int[] filled = Arrays.copyOf(starts, count);
+        for (int v = 0; v < nodeCount; v++)
+            members[filled[components[v]]++] = v;
+
+        int words = (count + 63) >>> 6;
+        long[][] reachable = new long[count][words];
+        for (int c = count - 1; c >= 0; c--) {
+            long[] bits = reachable[c];
+            bits[c >>> 6] |= 1L << c;
+            for (int i = starts[c]; i < starts[c + 1]; i++) {
+                int u = members[i];
+                for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+                    int to = components[graph.targets[e]];
+                    if (to != c && (bits[to >>> 6] & (1L << to)) == 0) {
+                        long[] toBits = reachable[to];
+                        for (int word = to >>> 6; word < words; word++)
+                            bits[word] |= toBits[word];
+                    }
+                }
+            }
+        }
+        return reachable;
+    }
+
+    /**
+     * @return the graph that this index was computed for
+     */
+    public CsrGraph<NodeType> getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return the number of strongly connected components in the graph
+     */
+    public int getComponentCount() {
+        return componentSizes.length;
+    }
+
+    /**
+     * @param id the id of a node in the graph
+     * @return the component of that node, where every edge leads from a
+     *         component to itself or to a later one
+     */
+    public int getComponent(int id) {
+        return components[id];
+    }
+
+    /**
+     * @return true if every answer from mayReach is exact, rather than only
+     *         being certain when it is false
+     */
+    public boolean isExact() {
+        return closure != null;
+    }
+
+    /**
+     * @param from the id of the node a path would start at
+     * @param to   the id of the node a path would end at
+     * @return false if there is no path from from to to, and true if there is
+     *         one (or, when this index is not exact, there may be one)
+     */
+    public boolean mayReach(int from, int to) {
+        int fromComponent = components[from];
+        int toComponent = components[to];
+        if (fromComponent == toComponent)
+            return true;
+        if (fromComponent > toComponent || regions[fromComponent] != regions[toComponent])
+            return false;
+        return closure == null || (closure[fromComponent][toComponent >>> 6] & (1L << toComponent)) != 0;
+    }
+
+    /**
+     * Like mayReach for node ids, except that nodes that are not in the graph
+     * are treated as nodes without edges, which only reach themselves.
+     *
+     * @param start the data of the node a path would start at
+     * @param end   the data of the node a path would end at
+     * @return false if there is no path from start to end
+     */
+    public boolean mayReach(NodeType start, NodeType end) {
+        int from = graph.getId(start);
+        int to = graph.getId(end);
+        if (from < 0 || to < 0)
+            return start.equals(end);
+        return mayReach(from, to);
+    }
+
+    /**
+     * @param id the id of a node in the graph
+     * @return true if that node can reach any node other than itself
+     */
+    public boolean reachesOthers(int id) {
+        int component = components[id];
+        return componentSizes[component] > 1 || leadsOut[component];
+    }
+}
@@ -0,0 +1,63 @@
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This Route holds everything found by one shortest path search: the data of
+ * each node along the path, the weight of each edge between them, and the
+ * total cost of the path. A Route with no nodes means that no path was found.
+ */
+public class Route<NodeType> {
+
+    protected List<NodeType> nodes;
+    protected List<Double> edgeWeights;
+    protected double totalCost;
+
+    /**
+     * Creates a route from the nodes and edges along a path, where there is
+     * normally one fewer edge weight than there are nodes.
+     *
+     * @param nodes       the data of each node along the path, in order
+     * @param edgeWeights the weight of each edge along the path, in order
+     * @param totalCost   the total cost of the path
+     */
+    public Route(List<NodeType> nodes, List<Double> edgeWeights, double totalCost) {
+        this.nodes = Collections.unmodifiableList(nodes);
+        this.edgeWeights = Collections.unmodifiableList(edgeWeights);
+        this.totalCost = totalCost;
+    }
+
+    /**
+     * @return a route with no nodes, meaning that no path was found
+     */
+    public static <NodeType> Route<NodeType> empty() {
+        return new Route<>(List.of(), List.of(), 0);
+    }
+
+    /**
+     * @return true if this route has no nodes, meaning that no path was found
+     */
+    public boolean isEmpty() {
+        return nodes.isEmpty();
+    }
+
+    /**
+     * @return the data of each node along this route, from start to end
+     */
+    public List<NodeType> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return the weight of each edge along this route, from start to end
+     */
+    public List<Double> getEdgeWeights() {
+        return edgeWeights;
+    }
+
+    /**
+     * @return the total cost of this route
+     */
+    public double getTotalCost() {
+        return totalCost;
+    }
+}
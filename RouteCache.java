@@ -0,0 +1,160 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * This RouteCache remembers the results of recent shortest path searches,
+ * keyed by their start and end nodes, and evicts the least recently used
+ * result once it holds more than its capacity. Every result belongs to one
+ * version of the graph it was computed from: asking for a result with a
+ * different version clears the cache, so results are never returned after
+ * the graph has changed. All methods are synchronized, so one cache can be
+ * shared by every thread searching the same graph.
+ */
+public class RouteCache<NodeType, ValueType> {
+
+    // A start and end pair that a result is stored under
+    protected static class Key {
+        public Object start;
+        public Object end;
+
+        public Key(Object start, Object end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key && start.equals(((Key) other).start)
+                    && end.equals(((Key) other).end);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(start, end);
+        }
+    }
+
+    protected int capacity;
+    protected long version = -1; // the graph version of every stored result
+    protected LinkedHashMap<Key, ValueType> results;
+    protected long hits = 0;
+    protected long misses = 0;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param capacity the most results that are kept at once
+     * @throws IllegalArgumentException if capacity is not positive
+     */
+    public RouteCache(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity must be positive");
+        this.capacity = capacity;
+        // iterating in access order makes the first entry the least recent
+        this.results = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, ValueType> eldest) {
+                return size() > RouteCache.this.capacity;
+            }
+        };
+    }
+
+    // drops every result when they were stored for a different graph version
+    protected void checkVersion(long version) {
+        if (version != this.version) {
+            results.clear();
+            this.version = version;
+        }
+    }
+
+    /**
+     * Looks up the result stored for a start and end pair, and counts this as
+     * a hit or a miss.
+     *
+     * @param start   the data of the path's start node
+     * @param end     the data of the path's end node
+     * @param version the current version of the graph
+     * @return the stored result, or null if there is none for this version
+     */
+    public synchronized ValueType get(NodeType start, NodeType end, long version) {
+        checkVersion(version);
+        ValueType result = results.get(new Key(start, end));
+        if (result == null)
+            misses++;
+        else
+            hits++;
+        return result;
+    }
+
+    /**
+     * Stores the result for a start and end pair, evicting the least recently
+     * used result if this cache is full.
+     *
+     * @param start   the data of the path's start node
+     * @param end     the data of the path's end node
+     * @param version the version of the graph the result was computed from
+     * @param result  the result to store
+     */
+    public synchronized void put(NodeType start, NodeType end, long version, ValueType result) {
+        checkVersion(version);
+        results.put(new Key(start, end), result);
+    }
+
+    /**
+     * Carries the stored results over to a new version of the graph, removing
+     * those that the changes between the two versions affected. When the
+     * stored results do not belong to previousVersion, all of them are
+     * removed instead.
+     *
+     * @param previousVersion the graph version before the changes
+     * @param version         the graph version after the changes
+     * @param affected        true for each result the changes made wrong
+     * @return the number of results that were kept
+     */
+    public synchronized int retainUnaffected(long previousVersion, long version,
+            Predicate<ValueType> affected) {
+        if (this.version != previousVersion)
+            results.clear();
+        else
+            results.values().removeIf(affected);
+        this.version = version;
+        return results.size();
+    }
+
+    /**
+     * Removes every stored result, without resetting the hit and miss counts.
+     */
+    public synchronized void clear() {
+        results.clear();
+    }
+
+    /**
+     * @return the number of results currently stored
+     */
+    public synchronized int getSize() {
+        return results.size();
+    }
+
+    /**
+     * @return the most results that are kept at once
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of lookups that found a stored result
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of lookups that did not find a stored result
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
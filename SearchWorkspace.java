@@ -0,0 +1,285 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This SearchWorkspace holds the state of one shortest path search over node
+ * ids: the cost each node was reached at, the id of the node it was reached
+ * from, which nodes are settled, and an IndexedMinHeap of the nodes still to
+ * be settled (or a BucketQueue, for searches that use one). Rather than
+ * clearing these arrays before each search, every entry is stamped with the
+ * epoch of the search that wrote it, and entries from earlier epochs are
+ * treated as unreached. Starting a search then only takes constant time,
+ * however large the graph is.
+ *
+ * A search takes a workspace from a shared pool through acquire(), and
+ * hands it back through release() once it has read its results. Workspaces
+ * grow to fit the largest graph they have searched and are reused by later
+ * searches on any thread, so that a search allocates nothing but the path it
+ * returns, even when every request runs on a new (virtual) thread.
+ */
+public class SearchWorkspace {
+
+    // the most idle workspaces kept in the pool; each one holds arrays as
+    // large as the largest graph it searched, so only a few per core are kept
+    protected static final int MAX_POOLED = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
+    // idle workspaces, and how many of them there are
+    protected static final ConcurrentLinkedQueue<SearchWorkspace> pool = new ConcurrentLinkedQueue<>();
+    protected static final AtomicInteger pooled = new AtomicInteger();
+
+    protected int epoch = 0; // the epoch of the current search
+    protected int[] reachedEpochs = new int[0]; // epoch each id was last reached in
+    protected int[] settledEpochs = new int[0]; // epoch each id was last settled in
+    protected double[] costs = new double[0]; // cost of each reached id
+    protected int[] predecessors = new int[0]; // id each reached id was reached from
+    protected double[] edgeWeights = new double[0]; // weight of the edge it was reached by
+    protected IndexedMinHeap queue = new IndexedMinHeap(0);
+    protected BucketQueue buckets = null; // created by the first startBuckets
+
+    /**
+     * Takes an idle workspace from the pool, or creates one when the pool is
+     * empty. The caller has it to itself until it calls release().
+     *
+     * @return a workspace for one search (or one half of a bidirectional
+     *         search) to run in
+     */
+    public static SearchWorkspace acquire() {
+        SearchWorkspace workspace = pool.poll();
+        if (workspace == null)
+            return new SearchWorkspace();
+        pooled.decrementAndGet();
+        return workspace;
+    }
+
+    /**
+     * Hands this workspace back to the pool for later searches to reuse, or
+     * leaves it to be garbage collected when the pool is already full. Nothing
+     * may be read from this workspace after it is released.
+     */
+    public void release() {
+        if (pooled.incrementAndGet() <= MAX_POOLED)
+            pool.offer(this);
+        else
+            pooled.decrementAndGet();
+    }
+
+    /**
+     * Starts a new search, in which no id is reached or settled yet. The
+     * arrays are only grown (and so allocated) when capacity is larger than
+     * any earlier search on this workspace needed.
+     *
+     * @param capacity the exclusive upper bound on ids used by this search
+     * @return the empty heap for this search to order ids by
+     */
+    public IndexedMinHeap start(int capacity) {
+        if (capacity > costs.length) {
+            int newCapacity = Math.max(capacity, costs.length + costs.length / 2);
+            reachedEpochs = Arrays.copyOf(reachedEpochs, newCapacity);
+            settledEpochs = Arrays.copyOf(settledEpochs, newCapacity);
+            costs = Arrays.copyOf(costs, newCapacity);
+            predecessors = Arrays.copyOf(predecessors, newCapacity);
+            edgeWeights = Arrays.copyOf(edgeWeights, newCapacity);
+            queue.ensureCapacity(newCapacity);
+        }
+        queue.clear(); // only holds ids left over when the last search stopped early
+        if (epoch == Integer.MAX_VALUE) {
+            // stamps from the oldest epochs would look current again
+            Arrays.fill(reachedEpochs, 0);
+            Arrays.fill(settledEpochs, 0);
+            epoch = 0;
+        }
+        epoch++;
+        return queue;
+    }
+
+    /**
+     * Starts a new search like start does, but orders ids by a BucketQueue
+     * instead of the heap. The BucketQueue is kept for later searches, and
+     * only allocates again when its number of buckets changes.
+     *
+     * @param capacity    the exclusive upper bound on ids used by this search
+     * @param bucketWidth the range of keys covered by each bucket
+     * @param maxWeight   the largest edge weight that this search follows
+     * @return the empty BucketQueue for this search to order ids by
+     * @throws IllegalArgumentException if the BucketQueue cannot be made to
+     *                                  hold this range of weights
+     */
+    public BucketQueue startBuckets(int capacity, double bucketWidth, double maxWeight) {
+        start(capacity);
+        if (buckets == null)
+            buckets = new BucketQueue(costs.length, bucketWidth, maxWeight);
+        else
+            buckets.reset(costs.length, bucketWidth, maxWeight);
+        return buckets;
+    }
+
+    /**
+     * @param id the id to check
+     * @return true if id has been reached by the current search
+     */
+    public boolean isReached(int id) {
+        return reachedEpochs[id] == epoch;
+    }
+
+    /**
+     * @param id the id to check
+     * @return true if id has been settled by the current search
+     */
+    public boolean isSettled(int id) {
+        return settledEpochs[id] == epoch;
+    }
+
+    /**
+     * @param id the id to look up
+     * @return the cost id was last reached at in the current search, or
+     *         Double.POSITIVE_INFINITY if it has not been reached
+     */
+    public double getCost(int id) {
+        return isReached(id) ? costs[id] : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @param id an id reached by the current search
+     * @return the id that id was last reached from, or -1 if it is where the
+     *         search started
+     */
+    public int getPredecessor(int id) {
+        return predecessors[id];
+    }
+
+    /**
+     * Records that id has been reached at a cost, from another id.
+     *
+     * @param id          the id reached
+     * @param cost        the cost of the path it was reached by
+     * @param predecessor the id it was reached from, or -1 where the search
+     *                    starts
+     */
+    public void reach(int id, double cost, int predecessor) {
+        reachedEpochs[id] = epoch;
+        costs[id] = cost;
+        predecessors[id] = predecessor;
+    }
+
+    /**
+     * Records that id has been reached at a cost, from another id, along with
+     * the weight of the edge between them, so that a path can be built from
+     * the workspace without looking any edge up again.
+     *
+     * @param id          the id reached
+     * @param cost        the cost of the path it was reached by
+     * @param predecessor the id it was reached from
+     * @param edgeWeight  the weight of the edge from predecessor to id
+     */
+    public void reach(int id, double cost, int predecessor, double edgeWeight) {
+        reach(id, cost, predecessor);
+        edgeWeights[id] = edgeWeight;
+    }
+
+    /**
+     * @param id an id reached by the current search through the reach method
+     *           that records edge weights
+     * @return the weight of the edge that id was last reached by
+     */
+    public double getEdgeWeight(int id) {
+        return edgeWeights[id];
+    }
+
+    /**
+     * Records that the cost of id is final.
+     *
+     * @param id the id settled
+     */
+    public void settle(int id) {
+        settledEpochs[id] = epoch;
+    }
+
+    /**
+     * tests that starting a search forgets everything the last search reached
+     */
+    @Test
+    public void startTest() {
+        SearchWorkspace test = new SearchWorkspace();
+        IndexedMinHeap queue = test.start(3);
+        test.reach(0, 0, -1);
+        test.reach(2, 4.5, 0, 4.5);
+        test.settle(0);
+        queue.insert(2, 4.5);
+        Assertions.assertTrue(test.isReached(2));
+        Assertions.assertEquals(4.5, test.getCost(2));
+        Assertions.assertEquals(0, test.getPredecessor(2));
+        Assertions.assertEquals(4.5, test.getEdgeWeight(2));
+        Assertions.assertTrue(test.isSettled(0));
+        Assertions.assertFalse(test.isReached(1));
+
+        Assertions.assertTrue(test.start(3) == queue);
+        Assertions.assertTrue(queue.isEmpty());
+        for (int id = 0; id < 3; id++) {
+            Assertions.assertFalse(test.isReached(id));
+            Assertions.assertFalse(test.isSettled(id));
+            Assertions.assertEquals(Double.POSITIVE_INFINITY, test.getCost(id));
+        }
+
+        BucketQueue buckets = test.startBuckets(3, 1, 2);
+        test.reach(1, 0, -1);
+        buckets.insert(1, 0);
+        Assertions.assertTrue(test.startBuckets(3, 1, 2) == buckets);
+        Assertions.assertTrue(buckets.isEmpty());
+        Assertions.assertFalse(test.isReached(1));
+    }
+
+    /**
+     * tests that the workspace grows, and that its epoch can wrap around
+     */
+    @Test
+    public void growAndWrapTest() {
+        SearchWorkspace test = new SearchWorkspace();
+        test.start(2);
+        test.reach(1, 1, -1);
+        test.start(10);
+        Assertions.assertFalse(test.isReached(1));
+        test.reach(9, 2, -1);
+        Assertions.assertTrue(test.isReached(9));
+
+        test.epoch = Integer.MAX_VALUE - 2;
+        test.start(10);
+        test.reach(3, 1, -1);
+        test.settle(3);
+        test.start(10); // the last epoch before wrapping around
+        test.reach(4, 1, -1);
+        test.start(10);
+        Assertions.assertEquals(1, test.epoch);
+        Assertions.assertFalse(test.isReached(3));
+        Assertions.assertFalse(test.isSettled(3));
+        Assertions.assertFalse(test.isReached(4));
+
+    }
+
+    /**
+     * tests that released workspaces are reused, and that the pool keeps no
+     * more than MAX_POOLED of them
+     */
+    @Test
+    public void poolTest() {
+        SearchWorkspace first = SearchWorkspace.acquire();
+        SearchWorkspace second = SearchWorkspace.acquire();
+        Assertions.assertFalse(first == second);
+        first.start(50);
+        first.release();
+        second.release();
+        SearchWorkspace reused = SearchWorkspace.acquire();
+        Assertions.assertTrue(reused == first || reused == second);
+        reused.release();
+
+        SearchWorkspace[] many = new SearchWorkspace[MAX_POOLED + 5];
+        for (int i = 0; i < many.length; i++)
+            many[i] = SearchWorkspace.acquire();
+        for (SearchWorkspace workspace : many)
+            workspace.release();
+        Assertions.assertTrue(pooled.get() <= MAX_POOLED);
+        Assertions.assertTrue(pool.size() <= MAX_POOLED);
+    }
+}
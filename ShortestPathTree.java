@@ -0,0 +1,141 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * This ShortestPathTree holds the shortest paths from one start node to every
+ * node that can be reached from it, as found by a single search. Each reached
+ * node stores the node it is reached from along its shortest path, the cost
+ * of that path, and the number of edges (hops) along it, so the path to any
+ * node can be read back by following predecessors to the start.
+ */
+public class ShortestPathTree<NodeType> {
+
+    protected NodeType start;
+    protected MapADT<NodeType, Integer> indexes = new OpenAddressingMap<>();
+
+    // the reached nodes in the order they were added, and for each of them the
+    // index of its predecessor (-1 for the start), its cost and its hop count
+    protected List<NodeType> reached = new ArrayList<>();
+    protected int[] predecessors = new int[16];
+    protected double[] costs = new double[16];
+    protected int[] hopCounts = new int[16];
+
+    /**
+     * Creates a tree that only reaches its start node.
+     *
+     * @param start the data of the node that every path starts from
+     */
+    public ShortestPathTree(NodeType start) {
+        this.start = start;
+        indexes.put(start, 0);
+        reached.add(start);
+        predecessors[0] = -1;
+    }
+
+    /**
+     * Adds a node to this tree, reached through its predecessor. Nodes must be
+     * added after their predecessor, as they are when settled by Dijkstra's.
+     *
+     * @param node        the data of the node being reached
+     * @param predecessor the data of the node it is reached from
+     * @param cost        the cost of the shortest path from start to node
+     * @param hopCount    the number of edges along that path
+     * @throws IllegalArgumentException if node is already in this tree, or if
+     *                                  predecessor is not
+     */
+    public void add(NodeType node, NodeType predecessor, double cost, int hopCount) {
+        if (indexes.containsKey(node))
+            throw new IllegalArgumentException(node + " is already in this tree");
+        Integer predecessorIndex = indexes.getOrNull(predecessor);
+        if (predecessorIndex == null)
+            throw new IllegalArgumentException(predecessor + " must be added before " + node);
+        int index = reached.size();
+        if (index == predecessors.length) {
+            predecessors = Arrays.copyOf(predecessors, index * 2);
+            costs = Arrays.copyOf(costs, index * 2);
+            hopCounts = Arrays.copyOf(hopCounts, index * 2);
+        }
+        predecessors[index] = predecessorIndex;
+        costs[index] = cost;
+        hopCounts[index] = hopCount;
+        indexes.put(node, index);
+        reached.add(node);
+    }
+
+    // returns the index of node, or throws when it is not reached
+    protected int indexOf(NodeType node) {
+        Integer index = indexes.getOrNull(node);
+        if (index == null)
+            throw new NoSuchElementException("No path from " + start + " to " + node);
+        return index;
+    }
+
+    /**
+     * @return the data of the node that every path starts from
+     */
+    public NodeType getStart() {
+        return start;
+    }
+
+    /**
+     * @return the data of every node reached from start, including start, in
+     *         the order they were added to this tree
+     */
+    public List<NodeType> getReachedNodes() {
+        return Collections.unmodifiableList(reached);
+    }
+
+    /**
+     * @param node the data of any node
+     * @return true if there is a path from start to node
+     */
+    public boolean isReachable(NodeType node) {
+        return indexes.containsKey(node);
+    }
+
+    /**
+     * @param node the data of a reached node
+     * @return the cost of the shortest path from start to node
+     * @throws NoSuchElementException if node is not reached from start
+     */
+    public double getCost(NodeType node) {
+        return costs[indexOf(node)];
+    }
+
+    /**
+     * @param node the data of a reached node
+     * @return the number of edges along the shortest path from start to node
+     * @throws NoSuchElementException if node is not reached from start
+     */
+    public int getHopCount(NodeType node) {
+        return hopCounts[indexOf(node)];
+    }
+
+    /**
+     * @param node the data of a reached node
+     * @return the data of the node before node on its shortest path, or null
+     *         when node is start
+     * @throws NoSuchElementException if node is not reached from start
+     */
+    public NodeType getPredecessor(NodeType node) {
+        int predecessor = predecessors[indexOf(node)];
+        return predecessor < 0 ? null : reached.get(predecessor);
+    }
+
+    /**
+     * @param node the data of a reached node
+     * @return the data of each node along the shortest path from start to node,
+     *         starting with start and ending with node
+     * @throws NoSuchElementException if node is not reached from start
+     */
+    public List<NodeType> getPath(NodeType node) {
+        List<NodeType> path = new ArrayList<>();
+        for (int index = indexOf(node); index >= 0; index = predecessors[index])
+            path.add(reached.get(index));
+        Collections.reverse(path);
+        return path;
+    }
+}
@@ -8,9 +8,25 @@ import com.sun.net.httpserver.HttpExchange;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.util.Scanner;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Stream;
 
 /**
@@ -26,8 +42,74 @@ import java.util.stream.Stream;
  *     compile WebApp in that location
  *     there is no need to run your sever, the provided index.cgi handles this 
  * Then visit through browser via https://cs400-web.cs.wisc.edu/CS_LOGIN/
+ *
+ * How the server executes requests can be tuned through system properties:
+ *     -Dwebapp.executor=virtual    one new virtual thread per request (default)
+ *     -Dwebapp.executor=pool       fixed pool of platform threads
+ *     -Dwebapp.executor=dispatcher everything on the server's dispatcher thread
+ *     -Dwebapp.threads=N           pool size (defaults to the number of cores)
+ *     -Dwebapp.queue=N             requests that may wait for a pool thread
+ *     -Dwebapp.queueTimeout=MS     longest a request may wait in that queue
+ *     -Dwebapp.backlog=N           connections the kernel may hold for accept
+ *     -Dwebapp.routeCache=N        shortest paths cached (0 turns caching off)
+ *     -Dwebapp.snapshot=FILE       start from a binary GraphSnapshot in FILE,
+ *                                  writing it from the dot file first whenever
+ *                                  it is missing or older than the dot file
+ *     -Dwebapp.watch=false         stop reloading the graph when its dot file
+ *                                  changes (reloading is on by default)
+ * Requests that find the pool's queue full, or that waited in it for longer
+ * than the queue timeout, are answered with 503 Service Unavailable.
+ *
+ * Matrices of walking times between many locations at once are served as
+ * JSON from /matrix, given one from=LOCATION parameter per row and one
+ * to=LOCATION parameter per column (the rows' locations when there are no
+ * to parameters), either in the query string or in a form-encoded POST body:
+ *     curl -d "from=Memorial Union&from=Union South&to=Science Hall" URL/matrix
+ * Times are in seconds, with null where there is no path. POST bodies over
+ * 1 MB are answered with 413, and malformed parameters, unknown locations and
+ * matrices of more than 500 x 500 times with 400.
  */
 public class WebApp {
+
+    // the graph file that this server loads its campus locations from
+    private static final String GRAPH_FILENAME = "./campus.dot";
+
+    // how long the graph file must go without changing before it is reloaded,
+    // since editors often save a file through several separate writes
+    private static final long RELOAD_QUIET_MILLIS = 250;
+
+    // the largest POST body and the most from x to cells that one /matrix
+    // request may ask for, so that no request can exhaust memory or time
+    private static final int MAX_MATRIX_BODY_BYTES = 1 << 20;
+    private static final long MAX_MATRIX_CELLS = 500 * 500;
+
+    // A loaded backend and frontend, along with the size of the graph behind them
+    private static class LoadedGraph {
+				public final Backend backend;
+				public final FrontendInterface frontend;
+				public final int nodeCount;
+				public final int edgeCount;
+
+				public LoadedGraph(Backend backend) {
+						this.backend = backend;
+						this.frontend = new Frontend(backend);
+						this.nodeCount = backend.getNodeCount();
+						this.edgeCount = backend.getEdgeCount();
+				}
+    }
+
+    // frontend (and through it the backend and graph) shared by every request
+    // handled by this server process.  Requests only ever read from this graph,
+    // and loading a new graph swaps in a completely new frontend, so requests
+    // that are already running keep using the graph they started with.
+    private static final AtomicReference<LoadedGraph> sharedGraph =
+				new AtomicReference<>();
+
+    // set while handling a request that should be turned away with a 503,
+    // because it could not be queued or waited in the queue for too long
+    private static final ThreadLocal<Boolean> rejectRequest =
+				ThreadLocal.withInitial(() -> false);
+
     public static void main(String[] args) throws IOException {
 				// expects the port number as a command line argument to this program
 				// or if a non-numeric argument is passed treat this like the query
@@ -48,17 +130,94 @@ public class WebApp {
 						return;
 				}
 				
+				// load the graph once up front, rather than once per request, and
+				// then again in the background whenever its file is edited
+				loadGraph(GRAPH_FILENAME);
+				if(Boolean.parseBoolean(System.getProperty("webapp.watch", "true")))
+						watchGraph(GRAPH_FILENAME);
+
 				// configure and start server on this port, responding in this way
 				InetSocketAddress address = new InetSocketAddress(portNumber);
-				HttpServer server = HttpServer.create(address,8);
+				HttpServer server = HttpServer.create(address,
+						Integer.getInteger("webapp.backlog", 64));
+				Executor executor = createExecutor();
+				if(executor != null) server.setExecutor(executor);
 				HttpContext context = server.createContext("/");
 				context.setHandler( WebApp::requestHandler );
+				server.createContext("/matrix").setHandler( WebApp::matrixHandler );
 				System.out.println("Starting Campus Navigator Server...");
 				server.start();
     }
 
+    // creates the executor described by the webapp.* system properties, or
+    // returns null when requests should run on the server's dispatcher thread
+    private static Executor createExecutor() {
+				String kind = System.getProperty("webapp.executor", "virtual");
+				if(kind.equals("dispatcher"))
+						return null;
+				if(kind.equals("virtual"))
+						return new RequestExecutor(
+								Executors.newVirtualThreadPerTaskExecutor(), Long.MAX_VALUE);
+				if(!kind.equals("pool"))
+						throw new IllegalArgumentException("Unknown webapp.executor: " + kind);
+
+				int threads = Integer.getInteger("webapp.threads",
+						Runtime.getRuntime().availableProcessors());
+				int queueSize = Integer.getInteger("webapp.queue", 256);
+				long queueTimeout = Long.getLong("webapp.queueTimeout", 5000);
+				ExecutorService pool = new ThreadPoolExecutor(threads, threads,
+						0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize));
+				return new RequestExecutor(pool, TimeUnit.MILLISECONDS.toNanos(queueTimeout));
+    }
+
+    /**
+     * Hands each exchange that the server accepts over to a worker executor,
+     * while keeping track of how long it waited there before starting.  Since
+     * the server's runnables do not expose their exchange, requests that should
+     * be turned away are flagged through rejectRequest, and requestHandler then
+     * answers them with a 503 instead of computing a response.  Exchanges that
+     * find the workers' queue full are answered by a single thread of their
+     * own, so that the server's dispatcher thread keeps accepting connections.
+     */
+    private static class RequestExecutor implements Executor {
+				private final ExecutorService workers;
+				private final long queueTimeoutNanos;
+				private final ExecutorService rejections =
+						Executors.newSingleThreadExecutor(task -> {
+								Thread thread = new Thread(task, "webapp-rejections");
+								thread.setDaemon(true);
+								return thread;
+						});
+
+				public RequestExecutor(ExecutorService workers, long queueTimeoutNanos) {
+						this.workers = workers;
+						this.queueTimeoutNanos = queueTimeoutNanos;
+				}
+
+				@Override
+				public void execute(Runnable exchangeTask) {
+						long queuedAt = System.nanoTime();
+						try {
+								workers.execute(() -> run(exchangeTask,
+										System.nanoTime() - queuedAt > queueTimeoutNanos));
+						} catch(RejectedExecutionException e) {
+								// the queue is full, so reject right away, off the dispatcher thread
+								rejections.execute(() -> run(exchangeTask, true));
+						}
+				}
+
+				private void run(Runnable exchangeTask, boolean reject) {
+						rejectRequest.set(reject);
+						try { exchangeTask.run(); }
+						finally { rejectRequest.set(false); }
+				}
+    }
+
     // http request handler handler for the context "/"
     public static void requestHandler(HttpExchange exchange) {
+				// turn away requests that the executor could not serve in time
+				if(rejectIfRequested(exchange))
+						return;
 				try {
 						// extract the query (part of URI after?) part of URI
 						String query = exchange.getRequestURI().getQuery();	    
@@ -68,8 +227,8 @@ public class WebApp {
 																					exchange.getRequestURI().getQuery());
 						System.out.println("Query includes args: "+keyValuePairs);
 	    
-						// create backend and frontend objects to respond to this request
-						FrontendInterface frontend = createWorkingFrontend("./campus.dot");
+						// use the pre-loaded frontend to respond to this request
+						FrontendInterface frontend = sharedGraph.get().frontend;
 						// compute answer to user's requested problem based on query args:
 						String response = generateResponseHTML(keyValuePairs,frontend);
 						// generate HTML prompts for user for make next requests
@@ -94,6 +253,134 @@ public class WebApp {
 				}
     }
 
+    // answers exchange with a 503 and returns true when the executor could not
+    // serve it in time
+    private static boolean rejectIfRequested(HttpExchange exchange) {
+				if(!rejectRequest.get())
+						return false;
+				try { exchange.sendResponseHeaders(503,-1); }
+				catch(IOException i){} // do nothing when this fails
+				exchange.close();
+				return true;
+    }
+
+    // http request handler for the context "/matrix", which responds with the
+    // walking times from every from location to every to location as JSON
+    public static void matrixHandler(HttpExchange exchange) {
+				if(rejectIfRequested(exchange))
+						return;
+				try {
+						String method = exchange.getRequestMethod();
+						String query = exchange.getRequestURI().getRawQuery();
+						if(method.equals("POST")) {
+								byte[] body = exchange.getRequestBody().readNBytes(MAX_MATRIX_BODY_BYTES + 1);
+								if(body.length > MAX_MATRIX_BODY_BYTES) {
+										sendText(exchange, 413, "Request body is larger than "
+												+ MAX_MATRIX_BODY_BYTES + " bytes");
+										return;
+								}
+								query = new String(body, StandardCharsets.UTF_8);
+						} else if(!method.equals("GET")) {
+								sendText(exchange, 405, "Use GET or POST");
+								return;
+						}
+						Map<String,List<String>> lists;
+						try {
+								lists = parseQueryLists(query);
+						} catch(IllegalArgumentException e) {
+								// an argument without = or with a malformed % escape
+								sendText(exchange, 400, e.getMessage());
+								return;
+						}
+						List<String> from = lists.getOrDefault("from", List.of());
+						List<String> to = lists.getOrDefault("to", from);
+						if((long) from.size() * to.size() > MAX_MATRIX_CELLS) {
+								sendText(exchange, 400, "A matrix of " + from.size() + " x " + to.size()
+										+ " locations is larger than the limit of " + MAX_MATRIX_CELLS + " times");
+								return;
+						}
+						System.out.println("Received matrix request for " + from.size() +
+								" x " + to.size() + " locations");
+
+						double[][] times;
+						try {
+								times = sharedGraph.get().backend.findTimeMatrix(from, to);
+						} catch(NoSuchElementException e) {
+								sendText(exchange, 400, e.getMessage());
+								return;
+						}
+						exchange.getResponseHeaders().set("Content-Type", "application/json");
+						sendText(exchange, 200, matrixJSON(from, to, times));
+				} catch (Exception e) {
+						System.out.println("Exception Thrown: "+e.toString());
+						e.printStackTrace();
+						try { exchange.sendResponseHeaders(500,-1); }
+						catch(IOException i){} // do nothing when this fails
+				}
+    }
+
+    // sends text as the whole response to exchange, with the given status
+    private static void sendText(HttpExchange exchange, int status, String text)
+				throws IOException {
+				byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+				exchange.sendResponseHeaders(status,bytes.length);
+				OutputStream out = exchange.getResponseBody();
+				out.write(bytes);
+				out.close();
+    }
+
+    // writes the locations and walking times of a matrix as a JSON object
+    private static String matrixJSON(List<String> from, List<String> to, double[][] times) {
+				StringBuilder json = new StringBuilder("{\"from\":");
+				appendJSON(json, from);
+				json.append(",\"to\":");
+				appendJSON(json, to);
+				json.append(",\"seconds\":[");
+				for(int i = 0; i < times.length; i++) {
+						json.append(i == 0 ? "[" : ",[");
+						for(int j = 0; j < times[i].length; j++) {
+								if(j > 0) json.append(',');
+								json.append(Double.isInfinite(times[i][j]) ? "null" : times[i][j]);
+						}
+						json.append(']');
+				}
+				return json.append("]}").toString();
+    }
+
+    // appends strings to json as an array of JSON strings
+    private static void appendJSON(StringBuilder json, List<String> strings) {
+				json.append('[');
+				for(int i = 0; i < strings.size(); i++) {
+						if(i > 0) json.append(',');
+						json.append('"');
+						for(char c : strings.get(i).toCharArray()) {
+								if(c == '"' || c == '\\') json.append('\\').append(c);
+								else if(c < ' ') json.append(String.format("\\u%04x", (int) c));
+								else json.append(c);
+						}
+						json.append('"');
+				}
+				json.append(']');
+    }
+
+    // reads the URL encoded key value pairs of a query string or form body
+    // into a map from each key to all of its values, in order
+    private static Map<String,List<String>> parseQueryLists(String query) {
+				HashMap<String,List<String>> map = new HashMap<>();
+				if(query == null || query.isEmpty())
+						return map;
+				for(String arg : query.split("&")) {
+						int split = arg.indexOf('=');
+						if(split < 0)
+								throw new IllegalArgumentException("Unable to split arg: " + arg +
+										" into a key value pair around a = delimiter.");
+						map.computeIfAbsent(URLDecoder.decode(arg.substring(0, split),
+										StandardCharsets.UTF_8), key -> new ArrayList<>())
+								.add(URLDecoder.decode(arg.substring(split + 1), StandardCharsets.UTF_8));
+				}
+				return map;
+    }
+
     // reads key value pairs from the query string of a URI into a map
     private static Map<String,String> parseQuery(String query) {
 				HashMap<String,String> map = new HashMap<>();
@@ -109,13 +396,120 @@ public class WebApp {
 				return map;
     }
 
+    /**
+     * Loads the graph in filename into a new Frontend, Backend, and
+     * DijkstraGraph, and then atomically swaps it in as the graph used by all
+     * later requests.  If loading fails, the previously loaded graph is kept.
+     *
+     * @param filename the path to a dot file to read graph data from
+     * @throws IOException if there was any problem reading from this file
+     */
+    public static void loadGraph(String filename) throws IOException {
+				sharedGraph.set(new LoadedGraph(createWorkingBackend(filename, true)));
+    }
+
+    /**
+     * Loads the graph in filename again and swaps it in, reporting how long
+     * that took and how the number of nodes and edges changed.  Requests that
+     * are already running finish on the graph they started with.  If loading
+     * fails, for example because the file was saved part way through an edit,
+     * the previously loaded graph is kept and the problem is reported.
+     *
+     * Requests read the loaded graph on many threads without locking, so it
+     * must never change underneath them.  The file's changes are therefore
+     * applied through Backend.loadGraphData to a copy of the loaded graph,
+     * which brings along its landmarks and all-pairs table, so that only the
+     * parts of them that the changes affect are computed again.
+     *
+     * @param filename the path to a dot file to read graph data from
+     */
+    public static void reloadGraph(String filename) {
+				long startTime = System.nanoTime();
+				LoadedGraph previous = sharedGraph.get();
+				try {
+						Backend backend = previous.backend.copy();
+						backend.loadGraphData(filename);
+						sharedGraph.set(new LoadedGraph(backend));
+				} catch(IOException | RuntimeException e) {
+						System.out.println("Keeping the previous graph, since reloading " +
+								filename + " failed: " + e.getMessage());
+						return;
+				}
+				LoadedGraph loaded = sharedGraph.get();
+				System.out.printf("Reloaded %s in %.1f ms: %d nodes (%+d), %d edges (%+d)%n",
+						filename, (System.nanoTime() - startTime) / 1e6,
+						loaded.nodeCount, loaded.nodeCount - previous.nodeCount,
+						loaded.edgeCount, loaded.edgeCount - previous.edgeCount);
+    }
+
+    /**
+     * Starts a background thread that calls reloadGraph each time filename is
+     * changed, once the file has gone RELOAD_QUIET_MILLIS without changing.
+     *
+     * @param filename the path to the dot file to watch
+     * @throws IOException if the directory holding this file cannot be watched
+     */
+    public static void watchGraph(String filename) throws IOException {
+				Path file = Path.of(filename).toAbsolutePath().normalize();
+				WatchService watcher = file.getFileSystem().newWatchService();
+				// only directories can be watched, so watch the one holding the file
+				file.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+						StandardWatchEventKinds.ENTRY_MODIFY);
+				Thread thread = new Thread(() -> {
+						try {
+								while(true) {
+										if(!changesFile(watcher.take(), file))
+												continue;
+										WatchKey key;
+										while((key = watcher.poll(RELOAD_QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null)
+												changesFile(key, file);
+										reloadGraph(filename);
+								}
+						} catch(InterruptedException e) {
+								// stop watching
+						}
+				}, "graph-watcher");
+				thread.setDaemon(true);
+				thread.start();
+    }
+
+    // returns whether the events in key include a change to file, and resets
+    // key so that it keeps reporting later events
+    private static boolean changesFile(WatchKey key, Path file) {
+				boolean changed = false;
+				for(WatchEvent<?> event : key.pollEvents())
+						if(event.kind() == StandardWatchEventKinds.OVERFLOW ||
+						   file.getFileName().equals(event.context()))
+								changed = true;
+				key.reset();
+				return changed;
+    }
+
     // creates a working Frontend, Backend, DijkstraGraph, and HashtableMap
     private static FrontendInterface createWorkingFrontend(String filename) throws IOException {
-				GraphADT<String,Double> graph = new DijkstraGraph<>();
-				BackendInterface backend = new Backend(graph);
-				backend.loadGraphData(filename);			
-				FrontendInterface frontend = new Frontend(backend);
-				return frontend;
+				return new Frontend(createWorkingBackend(filename, false));
+    }
+
+    // creates a working Backend, DijkstraGraph, and HashtableMap holding the
+    // graph in filename.  Only the long-running server builds and saves the
+    // graph's indexes, since a single response would pay for them on every
+    // page load; it still reads those that the server has already saved.
+    private static Backend createWorkingBackend(String filename, boolean buildIndexes)
+				throws IOException {
+				DijkstraGraph<String,Double> graph = new DijkstraGraph<>();
+				graph.setRouteCacheCapacity(Integer.getInteger("webapp.routeCache", 1024));
+				Backend backend = new Backend(graph);
+				backend.setBuildIndexes(buildIndexes);
+				String snapshotFilename = System.getProperty("webapp.snapshot");
+				if(snapshotFilename == null) {
+						backend.loadGraphData(filename);
+				} else if(new File(snapshotFilename).lastModified() < new File(filename).lastModified()) {
+						// missing snapshots have a lastModified of 0
+						backend.loadGraphData(filename);
+						backend.saveGraphSnapshot(snapshotFilename);
+				} else
+						backend.loadGraphSnapshot(snapshotFilename);
+				return backend;
     }
 
     // creates the html response for the kind of question requeted (if any)
@@ -169,7 +563,7 @@ public class WebApp {
 						Map<String,String> keyValuePairs = parseQuery(query);
 	    
 						// create backend and frontend objects to respond to this request
-						FrontendInterface frontend = createWorkingFrontend("./campus.dot");
+						FrontendInterface frontend = createWorkingFrontend(GRAPH_FILENAME);
 						// compute answer to user's requested problem based on query args:
 						String response = generateResponseHTML(keyValuePairs,frontend);
 						// generate HTML prompts for user for make next requests